@@ -0,0 +1,86 @@
+package benchmarks;
+
+import hashing.tables.ArenaHashTable;
+import hashing.tables.IPerfectHashTable;
+import hashing.tables.LinearSpaceHashTable;
+import hashing.tables.MinimalPerfectHashTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link IPerfectHashTable#searchAll(List)} against a loop of single lookups over the
+ * same probes, half hits and half misses in random order. Scores are per key.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class BatchLookupBenchmark {
+
+    private static final int PROBES = 1024;
+
+    @Param({"linear", "arena", "minimal"})
+    public String type;
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    private IPerfectHashTable table;
+    private List<String> probes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        List<String> keys = Keys.distinct(size);
+        switch (type) {
+            case "arena" -> table = new ArenaHashTable();
+            case "minimal" -> table = new MinimalPerfectHashTable();
+            default -> table = new LinearSpaceHashTable();
+        }
+        table.build(keys);
+
+        Random random = new Random(7);
+        List<String> misses = Keys.absent(PROBES / 2, keys);
+        probes = new ArrayList<>(PROBES);
+        for (int i = 0; i < PROBES / 2; i++) {
+            probes.add(keys.get(random.nextInt(keys.size())));
+            probes.add(misses.get(i));
+        }
+        Collections.shuffle(probes, random);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public int loop() {
+        int found = 0;
+        for (String probe : probes) {
+            if (table.contains(probe))
+                found++;
+        }
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public boolean[] batch() {
+        return table.searchAll(probes);
+    }
+}
@@ -0,0 +1,36 @@
+package benchmarks;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of {@code benchmarks.jar}. Same options as JMH's own launcher, but results are
+ * written as JSON to {@code target/jmh-result.json} unless a result format or file is given,
+ * so runs of different releases can be compared. The GC profiler is on unless a profiler is
+ * given, so every score comes with its allocation rate ({@code gc.alloc.rate.norm}, bytes per
+ * operation); for builds that is the garbage one build leaves behind.
+ */
+public class BenchmarkMain {
+
+    private static final String DEFAULT_RESULT_FILE = "target/jmh-result.json";
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains("-rf")) {
+            options.add(0, "-rf");
+            options.add(1, "json");
+        }
+        if (!options.contains("-rff")) {
+            options.add(0, "-rff");
+            options.add(1, DEFAULT_RESULT_FILE);
+        }
+        if (!options.contains("-prof")) {
+            options.add(0, "-prof");
+            options.add(1, "gc");
+        }
+        Main.main(options.toArray(new String[0]));
+    }
+}
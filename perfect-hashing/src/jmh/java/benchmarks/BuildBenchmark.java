@@ -0,0 +1,119 @@
+package benchmarks;
+
+import dictionary.ShardedDictionary;
+import hashing.functions.IHashFunctionFactory;
+import hashing.tables.IPerfectHashTable;
+import hashing.tables.LinearSpaceHashTable;
+import hashing.tables.QuadraticSpaceHashTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to build a table from scratch. Each invocation is one full build, so the scores are
+ * single-shot times; divide the key count by them for keys per second.
+ * <p>
+ * The quadratic table needs n^2 slots and is only measured up to a few thousand keys. The sharded
+ * dictionary is measured loading a word file, parsing included, so its scores compare shard
+ * counts with each other rather than with the bare table builds.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class BuildBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class LinearKeys {
+        @Param({"1000", "10000", "100000", "1000000", "10000000"})
+        public int size;
+
+        @Param({"packed", "fingerprint"})
+        public String family;
+
+        List<String> keys;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            keys = Keys.distinct(size);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class QuadraticKeys {
+        @Param({"1000", "3000"})
+        public int quadraticSize;
+
+        @Param({"packed", "fingerprint"})
+        public String quadraticFamily;
+
+        List<String> keys;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            keys = Keys.distinct(quadraticSize);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ShardedKeys {
+        @Param({"100000", "1000000"})
+        public int shardedSize;
+
+        @Param({"1", "8"})
+        public int shards;
+
+        Path file;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            file = Files.createTempFile("sharded-keys", ".txt");
+            Files.write(file, Keys.distinct(shardedSize));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Benchmark
+    public IPerfectHashTable linear(LinearKeys state) {
+        IPerfectHashTable table = new LinearSpaceHashTable(state.family.equals("fingerprint")
+                ? IHashFunctionFactory.FINGERPRINT : IHashFunctionFactory.PACKED_MATRIX);
+        table.build(state.keys);
+        return table;
+    }
+
+    @Benchmark
+    public IPerfectHashTable quadratic(QuadraticKeys state) {
+        IPerfectHashTable table = new QuadraticSpaceHashTable(state.quadraticFamily.equals("fingerprint")
+                ? IHashFunctionFactory.FINGERPRINT : IHashFunctionFactory.PACKED_MATRIX);
+        table.build(state.keys);
+        return table;
+    }
+
+    @Benchmark
+    public ShardedDictionary sharded(ShardedKeys state) {
+        ShardedDictionary dictionary = new ShardedDictionary("linear", state.shards);
+        dictionary.batchInsert(state.file.toString());
+        return dictionary;
+    }
+}
@@ -0,0 +1,61 @@
+package benchmarks;
+
+import hashing.tables.IPerfectHashTable;
+import hashing.tables.LinearSpaceHashTable;
+import hashing.tables.QuadraticSpaceHashTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert/delete churn on a built table: every invocation inserts a fresh key and deletes it again,
+ * so the table size stays constant and the cost of occasional rebuilds is spread over the operations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class ChurnBenchmark {
+
+    private static final int FRESH_KEYS = 1 << 12; // power of two, see insertDelete()
+
+    @Param({"linear", "quadratic"})
+    public String type;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private IPerfectHashTable table;
+    private String[] fresh;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // n^2 slots: the quadratic table is capped at 1000 keys
+        int keyCount = type.equals("quadratic") ? Math.min(size, 1000) : size;
+        List<String> keys = Keys.distinct(keyCount);
+        table = type.equals("quadratic") ? new QuadraticSpaceHashTable() : new LinearSpaceHashTable();
+        table.build(keys);
+        fresh = Keys.absent(FRESH_KEYS, keys).toArray(new String[0]);
+    }
+
+    @Benchmark
+    public boolean insertDelete() {
+        String key = fresh[next++ & (FRESH_KEYS - 1)];
+        return table.insert(key) & table.delete(key);
+    }
+}
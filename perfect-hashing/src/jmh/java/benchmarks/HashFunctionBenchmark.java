@@ -0,0 +1,63 @@
+package benchmarks;
+
+import hashing.functions.FastHashFunction;
+import hashing.functions.IHashFunction;
+import hashing.functions.MatrixHashFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a single hash evaluation per key length.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class HashFunctionBenchmark {
+
+    private static final int TABLE_SIZE = 1 << 16;
+    private static final int KEY_BITS = 128;
+    private static final int KEYS = 1024; // power of two, see next()
+
+    @Param({"4", "8", "16", "32", "64"})
+    public int keyLength;
+
+    private IHashFunction matrix;
+    private IHashFunction fast;
+    private String[] keys;
+    private int next;
+
+    @Setup
+    public void setup() {
+        matrix = new MatrixHashFunction(TABLE_SIZE, KEY_BITS);
+        fast = new FastHashFunction(TABLE_SIZE);
+        keys = Keys.ofLength(KEYS, keyLength);
+    }
+
+    private String next() {
+        return keys[next++ & (KEYS - 1)];
+    }
+
+    @Benchmark
+    public int matrixHash() {
+        return matrix.hash(next());
+    }
+
+    @Benchmark
+    public int fastHash() {
+        return fast.hash(next());
+    }
+}
@@ -0,0 +1,71 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Deterministic key sets for the benchmarks.
+ */
+final class Keys {
+
+    private static final long SEED = 42;
+
+    private Keys() {
+    }
+
+    /**
+     * @return {@code count} distinct lowercase words of 5 to 14 characters
+     */
+    static List<String> distinct(int count) {
+        return distinct(count, SEED);
+    }
+
+    static List<String> distinct(int count, long seed) {
+        Random random = new Random(seed);
+        Set<String> keys = new LinkedHashSet<>(count * 2);
+        while (keys.size() < count) {
+            keys.add(word(random, 5 + random.nextInt(10)));
+        }
+        return new ArrayList<>(keys);
+    }
+
+    /**
+     * @return {@code count} words that are not in {@code present}
+     */
+    static List<String> absent(int count, List<String> present) {
+        Set<String> taken = new LinkedHashSet<>(present);
+        List<String> result = new ArrayList<>(count);
+        for (String word : distinct(count + present.size(), SEED + 1)) {
+            if (result.size() == count) {
+                break;
+            }
+            if (!taken.contains(word)) {
+                result.add(word);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return {@code count} random words of exactly {@code length} characters
+     */
+    static String[] ofLength(int count, int length) {
+        Random random = new Random(SEED);
+        String[] result = new String[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = word(random, length);
+        }
+        return result;
+    }
+
+    private static String word(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+}
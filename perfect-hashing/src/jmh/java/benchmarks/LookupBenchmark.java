@@ -0,0 +1,92 @@
+package benchmarks;
+
+import hashing.functions.IHashFunctionFactory;
+import hashing.tables.FilteredHashTable;
+import hashing.tables.IPerfectHashTable;
+import hashing.tables.LinearSpaceHashTable;
+import hashing.tables.QuadraticSpaceHashTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a single search for keys that are present (hit) and keys that are not (miss).
+ * Probe keys are drawn at random so consecutive lookups do not touch neighbouring slots.
+ * With a {@code filter} rate above 0 the table sits behind a Bloom filter of that false positive
+ * rate, which mostly speeds up misses.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class LookupBenchmark {
+
+    private static final int PROBES = 1 << 16; // power of two, see next()
+
+    @Param({"linear", "quadratic"})
+    public String type;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"packed", "fingerprint"})
+    public String family;
+
+    @Param({"0", "0.01"})
+    public double filter;
+
+    private IPerfectHashTable table;
+    private String[] hits;
+    private String[] misses;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // n^2 slots: the quadratic table is capped at 1000 keys, larger sizes reuse that table
+        int keyCount = type.equals("quadratic") ? Math.min(size, 1000) : size;
+        List<String> keys = Keys.distinct(keyCount);
+        IHashFunctionFactory factory = family.equals("fingerprint")
+                ? IHashFunctionFactory.FINGERPRINT : IHashFunctionFactory.PACKED_MATRIX;
+        table = type.equals("quadratic") ? new QuadraticSpaceHashTable(factory) : new LinearSpaceHashTable(factory);
+        table.build(keys);
+        if (filter > 0)
+            table = new FilteredHashTable(table, filter);
+
+        hits = probes(keys);
+        misses = probes(Keys.absent(Math.min(keyCount, PROBES), keys));
+    }
+
+    private static String[] probes(List<String> source) {
+        Random random = new Random(7);
+        String[] probes = new String[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            probes[i] = source.get(random.nextInt(source.size()));
+        }
+        return probes;
+    }
+
+    @Benchmark
+    public boolean hit() {
+        return table.search(hits[next++ & (PROBES - 1)]);
+    }
+
+    @Benchmark
+    public boolean miss() {
+        return table.search(misses[next++ & (PROBES - 1)]);
+    }
+}
@@ -1,6 +1,9 @@
 package cli;
 
 import dictionary.EnglishDictionary;
+import dictionary.KeyNormalizer;
+import hashing.functions.IHashFunctionFactory;
+import hashing.tables.TableMetrics;
 
 import java.util.Scanner;
 
@@ -35,9 +38,16 @@ public class DictionaryCommandLine {
   // Prompt
   private static final String PROMPT = "\u001B[1;93m"; // Bold Bright Yellow
 
+  // Name of the dictionary's metrics in JMX, e.g. in JConsole under hashing/TableMetrics
+  private static final String METRICS_NAME = "dictionary";
+
   public DictionaryCommandLine(EnglishDictionary dictionary) {
     this.dictionary = dictionary;
+    dictionary.setMetricsEnabled(true);
+    dictionary.getMetrics().register(METRICS_NAME);
     dictionary.build();
+    dictionary.getWordFileLoader().setProgressListener(progress ->
+        System.out.print("\r" + INFO + "  " + VALUE + progress + RESET));
     this.scanner = new Scanner(System.in);
   }
 
@@ -75,12 +85,21 @@ public class DictionaryCommandLine {
           case "batch-delete":
             batchDelete(arg);
             break;
+          case "save":
+            saveSnapshot(arg);
+            break;
+          case "load":
+            loadSnapshot(arg);
+            break;
           case "size":
             printSize();
             break;
           case "space":
             printSpace();
             break;
+          case "stats":
+            stats(arg);
+            break;
           case "help":
             printHelp();
             break;
@@ -150,6 +169,7 @@ public class DictionaryCommandLine {
 
     System.out.println(INFO + "Batch inserting words from file: " + VALUE + filename + RESET);
     int[] result = dictionary.batchInsert(filename);
+    System.out.println();
     System.out.println(SUCCESS + "✓ Successfully inserted " + VALUE + result[0] + SUCCESS + " words" + RESET +
         (result[1] > 0 ? ERROR + ", failed to insert " + VALUE + result[1] + ERROR + " words." + RESET : "."));
   }
@@ -162,10 +182,35 @@ public class DictionaryCommandLine {
 
     System.out.println(INFO + "Batch deleting words from file: " + VALUE + filename + RESET);
     int[] result = dictionary.batchDelete(filename);
+    System.out.println();
     System.out.println(SUCCESS + "✓ Successfully deleted " + VALUE + result[0] + SUCCESS + " words" + RESET +
         (result[1] > 0 ? ERROR + ", failed to delete " + VALUE + result[1] + ERROR + " words." + RESET : "."));
   }
 
+  private void saveSnapshot(String filename) {
+    if (filename.isEmpty()) {
+      System.out.println(ERROR + "Please specify a filename." + RESET);
+      return;
+    }
+
+    long start = System.nanoTime();
+    dictionary.save(filename);
+    System.out.printf(SUCCESS + "✓ Saved " + VALUE + "%d" + SUCCESS + " words to " + VALUE + "%s" + SUCCESS
+        + " in %.2f ms." + RESET + "%n", dictionary.size(), filename, (System.nanoTime() - start) / 1e6);
+  }
+
+  private void loadSnapshot(String filename) {
+    if (filename.isEmpty()) {
+      System.out.println(ERROR + "Please specify a filename." + RESET);
+      return;
+    }
+
+    long start = System.nanoTime();
+    dictionary.load(filename);
+    System.out.printf(SUCCESS + "✓ Loaded " + VALUE + "%d" + SUCCESS + " words from " + VALUE + "%s" + SUCCESS
+        + " in %.2f ms." + RESET + "%n", dictionary.size(), filename, (System.nanoTime() - start) / 1e6);
+  }
+
   private void printSize() {
     System.out.println(INFO + "Dictionary size: " + VALUE + dictionary.size() + INFO + " words" + RESET);
   }
@@ -174,6 +219,33 @@ public class DictionaryCommandLine {
     System.out.println(INFO + "Dictionary space usage: " + VALUE + dictionary.getSpace() + INFO + " units" + RESET);
   }
 
+  private void stats(String arg) {
+    TableMetrics metrics = dictionary.getMetrics();
+    switch (arg.toLowerCase()) {
+      case "":
+        System.out.println(HEADER + "Table metrics" + (dictionary.isMetricsEnabled() ? "" : " (recording is off)") + ":" + RESET);
+        for (String line : metrics.toString().split("\\R")) {
+          System.out.println(INFO + "  " + VALUE + line + RESET);
+        }
+        break;
+      case "on":
+        dictionary.setMetricsEnabled(true);
+        System.out.println(SUCCESS + "✓ Recording table metrics." + RESET);
+        break;
+      case "off":
+        dictionary.setMetricsEnabled(false);
+        System.out.println(SUCCESS + "✓ Stopped recording table metrics." + RESET);
+        break;
+      case "reset":
+        metrics.reset();
+        System.out.println(SUCCESS + "✓ Table metrics reset." + RESET);
+        break;
+      default:
+        System.out.println(ERROR + "Usage: stats [on|off|reset]" + RESET);
+        break;
+    }
+  }
+
   private void printHelp() {
     System.out.println(HEADER + "Available Commands:" + RESET);
     System.out.println(COMMAND + "  insert " + VALUE + "<word>" + RESET + "     - Insert a word into the dictionary");
@@ -181,8 +253,11 @@ public class DictionaryCommandLine {
     System.out.println(COMMAND + "  search " + VALUE + "<word>" + RESET + "     - Search for a word in the dictionary");
     System.out.println(COMMAND + "  batch-insert " + VALUE + "<file>" + RESET + " - Insert words from file");
     System.out.println(COMMAND + "  batch-delete " + VALUE + "<file>" + RESET + " - Delete words from file");
+    System.out.println(COMMAND + "  save " + VALUE + "<file>" + RESET + "       - Save the built dictionary to a snapshot");
+    System.out.println(COMMAND + "  load " + VALUE + "<file>" + RESET + "       - Load a dictionary snapshot");
     System.out.println(COMMAND + "  size" + RESET + "              - Print the current dictionary size");
     System.out.println(COMMAND + "  space" + RESET + "             - Print the current space used by the dictionary");
+    System.out.println(COMMAND + "  stats " + VALUE + "[on|off|reset]" + RESET + " - Print lookup, probe and rebuild metrics");
     System.out.println(COMMAND + "  help" + RESET + "              - Print this help message");
     System.out.println(COMMAND + "  exit" + RESET + "              - Exit the program");
     System.out.println();
@@ -200,11 +275,15 @@ public class DictionaryCommandLine {
     System.out.println("║  Perfect Hashing Implementation   ║");
     System.out.println("╚═══════════════════════════════════╝" + RESET);
 
-    while (!hashTableType.equals("linear") && !hashTableType.equals("quadratic")) {
+    while (hashTableType.isEmpty()) {
       System.out.println(INFO + "Select hash table type:" + RESET);
       System.out.println(COMMAND + "1. Linear space hash table (O(n) space complexity)");
-      System.out.println("2. Quadratic space hash table (O(n²) space complexity)" + RESET);
-      System.out.print(PROMPT + "Enter your choice (1 or 2): " + RESET);
+      System.out.println("2. Quadratic space hash table (O(n²) space complexity)");
+      System.out.println("3. Minimal perfect hash table (n slots, read-only, updates rebuild)");
+      System.out.println("4. Arena hash table (O(n) space, keys stored as bytes, fast batch lookups)");
+      System.out.println("5. Off-heap hash table (O(n) space outside the heap, updates rebuild)");
+      System.out.println("6. Dynamic perfect hash table (O(n) space, two-probe lookups, local rebuilds)" + RESET);
+      System.out.print(PROMPT + "Enter your choice (1-6): " + RESET);
 
       String choice = startupScanner.nextLine().trim();
 
@@ -212,13 +291,25 @@ public class DictionaryCommandLine {
         hashTableType = "linear";
       } else if (choice.equals("2")) {
         hashTableType = "quadratic";
+      } else if (choice.equals("3")) {
+        hashTableType = "minimal";
+      } else if (choice.equals("4")) {
+        hashTableType = "arena";
+      } else if (choice.equals("5")) {
+        hashTableType = "offheap";
+      } else if (choice.equals("6")) {
+        hashTableType = "dynamic";
       } else {
-        System.out.println(ERROR + "Invalid choice. Please enter 1 or 2." + RESET);
+        System.out.println(ERROR + "Invalid choice. Please enter a number from 1 to 6." + RESET);
       }
     }
 
+    System.out.print(PROMPT + "Ignore letter case (Apple = apple)? [y/N]: " + RESET);
+    boolean caseFold = startupScanner.nextLine().trim().equalsIgnoreCase("y");
+    KeyNormalizer normalizer = caseFold ? KeyNormalizer.CASE_FOLD : KeyNormalizer.NFC;
+
     System.out.println(INFO + "Initializing " + VALUE + hashTableType + INFO + " space perfect hash table..." + RESET);
-    EnglishDictionary dictionary = new EnglishDictionary(hashTableType);
+    EnglishDictionary dictionary = new EnglishDictionary(hashTableType, IHashFunctionFactory.PACKED_MATRIX, normalizer);
     DictionaryCommandLine cli = new DictionaryCommandLine(dictionary);
     cli.start();
 
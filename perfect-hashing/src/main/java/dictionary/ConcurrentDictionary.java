@@ -0,0 +1,450 @@
+package dictionary;
+
+import hashing.functions.IHashFunctionFactory;
+import hashing.tables.IPerfectHashTable;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Thread-safe dictionary for read-heavy workloads.
+ * <p>
+ * Readers never lock: every lookup reads one volatile reference to an immutable {@link Snapshot}
+ * (a built table that is never touched again, plus small sets of words added and removed since
+ * it was built) and answers from it, so {@link #search(String)} is wait-free.
+ * <p>
+ * Writers are serialized. Each mutation copies the delta sets and publishes a new snapshot, so it is
+ * visible to every search that starts after it returns. Once the delta grows past its limit the
+ * writer builds a fresh table from the merged keys and publishes it with an empty delta; readers
+ * keep using the previous snapshot until the swap.
+ * <p>
+ * With a {@link RebuildScheduler} set, that rebuild runs in the background instead. Writers keep
+ * adding to the delta, which acts as the overflow for new keys, and lookups keep checking it until
+ * the rebuilt table is published together with whatever changed while it was being built.
+ */
+public class ConcurrentDictionary implements IDictionary {
+
+    private static final int DEFAULT_MAX_DELTA = 1024;
+    // while a background rebuild runs, writers wait for it once the delta is this many times its limit
+    private static final int MAX_OVERFLOW_FACTOR = 4;
+
+    private final Supplier<IPerfectHashTable> tableFactory;
+    private final int maxDelta;
+    private final Object writeLock = new Object();
+    private final KeyNormalizer normalizer;
+    private final WordFileLoader loader = new WordFileLoader();
+    private volatile Snapshot snapshot;
+    private volatile RebuildScheduler rebuildScheduler;
+    private CompletableFuture<Void> pendingRebuild; // guarded by writeLock, null if no rebuild is running
+
+    public ConcurrentDictionary(String type) {
+        this(() -> EnglishDictionary.newTable(type, IHashFunctionFactory.PACKED_MATRIX), DEFAULT_MAX_DELTA);
+    }
+
+    /**
+     * @param tableFactory creates the empty tables that rebuilt snapshots are built into
+     * @param maxDelta     number of pending inserts and deletes that triggers a rebuild
+     */
+    public ConcurrentDictionary(Supplier<IPerfectHashTable> tableFactory, int maxDelta) {
+        this(tableFactory, maxDelta, KeyNormalizer.NFC);
+    }
+
+    /**
+     * @param normalizer applied to every word stored, deleted or looked up, including batch files
+     */
+    public ConcurrentDictionary(Supplier<IPerfectHashTable> tableFactory, int maxDelta, KeyNormalizer normalizer) {
+        if (tableFactory == null) {
+            throw new IllegalArgumentException("Table factory cannot be null");
+        }
+        if (maxDelta < 0) {
+            throw new IllegalArgumentException("Maximum delta cannot be negative");
+        }
+        if (normalizer == null) {
+            throw new IllegalArgumentException("Normalizer cannot be null");
+        }
+        this.tableFactory = tableFactory;
+        this.maxDelta = maxDelta;
+        this.normalizer = normalizer;
+        loader.setNormalizer(normalizer);
+        build();
+    }
+
+    /**
+     * An immutable view of the dictionary: nothing reachable from it is modified after publication.
+     */
+    private static final class Snapshot {
+        private final IPerfectHashTable table;
+        private final Set<String> added;
+        private final Set<String> removed;
+        private final int size;
+
+        Snapshot(IPerfectHashTable table, Set<String> added, Set<String> removed) {
+            this.table = table;
+            this.added = added;
+            this.removed = removed;
+            this.size = table.size() + added.size() - removed.size();
+        }
+
+        boolean contains(String word) {
+            if (added.contains(word)) {
+                return true;
+            }
+            return !removed.contains(word) && table.search(word);
+        }
+
+        /**
+         * @return The words this snapshot holds, computed from the table and the delta
+         */
+        Set<String> keys() {
+            Set<String> keys = new HashSet<>(table.toList());
+            keys.removeAll(removed);
+            keys.addAll(added);
+            return keys;
+        }
+
+        boolean contains(CharSequence word) {
+            // the delta sets can only be probed with a String, the table with anything
+            if (added.isEmpty() && removed.isEmpty()) {
+                return table.contains(word);
+            }
+            return contains(word.toString());
+        }
+
+        int deltaSize() {
+            return added.size() + removed.size();
+        }
+    }
+
+    @Override
+    public void build() {
+        IPerfectHashTable table = tableFactory.get();
+        table.build(new ArrayList<>());
+        synchronized (writeLock) {
+            snapshot = new Snapshot(table, Collections.emptySet(), Collections.emptySet());
+        }
+    }
+
+    @Override
+    public boolean insert(String word) {
+        if (word == null || word.isEmpty()) {
+            return false;
+        }
+        word = normalizer.normalize(word);
+        awaitOverflowRoom();
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+            if (current.contains(word)) {
+                return false;
+            }
+            Set<String> added = current.added;
+            Set<String> removed = current.removed;
+            if (removed.contains(word)) {
+                removed = copyWithout(removed, word); // still in the table, just hidden
+            } else {
+                added = copyWith(added, word);
+            }
+            publish(current.table, added, removed);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean delete(String word) {
+        if (word == null || word.isEmpty()) {
+            return false;
+        }
+        word = normalizer.normalize(word);
+        awaitOverflowRoom();
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+            if (!current.contains(word)) {
+                return false;
+            }
+            Set<String> added = current.added;
+            Set<String> removed = current.removed;
+            if (added.contains(word)) {
+                added = copyWithout(added, word);
+            } else {
+                removed = copyWith(removed, word);
+            }
+            publish(current.table, added, removed);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean search(String word) {
+        if (word == null || word.isEmpty()) {
+            return false;
+        }
+        return snapshot.contains(normalizer.normalize(word));
+    }
+
+    /**
+     * Does not allocate while no inserts or deletes are pending, for words that are already normalized,
+     * provided the table's hash family does not.
+     */
+    @Override
+    public boolean contains(CharSequence word) {
+        if (word == null || word.length() == 0) {
+            return false;
+        }
+        return snapshot.contains(normalizer.isNormalized(word) ? word : normalizer.normalize(word));
+    }
+
+    /**
+     * Applies the whole file as one batch and publishes a single rebuilt table.
+     */
+    @Override
+    public int[] batchInsert(String filePath) {
+        List<String> words = readWords(filePath);
+        int[] result = new int[2];
+        synchronized (writeLock) {
+            Set<String> keys = snapshot.keys();
+            for (String word : words) {
+                if (keys.add(word))
+                    result[0]++;
+                else
+                    result[1]++;
+            }
+            rebuild(keys);
+        }
+        return result;
+    }
+
+    /**
+     * Applies the whole file as one batch and publishes a single rebuilt table.
+     */
+    @Override
+    public int[] batchDelete(String filePath) {
+        List<String> words = readWords(filePath);
+        int[] result = new int[2];
+        synchronized (writeLock) {
+            Set<String> keys = snapshot.keys();
+            for (String word : words) {
+                if (keys.remove(word))
+                    result[0]++;
+                else
+                    result[1]++;
+            }
+            rebuild(keys);
+        }
+        return result;
+    }
+
+    /**
+     * Answers every word from the same snapshot, in one batch if no updates are pending.
+     */
+    @Override
+    public boolean[] searchAll(List<? extends CharSequence> words) {
+        Snapshot current = snapshot;
+        List<? extends CharSequence> normalized = normalizer.normalizeAll(words);
+        if (current.deltaSize() == 0) {
+            boolean[] found = current.table.searchAll(normalized);
+            for (int i = 0; i < found.length; i++) {
+                if (found[i] && words.get(i).length() == 0)
+                    found[i] = false;
+            }
+            return found;
+        }
+        boolean[] found = new boolean[words.size()];
+        for (int i = 0; i < found.length; i++) {
+            CharSequence word = normalized.get(i);
+            found[i] = word != null && word.length() > 0 && current.contains(word);
+        }
+        return found;
+    }
+
+    @Override
+    public int size() {
+        return snapshot.size;
+    }
+
+    @Override
+    public int getSpace() {
+        Snapshot current = snapshot;
+        return current.table.getSpace() + current.deltaSize();
+    }
+
+    /**
+     * @return The loader used by {@link #batchInsert(String)} and {@link #batchDelete(String)}
+     */
+    public WordFileLoader getWordFileLoader() {
+        return loader;
+    }
+
+    /**
+     * @return Number of inserts and deletes not yet folded into the published table
+     */
+    public int getPendingDelta() {
+        return snapshot.deltaSize();
+    }
+
+    /**
+     * @return true while a background rebuild is building a table that has not been published yet
+     */
+    public boolean isRebuilding() {
+        synchronized (writeLock) {
+            return pendingRebuild != null;
+        }
+    }
+
+    /**
+     * Waits until the background rebuild running now, if any, has been published or has failed.
+     * A failed rebuild leaves the dictionary intact and is retried by a later update.
+     */
+    public void awaitRebuild() {
+        CompletableFuture<Void> rebuild;
+        synchronized (writeLock) {
+            rebuild = pendingRebuild;
+        }
+        if (rebuild == null) {
+            return;
+        }
+        try {
+            rebuild.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw e;
+        }
+    }
+
+    public RebuildScheduler getRebuildScheduler() {
+        return rebuildScheduler;
+    }
+
+    /**
+     * Sets where rebuilds triggered by the delta limit run, or null (the default) to run them on the
+     * writer that triggered them. Batch operations always rebuild on the caller's thread.
+     */
+    public void setRebuildScheduler(RebuildScheduler rebuildScheduler) {
+        this.rebuildScheduler = rebuildScheduler;
+    }
+
+    // Bounds the overflow: a writer that finds it full waits for the rebuild that will empty it
+    private void awaitOverflowRoom() {
+        if (rebuildScheduler != null && snapshot.deltaSize() >= (long) MAX_OVERFLOW_FACTOR * Math.max(maxDelta, 1)) {
+            try {
+                awaitRebuild();
+            } catch (RuntimeException e) {
+                // the rebuild is retried after this update, which is still applied
+            }
+        }
+    }
+
+    // Must hold writeLock
+    private void publish(IPerfectHashTable table, Set<String> added, Set<String> removed) {
+        if (added.size() + removed.size() <= maxDelta) {
+            snapshot = new Snapshot(table, added, removed);
+            return;
+        }
+        RebuildScheduler scheduler = rebuildScheduler;
+        if (scheduler == null) {
+            rebuild(new Snapshot(table, added, removed).keys());
+            return;
+        }
+        snapshot = new Snapshot(table, added, removed);
+        if (pendingRebuild == null) {
+            scheduleRebuild(scheduler, snapshot);
+        }
+    }
+
+    // Must hold writeLock. Builds a table with the keys of base and publishes it, unless the table was
+    // replaced in the meantime; changes made since base are carried over as the new delta
+    private void scheduleRebuild(RebuildScheduler scheduler, Snapshot base) {
+        CompletableFuture<Void> rebuild = new CompletableFuture<>();
+        pendingRebuild = rebuild;
+        scheduler.submit(() -> {
+            Throwable failure = null;
+            try {
+                IPerfectHashTable table = tableFactory.get();
+                table.build(new ArrayList<>(base.keys()));
+                synchronized (writeLock) {
+                    pendingRebuild = null;
+                    if (snapshot.table == base.table) {
+                        rebase(base, table);
+                    }
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+            } catch (Error e) {
+                failure = e;
+                throw e;
+            } finally {
+                // cleared whatever went wrong, or no later update would ever schedule a rebuild again
+                synchronized (writeLock) {
+                    if (pendingRebuild == rebuild) {
+                        pendingRebuild = null;
+                    }
+                }
+                if (failure == null) {
+                    rebuild.complete(null);
+                } else {
+                    rebuild.completeExceptionally(failure);
+                }
+            }
+        }, base.size);
+    }
+
+    // Must hold writeLock. Only words in a delta of base or of the current snapshot can differ
+    // between base's keys, now held by table, and the current keys
+    private void rebase(Snapshot base, IPerfectHashTable table) {
+        Snapshot current = snapshot;
+        Set<String> changed = new HashSet<>(current.added);
+        changed.addAll(current.removed);
+        changed.addAll(base.added);
+        changed.addAll(base.removed);
+
+        Set<String> added = new HashSet<>();
+        Set<String> removed = new HashSet<>();
+        for (String word : changed) {
+            boolean inTable = base.contains(word);
+            boolean present = current.contains(word);
+            if (present && !inTable)
+                added.add(word);
+            else if (!present && inTable)
+                removed.add(word);
+        }
+        publish(table, Collections.unmodifiableSet(added), Collections.unmodifiableSet(removed));
+    }
+
+    // Must hold writeLock
+    private void rebuild(Set<String> keys) {
+        IPerfectHashTable table = tableFactory.get();
+        table.build(new ArrayList<>(keys));
+        snapshot = new Snapshot(table, Collections.emptySet(), Collections.emptySet());
+    }
+
+    private static Set<String> copyWith(Set<String> set, String word) {
+        Set<String> copy = new HashSet<>(set);
+        copy.add(word);
+        return Collections.unmodifiableSet(copy);
+    }
+
+    private static Set<String> copyWithout(Set<String> set, String word) {
+        Set<String> copy = new HashSet<>(set);
+        copy.remove(word);
+        return Collections.unmodifiableSet(copy);
+    }
+
+    // Parsed outside the write lock, so readers and other writers are not held up by the file
+    private List<String> readWords(String filePath) {
+        try {
+            return loader.readAll(Paths.get(filePath));
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+            throw new RuntimeException(e);
+        }
+    }
+}
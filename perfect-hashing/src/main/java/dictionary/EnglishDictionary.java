@@ -1,33 +1,85 @@
 package dictionary;
 
+import hashing.functions.IHashFunctionFactory;
+import hashing.tables.ArenaHashTable;
+import hashing.tables.DynamicPerfectHashTable;
+import hashing.tables.FilteredHashTable;
+import hashing.tables.HashTableSnapshot;
 import hashing.tables.IPerfectHashTable;
+import hashing.tables.InstrumentedHashTable;
 import hashing.tables.LinearSpaceHashTable;
+import hashing.tables.MinimalPerfectHashTable;
+import hashing.tables.OffHeapHashTable;
 import hashing.tables.QuadraticSpaceHashTable;
+import hashing.tables.TableMetrics;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+/**
+ * Single-threaded dictionary over one of the perfect hash tables.
+ * <p>
+ * Every word goes through a {@link KeyNormalizer} before it reaches the table. By default words are
+ * case-sensitive and only canonically equivalent Unicode spellings are merged; pass
+ * {@link KeyNormalizer#CASE_FOLD} to ignore case as well.
+ */
 public class EnglishDictionary implements IDictionary {
-    private IPerfectHashTable hashTable;
+    // used to pre-size the de-duplication set of a batch insert from the file length
+    private static final int AVERAGE_LINE_BYTES = 8;
+    // a batch deleting at least 1 / BULK_DELETE_FRACTION of the words is one build instead
+    private static final int BULK_DELETE_FRACTION = 4;
+
+    private IPerfectHashTable table; // the table itself, as saved to snapshots
+    private IPerfectHashTable hashTable; // the table behind the enabled lookup filter and metrics
+    private double lookupFilterRate; // 0 for no filter
+    private boolean metricsEnabled;
+    private final KeyNormalizer normalizer;
+    private final WordFileLoader loader = new WordFileLoader();
+    private final TableMetrics metrics = new TableMetrics();
 
     public EnglishDictionary(String type) {
+        this(type, IHashFunctionFactory.PACKED_MATRIX);
+    }
+
+    public EnglishDictionary(String type, IHashFunctionFactory hashFunctionFactory) {
+        this(type, hashFunctionFactory, KeyNormalizer.NFC);
+    }
+
+    /**
+     * @param normalizer applied to every word stored, deleted or looked up, including batch files
+     */
+    public EnglishDictionary(String type, IHashFunctionFactory hashFunctionFactory, KeyNormalizer normalizer) {
+        if (normalizer == null) {
+            throw new IllegalArgumentException("Normalizer cannot be null");
+        }
+        table = newTable(type, metrics.countingFactory(hashFunctionFactory));
+        hashTable = table;
+        this.normalizer = normalizer;
+        loader.setNormalizer(normalizer);
+    }
+
+    static IPerfectHashTable newTable(String type, IHashFunctionFactory hashFunctionFactory) {
         if (type.equalsIgnoreCase("quadratic"))
-            hashTable = new QuadraticSpaceHashTable();
+            return new QuadraticSpaceHashTable(hashFunctionFactory);
         else if (type.equalsIgnoreCase("linear"))
-            hashTable = new LinearSpaceHashTable();
+            return new LinearSpaceHashTable(hashFunctionFactory);
+        else if (type.equalsIgnoreCase("minimal"))
+            return new MinimalPerfectHashTable();
+        else if (type.equalsIgnoreCase("arena"))
+            return new ArenaHashTable();
+        else if (type.equalsIgnoreCase("dynamic"))
+            return new DynamicPerfectHashTable(hashFunctionFactory);
+        else if (type.equalsIgnoreCase("offheap"))
+            return new OffHeapHashTable();
         else
             throw new IllegalArgumentException("Unknown hash table type: " + type);
     }
 
-    /*
-     * !
-     * ! I DO NOT KNOW IF WORDS ARE KEY SENSITIVE OR NOT
-     * !
-     */
-
     @Override
     public void build() {
         List<String> keys = new ArrayList<>();
@@ -39,7 +91,7 @@ public class EnglishDictionary implements IDictionary {
         if (word == null || word.isEmpty()) {
             return false;
         }
-        return hashTable.insert(word);
+        return hashTable.insert(normalizer.normalize(word));
     }
 
     @Override
@@ -47,7 +99,7 @@ public class EnglishDictionary implements IDictionary {
         if (word == null || word.isEmpty()) {
             return false;
         }
-        return hashTable.delete(word);
+        return hashTable.delete(normalizer.normalize(word));
     }
 
     @Override
@@ -55,42 +107,110 @@ public class EnglishDictionary implements IDictionary {
         if (word == null || word.isEmpty()) {
             return false;
         }
-        return hashTable.search(word);
+        return hashTable.search(normalizer.normalize(word));
+    }
+
+    /**
+     * Lets the table interleave the lookups; empty words are never in the dictionary.
+     */
+    @Override
+    public boolean[] searchAll(List<? extends CharSequence> words) {
+        boolean[] found = hashTable.searchAll(normalizer.normalizeAll(words));
+        for (int i = 0; i < found.length; i++) {
+            if (found[i] && words.get(i).length() == 0)
+                found[i] = false;
+        }
+        return found;
+    }
+
+    /**
+     * Does not allocate for words that are already normalized, e.g. plain lower-case ASCII,
+     * provided the table's hash family does not.
+     */
+    @Override
+    public boolean contains(CharSequence word) {
+        if (word == null || word.length() == 0) {
+            return false;
+        }
+        return hashTable.contains(normalizer.isNormalized(word) ? word : normalizer.normalize(word));
     }
 
+    /**
+     * Streams the file into a set pre-sized from the file length, merges it with the keys
+     * already in the table and builds the table once, instead of inserting word by word.
+     */
     @Override
     public int[] batchInsert(String filePath) {
         int[] result = new int[2];
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (!line.isEmpty())
-                    if (insert(line))
+        List<String> existing = hashTable.toList();
+        long estimatedWords = new File(filePath).length() / AVERAGE_LINE_BYTES;
+        Set<String> keys = new HashSet<>((int) Math.min(Integer.MAX_VALUE,
+                (existing.size() + estimatedWords) * 4 / 3 + 1));
+        keys.addAll(existing);
+
+        try {
+            loader.forEachChunk(Paths.get(filePath), words -> {
+                for (String word : words) {
+                    if (keys.add(word))
                         result[0]++;
                     else
                         result[1]++;
-            }
+                }
+            });
         } catch (IOException e) {
             System.err.println("Error reading file: " + e.getMessage());
             throw new RuntimeException(e);
         }
+
+        if (result[0] > 0)
+            hashTable.build(new ArrayList<>(keys));
         return result;
     }
 
+    /**
+     * Deletes the file's words one by one, or, if {@link #deletesInBulk} says so, removes them
+     * from the keys in the table and builds the table once.
+     */
     @Override
     public int[] batchDelete(String filePath) {
+        long estimatedWords = new File(filePath).length() / AVERAGE_LINE_BYTES;
+        if (!deletesInBulk(table, estimatedWords)) {
+            return deleteEach(filePath);
+        }
+
+        int[] result = new int[2];
+        Set<String> keys = new HashSet<>(hashTable.toList());
+
+        try {
+            loader.forEachChunk(Paths.get(filePath), words -> {
+                for (String word : words) {
+                    if (keys.remove(word))
+                        result[0]++;
+                    else
+                        result[1]++;
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+            throw new RuntimeException(e);
+        }
+
+        if (result[0] > 0)
+            hashTable.build(new ArrayList<>(keys));
+        return result;
+    }
+
+    private int[] deleteEach(String filePath) {
         int[] result = new int[2];
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (!line.isEmpty())
-                    if (delete(line))
+        try {
+            loader.forEachChunk(Paths.get(filePath), words -> {
+                for (String word : words) {
+                    if (hashTable.delete(word))
                         result[0]++;
                     else
                         result[1]++;
-            }
+                }
+            });
         } catch (IOException e) {
             System.err.println("Error reading file: " + e.getMessage());
             throw new RuntimeException(e);
@@ -98,6 +218,112 @@ public class EnglishDictionary implements IDictionary {
         return result;
     }
 
+    /**
+     * @return Whether deleting about the given number of words from the table is better done by
+     *         building it once from the remaining words: always for tables whose every delete
+     *         rebuilds them, otherwise only when the words are a large part of the table, since
+     *         the other tables delete in O(1) or by rebuilding one bucket
+     */
+    static boolean deletesInBulk(IPerfectHashTable table, long words) {
+        return table instanceof MinimalPerfectHashTable || words * BULK_DELETE_FRACTION >= table.size();
+    }
+
+    /**
+     * Writes the built table to a snapshot file that {@link #load(String)} can map back
+     * without rebuilding any hash function. Only linear and quadratic tables can be saved.
+     */
+    public void save(String filePath) {
+        try {
+            HashTableSnapshot.save(table, Paths.get(filePath));
+        } catch (IOException e) {
+            System.err.println("Error writing snapshot: " + e.getMessage());
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Replaces the current table with the one stored in a snapshot file.
+     */
+    public void load(String filePath) {
+        try {
+            table = HashTableSnapshot.load(Paths.get(filePath));
+            wrap();
+        } catch (IOException e) {
+            System.err.println("Error reading snapshot: " + e.getMessage());
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Starts or stops recording lookups, builds and rebuilds in {@link #getMetrics()}. While off,
+     * the table is used directly and lookups pay nothing for metrics. Off by default.
+     */
+    public void setMetricsEnabled(boolean enabled) {
+        if (enabled != metricsEnabled) {
+            metricsEnabled = enabled;
+            wrap();
+        }
+    }
+
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    /**
+     * Puts a Bloom filter in front of the table that answers most lookups of absent words, for
+     * workloads like spell checking where most queries miss. The filter costs about
+     * {@code 1.44 * log2(1 / rate)} bits per word and is built right away from the current words.
+     *
+     * @param falsePositiveRate fraction of absent words that still reach the table, in (0, 1),
+     *                          or 0 to remove the filter (the default)
+     */
+    public void setLookupFilter(double falsePositiveRate) {
+        if (falsePositiveRate != 0 && !(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1, or 0 for no filter");
+        }
+        lookupFilterRate = falsePositiveRate;
+        wrap();
+    }
+
+    /**
+     * @return The lookup filter's false positive rate, or 0 if there is no filter
+     */
+    public double getLookupFilterRate() {
+        return lookupFilterRate;
+    }
+
+    /**
+     * @return Metrics of this dictionary's table, kept across snapshot loads and while disabled
+     */
+    public TableMetrics getMetrics() {
+        return metrics;
+    }
+
+    // Puts the enabled layers around the table: metrics outside, so they see what the filter saves
+    private void wrap() {
+        IPerfectHashTable wrapped = table;
+        if (lookupFilterRate > 0)
+            wrapped = new FilteredHashTable(wrapped, lookupFilterRate);
+        if (metricsEnabled)
+            wrapped = new InstrumentedHashTable(wrapped, metrics);
+        hashTable = wrapped;
+    }
+
+    /**
+     * @return The loader used by {@link #batchInsert(String)} and {@link #batchDelete(String)},
+     *         to set its parallelism or follow its progress
+     */
+    public WordFileLoader getWordFileLoader() {
+        return loader;
+    }
+
+    /**
+     * @return How words are normalized before they are stored or looked up
+     */
+    public KeyNormalizer getKeyNormalizer() {
+        return normalizer;
+    }
+
     @Override
     public int size() {
         return hashTable.size();
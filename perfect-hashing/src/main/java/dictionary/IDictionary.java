@@ -1,5 +1,7 @@
 package dictionary;
 
+import java.util.List;
+
 public interface IDictionary {
 
     void build();
@@ -10,6 +12,27 @@ public interface IDictionary {
 
     boolean search(String word);
 
+    /**
+     * Same as {@link #search(String)} for any character sequence, so a word can be looked up
+     * straight from a larger buffer without building a String first.
+     */
+    default boolean contains(CharSequence word) {
+        return word != null && search(word.toString());
+    }
+
+    /**
+     * Looks up many words at once, e.g. all tokens of a document.
+     *
+     * @return One entry per word, true if that word is in the dictionary
+     */
+    default boolean[] searchAll(List<? extends CharSequence> words) {
+        boolean[] found = new boolean[words.size()];
+        for (int i = 0; i < found.length; i++) {
+            found[i] = contains(words.get(i));
+        }
+        return found;
+    }
+
     /**
      * @return int[2] array with [0]=number of words inserted, [1]=number of
      *         duplicates
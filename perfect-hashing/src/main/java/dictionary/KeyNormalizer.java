@@ -0,0 +1,108 @@
+package dictionary;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.UnaryOperator;
+
+/**
+ * Turns words into the form the dictionary stores and looks up, so spellings that should be the same
+ * word are the same key.
+ * <p>
+ * Two independent steps, applied in this order:
+ * <ul>
+ *   <li>Case folding: upper-casing then lower-casing in {@link Locale#ROOT}, so "Apple", "APPLE" and
+ *   "apple" are one word, and so are "STRASSE" and "straße".</li>
+ *   <li>NFC: canonical composition, so "é" typed as 'e' plus a combining accent equals the precomposed
+ *   "é".</li>
+ * </ul>
+ * A dictionary normalizes each word once when it is stored and once per query. Instances are immutable
+ * and can be shared between threads.
+ */
+public final class KeyNormalizer implements UnaryOperator<String> {
+
+    /** Keeps words exactly as given. */
+    public static final KeyNormalizer NONE = new KeyNormalizer(false, false);
+
+    /** Case-sensitive, but canonically equivalent spellings match. The dictionaries' default. */
+    public static final KeyNormalizer NFC = new KeyNormalizer(false, true);
+
+    /** Case-insensitive, and canonically equivalent spellings match. */
+    public static final KeyNormalizer CASE_FOLD = new KeyNormalizer(true, true);
+
+    // Characters below U+0300 are never combining marks, so text made only of them is already NFC
+    private static final char FIRST_COMBINING_MARK = '\u0300';
+
+    private final boolean caseFold;
+    private final boolean nfc;
+
+    public KeyNormalizer(boolean caseFold, boolean nfc) {
+        this.caseFold = caseFold;
+        this.nfc = nfc;
+    }
+
+    /**
+     * Cheap check that never allocates. It may return false for a key that is in fact normalized,
+     * but never true for one that is not.
+     */
+    public boolean isNormalized(CharSequence key) {
+        if (!caseFold && !nfc)
+            return true;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (caseFold ? c >= 0x80 || (c >= 'A' && c <= 'Z') : c >= FIRST_COMBINING_MARK)
+                return false;
+        }
+        return true;
+    }
+
+    public String normalize(CharSequence key) {
+        String s = key.toString();
+        if (isNormalized(s))
+            return s;
+        if (caseFold)
+            s = s.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+        if (nfc)
+            s = Normalizer.normalize(s, Normalizer.Form.NFC);
+        return s;
+    }
+
+    /**
+     * @return The keys themselves if all of them are normalized already, otherwise a normalized copy.
+     *         Null entries stay null.
+     */
+    public List<? extends CharSequence> normalizeAll(List<? extends CharSequence> keys) {
+        int first = 0;
+        while (first < keys.size() && (keys.get(first) == null || isNormalized(keys.get(first))))
+            first++;
+        if (first == keys.size())
+            return keys;
+
+        List<CharSequence> normalized = new ArrayList<>(keys);
+        for (int i = first; i < normalized.size(); i++) {
+            CharSequence key = normalized.get(i);
+            if (key != null && !isNormalized(key))
+                normalized.set(i, normalize(key));
+        }
+        return normalized;
+    }
+
+    @Override
+    public String apply(String key) {
+        return normalize(key);
+    }
+
+    public boolean isCaseFold() {
+        return caseFold;
+    }
+
+    public boolean isNfc() {
+        return nfc;
+    }
+
+    @Override
+    public String toString() {
+        return caseFold ? (nfc ? "case-fold + NFC" : "case-fold") : (nfc ? "NFC" : "none");
+    }
+}
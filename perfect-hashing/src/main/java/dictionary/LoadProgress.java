@@ -0,0 +1,64 @@
+package dictionary;
+
+/**
+ * How far a {@link WordFileLoader} has got through a file, and how fast.
+ */
+public class LoadProgress {
+
+    private static final double MEGABYTE = 1024 * 1024;
+
+    private final long bytesRead;
+    private final long totalBytes;
+    private final long words;
+    private final long elapsedNanos;
+
+    LoadProgress(long bytesRead, long totalBytes, long words, long elapsedNanos) {
+        this.bytesRead = bytesRead;
+        this.totalBytes = totalBytes;
+        this.words = words;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return Bytes of the file parsed and handed on so far
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return Non-empty words handed on so far, duplicates included
+     */
+    public long getWords() {
+        return words;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return Fraction of the file done, from 0 to 1
+     */
+    public double getFraction() {
+        return totalBytes == 0 ? 1 : (double) bytesRead / totalBytes;
+    }
+
+    public double getMegabytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : bytesRead / MEGABYTE / (elapsedNanos / 1e9);
+    }
+
+    public double getWordsPerSecond() {
+        return elapsedNanos == 0 ? 0 : words / (elapsedNanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.1f%% of %.1f MB, %d words, %.1f MB/s, %.0f words/s",
+                100 * getFraction(), totalBytes / MEGABYTE, words, getMegabytesPerSecond(), getWordsPerSecond());
+    }
+}
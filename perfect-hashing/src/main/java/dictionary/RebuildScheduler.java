@@ -0,0 +1,137 @@
+package dictionary;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs table rebuilds on a small pool of background threads, so the writer that crossed a rebuild
+ * threshold does not wait for the new table's hash functions to be found.
+ * <p>
+ * At most {@link #getMaxConcurrentRebuilds()} rebuilds run at once and at most
+ * {@link #getMaxQueuedRebuilds()} wait for a thread. A rebuild submitted beyond that runs on the
+ * submitting thread instead, which slows that writer down rather than letting work pile up.
+ * One scheduler can be shared by many dictionaries. Threads are daemons and exit when idle.
+ */
+public class RebuildScheduler implements AutoCloseable {
+
+    private static final long IDLE_SECONDS = 30;
+    private static final AtomicInteger schedulers = new AtomicInteger();
+
+    private final ThreadPoolExecutor executor;
+    private final int maxConcurrentRebuilds;
+    private final int maxQueuedRebuilds;
+    private final AtomicInteger pendingRebuilds = new AtomicInteger();
+    private final AtomicLong pendingKeys = new AtomicLong();
+    private final LongAdder completedRebuilds = new LongAdder();
+    private final LongAdder callerRunsRebuilds = new LongAdder();
+
+    /**
+     * @param maxConcurrentRebuilds background threads, i.e. rebuilds running at once
+     * @param maxQueuedRebuilds     rebuilds that may wait for a thread before writers run them themselves
+     */
+    public RebuildScheduler(int maxConcurrentRebuilds, int maxQueuedRebuilds) {
+        if (maxConcurrentRebuilds < 1) {
+            throw new IllegalArgumentException("At least one concurrent rebuild is needed");
+        }
+        if (maxQueuedRebuilds < 0) {
+            throw new IllegalArgumentException("Queued rebuilds cannot be negative");
+        }
+        this.maxConcurrentRebuilds = maxConcurrentRebuilds;
+        this.maxQueuedRebuilds = maxQueuedRebuilds;
+
+        String prefix = "dictionary-rebuild-" + schedulers.incrementAndGet() + "-";
+        AtomicInteger threads = new AtomicInteger();
+        BlockingQueue<Runnable> queue = maxQueuedRebuilds == 0
+                ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(maxQueuedRebuilds);
+        executor = new ThreadPoolExecutor(maxConcurrentRebuilds, maxConcurrentRebuilds, IDLE_SECONDS, TimeUnit.SECONDS, queue,
+                runnable -> {
+                    Thread thread = new Thread(runnable, prefix + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, pool) -> {
+                    // saturated or closed: the writer pays for the rebuild, nothing is dropped
+                    callerRunsRebuilds.increment();
+                    runnable.run();
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Runs the rebuild in the background, or on the calling thread if the scheduler is saturated.
+     *
+     * @param keys size of the rebuild, only used for {@link #getPendingKeys()}
+     */
+    public void submit(Runnable rebuild, int keys) {
+        pendingRebuilds.incrementAndGet();
+        pendingKeys.addAndGet(keys);
+        executor.execute(() -> {
+            try {
+                rebuild.run();
+            } finally {
+                pendingRebuilds.decrementAndGet();
+                pendingKeys.addAndGet(-keys);
+                completedRebuilds.increment();
+            }
+        });
+    }
+
+    /**
+     * @return Rebuilds submitted and not finished yet, running or queued
+     */
+    public int getPendingRebuilds() {
+        return pendingRebuilds.get();
+    }
+
+    /**
+     * @return Keys of all pending rebuilds, a measure of the work still ahead
+     */
+    public long getPendingKeys() {
+        return pendingKeys.get();
+    }
+
+    public long getCompletedRebuilds() {
+        return completedRebuilds.sum();
+    }
+
+    /**
+     * @return Rebuilds that found the scheduler saturated and ran on the submitting thread
+     */
+    public long getCallerRunsRebuilds() {
+        return callerRunsRebuilds.sum();
+    }
+
+    public int getMaxConcurrentRebuilds() {
+        return maxConcurrentRebuilds;
+    }
+
+    public int getMaxQueuedRebuilds() {
+        return maxQueuedRebuilds;
+    }
+
+    /**
+     * Lets the pending rebuilds finish and stops the threads. Rebuilds submitted afterwards run on
+     * the submitting thread.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d pending rebuilds (%d keys), %d completed, %d ran on the caller",
+                getPendingRebuilds(), getPendingKeys(), getCompletedRebuilds(), getCallerRunsRebuilds());
+    }
+}
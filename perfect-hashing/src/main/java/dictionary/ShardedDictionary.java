@@ -0,0 +1,558 @@
+package dictionary;
+
+import hashing.functions.IHashFunctionFactory;
+import hashing.functions.KeyFingerprint;
+import hashing.tables.IPerfectHashTable;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Thread-safe dictionary that splits its words over N independent perfect hash tables.
+ * <p>
+ * Each word goes to one shard, chosen by a seeded fingerprint that is independent of the tables'
+ * own hash functions. Shards share nothing: each is built, resized and rebuilt on its own and
+ * has its own read-write lock, so a table doubling in {@link #insert(String)} moves 1/N of the
+ * words and only blocks lookups of that shard. Batch operations and {@link #build()} work on all
+ * shards in parallel, on {@link #getParallelism()} threads, which {@link #close()} stops.
+ */
+public class ShardedDictionary implements IDictionary, AutoCloseable {
+
+    private static final long ROUTING_SEED = 0x5851F42D4C957F2DL;
+    private static final int MAX_REBUILD_ATTEMPTS = 3;
+
+    private final Supplier<IPerfectHashTable> tableFactory;
+    private final Shard[] shards;
+    private final KeyNormalizer normalizer;
+    private final WordFileLoader loader = new WordFileLoader();
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private ForkJoinPool pool;
+
+    public ShardedDictionary(String type, int shards) {
+        this(() -> EnglishDictionary.newTable(type, IHashFunctionFactory.PACKED_MATRIX), shards, KeyNormalizer.NFC);
+    }
+
+    /**
+     * @param tableFactory creates the table of every shard, and the tables rebuilt shards are built into
+     * @param shards       number of independent tables
+     * @param normalizer   applied to every word stored, deleted or looked up, including batch files
+     */
+    public ShardedDictionary(Supplier<IPerfectHashTable> tableFactory, int shards, KeyNormalizer normalizer) {
+        if (tableFactory == null) {
+            throw new IllegalArgumentException("Table factory cannot be null");
+        }
+        if (shards < 1) {
+            throw new IllegalArgumentException("Number of shards must be at least 1");
+        }
+        if (normalizer == null) {
+            throw new IllegalArgumentException("Normalizer cannot be null");
+        }
+        this.tableFactory = tableFactory;
+        this.normalizer = normalizer;
+        this.shards = new Shard[shards];
+        for (int s = 0; s < shards; s++) {
+            this.shards[s] = new Shard();
+        }
+        loader.setNormalizer(normalizer);
+        build();
+    }
+
+    /**
+     * One table and the lock guarding it; the table may be replaced, but only under the write lock.
+     */
+    private static final class Shard {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private IPerfectHashTable table; // set by build()
+        private long version; // bumped under the write lock by every change to the words
+    }
+
+    @Override
+    public void build() {
+        forEachShard(s -> rebuildShard(s, new ArrayList<>()));
+    }
+
+    @Override
+    public boolean insert(String word) {
+        if (word == null || word.isEmpty()) {
+            return false;
+        }
+        word = normalizer.normalize(word);
+        Shard shard = shards[shardOf(word)];
+        Lock lock = shard.lock.writeLock();
+        lock.lock();
+        try {
+            boolean inserted = shard.table.insert(word);
+            if (inserted)
+                shard.version++;
+            return inserted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean delete(String word) {
+        if (word == null || word.isEmpty()) {
+            return false;
+        }
+        word = normalizer.normalize(word);
+        Shard shard = shards[shardOf(word)];
+        Lock lock = shard.lock.writeLock();
+        lock.lock();
+        try {
+            boolean deleted = shard.table.delete(word);
+            if (deleted)
+                shard.version++;
+            return deleted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean search(String word) {
+        if (word == null || word.isEmpty()) {
+            return false;
+        }
+        return contains(normalizer.normalize(word));
+    }
+
+    /**
+     * Does not allocate for words that are already normalized, provided the table's hash family does not.
+     */
+    @Override
+    public boolean contains(CharSequence word) {
+        if (word == null || word.length() == 0) {
+            return false;
+        }
+        CharSequence key = normalizer.isNormalized(word) ? word : normalizer.normalize(word);
+        Shard shard = shards[shardOf(key)];
+        Lock lock = shard.lock.readLock();
+        lock.lock();
+        try {
+            return shard.table.contains(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Groups the words by shard and hands each group to its table's batch lookup.
+     */
+    @Override
+    public boolean[] searchAll(List<? extends CharSequence> words) {
+        List<? extends CharSequence> normalized = normalizer.normalizeAll(words);
+        List<List<CharSequence>> groups = new ArrayList<>(shards.length);
+        List<List<Integer>> positions = new ArrayList<>(shards.length);
+        for (int s = 0; s < shards.length; s++) {
+            groups.add(new ArrayList<>());
+            positions.add(new ArrayList<>());
+        }
+        for (int i = 0; i < normalized.size(); i++) {
+            CharSequence word = normalized.get(i);
+            if (word != null && word.length() > 0) {
+                int s = shardOf(word);
+                groups.get(s).add(word);
+                positions.get(s).add(i);
+            }
+        }
+
+        boolean[] found = new boolean[words.size()];
+        for (int s = 0; s < shards.length; s++) {
+            if (groups.get(s).isEmpty()) {
+                continue;
+            }
+            boolean[] shardFound;
+            Lock lock = shards[s].lock.readLock();
+            lock.lock();
+            try {
+                shardFound = shards[s].table.searchAll(groups.get(s));
+            } finally {
+                lock.unlock();
+            }
+            for (int k = 0; k < shardFound.length; k++) {
+                found[positions.get(s).get(k)] = shardFound[k];
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Reads the file, then merges each shard's new words into its keys and rebuilds the shards in
+     * parallel. Like {@link #rebuildShard(int)}, a shard is only blocked while its table is swapped.
+     */
+    @Override
+    public int[] batchInsert(String filePath) {
+        List<List<String>> perShard = readWordsByShard(filePath);
+        int[][] results = new int[shards.length][];
+        forEachShard(s -> results[s] = rebuildShard(shards[s], (keys, counts) -> {
+            for (String word : perShard.get(s)) {
+                if (keys.add(word))
+                    counts[0]++;
+                else
+                    counts[1]++;
+            }
+        }));
+        return sum(results);
+    }
+
+    /**
+     * Reads the file, then deletes each shard's words like {@link EnglishDictionary#batchDelete}:
+     * one by one, or by rebuilding the shard from its remaining words if
+     * {@link EnglishDictionary#deletesInBulk} says so.
+     */
+    @Override
+    public int[] batchDelete(String filePath) {
+        List<List<String>> perShard = readWordsByShard(filePath);
+        int[][] results = new int[shards.length][];
+        forEachShard(s -> {
+            List<String> words = perShard.get(s);
+            results[s] = deletesInBulk(shards[s], words.size())
+                    ? rebuildShard(shards[s], (keys, counts) -> {
+                        for (String word : words) {
+                            if (keys.remove(word))
+                                counts[0]++;
+                            else
+                                counts[1]++;
+                        }
+                    })
+                    : deleteEach(shards[s], words);
+        });
+        return sum(results);
+    }
+
+    private static boolean deletesInBulk(Shard shard, int words) {
+        Lock lock = shard.lock.readLock();
+        lock.lock();
+        try {
+            return EnglishDictionary.deletesInBulk(shard.table, words);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static int[] deleteEach(Shard shard, List<String> words) {
+        int[] counts = new int[2];
+        Lock lock = shard.lock.writeLock();
+        lock.lock();
+        try {
+            for (String word : words) {
+                if (shard.table.delete(word))
+                    counts[0]++;
+                else
+                    counts[1]++;
+            }
+            if (counts[0] > 0)
+                shard.version++;
+        } finally {
+            lock.unlock();
+        }
+        return counts;
+    }
+
+    /**
+     * Builds a fresh table from the shard's words and swaps it in, e.g. to compact a shard after
+     * many deletes. The table is built without holding the shard's lock, so lookups and updates of
+     * the shard go on meanwhile; only the swap takes the write lock. If the shard changed during
+     * the build, the build is repeated; the last of {@value #MAX_REBUILD_ATTEMPTS} attempts runs
+     * under the write lock.
+     */
+    public void rebuildShard(int shard) {
+        if (shard < 0 || shard >= shards.length) {
+            throw new IllegalArgumentException("No shard " + shard + ", there are " + shards.length);
+        }
+        rebuildShard(shards[shard], null);
+    }
+
+    /**
+     * Builds a table from the shard's words as changed by the edit, outside the shard's lock, and
+     * swaps it in if the shard did not change meanwhile; the last attempt runs under the write lock.
+     *
+     * @param edit changes a copy of the shard's words and counts the words it changed in
+     *             counts[0] and the ones it skipped in counts[1]; null rebuilds the words as they are
+     * @return The edit's counts; the table is not rebuilt if the edit changed no word
+     */
+    private int[] rebuildShard(Shard target, BiConsumer<Set<String>, int[]> edit) {
+        for (int attempt = 1; attempt < MAX_REBUILD_ATTEMPTS; attempt++) {
+            List<String> keys;
+            long version;
+            Lock readLock = target.lock.readLock();
+            readLock.lock();
+            try {
+                keys = target.table.toList();
+                version = target.version;
+            } finally {
+                readLock.unlock();
+            }
+
+            int[] counts = new int[2];
+            List<String> words = edit(keys, edit, counts);
+            if (words == null) {
+                return counts;
+            }
+            IPerfectHashTable table = tableFactory.get();
+            table.build(words);
+            Lock writeLock = target.lock.writeLock();
+            writeLock.lock();
+            try {
+                if (target.version == version) {
+                    replace(target, table);
+                    return counts;
+                }
+            } finally {
+                writeLock.unlock();
+            }
+            release(table); // missed an update, build again
+        }
+
+        Lock writeLock = target.lock.writeLock();
+        writeLock.lock();
+        try {
+            int[] counts = new int[2];
+            List<String> words = edit(target.table.toList(), edit, counts);
+            if (words != null) {
+                IPerfectHashTable table = tableFactory.get();
+                table.build(words);
+                replace(target, table);
+            }
+            return counts;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // The shard's words after the edit, or null if the edit changed none of them
+    private static List<String> edit(List<String> keys, BiConsumer<Set<String>, int[]> edit, int[] counts) {
+        if (edit == null) {
+            return keys;
+        }
+        Set<String> words = new HashSet<>(keys);
+        edit.accept(words, counts);
+        return counts[0] > 0 ? new ArrayList<>(words) : null;
+    }
+
+    private void rebuildShard(int shard, List<String> keys) {
+        IPerfectHashTable table = tableFactory.get();
+        table.build(keys);
+        Lock lock = shards[shard].lock.writeLock();
+        lock.lock();
+        try {
+            replace(shards[shard], table);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Must hold the shard's write lock, so no lookup still uses the old table when it is released
+    private static void replace(Shard shard, IPerfectHashTable table) {
+        IPerfectHashTable old = shard.table;
+        shard.table = table;
+        shard.version++;
+        if (old != null)
+            release(old);
+    }
+
+    // Frees what a table holds beyond the heap, e.g. build threads or off-heap memory
+    private static void release(IPerfectHashTable table) {
+        if (table instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) table).close();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * @return The shard that holds the word, after normalization
+     */
+    public int shardOf(CharSequence word) {
+        return KeyFingerprint.reduce(KeyFingerprint.of(word, ROUTING_SEED), shards.length);
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * @return Number of words in each shard, to check the balance
+     */
+    public int[] getShardSizes() {
+        int[] sizes = new int[shards.length];
+        for (int s = 0; s < shards.length; s++) {
+            Lock lock = shards[s].lock.readLock();
+            lock.lock();
+            try {
+                sizes[s] = shards[s].table.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return sizes;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (int shardSize : getShardSizes()) {
+            size += shardSize;
+        }
+        return size;
+    }
+
+    @Override
+    public int getSpace() {
+        int space = 0;
+        for (Shard shard : shards) {
+            Lock lock = shard.lock.readLock();
+            lock.lock();
+            try {
+                space += shard.table.getSpace();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return space;
+    }
+
+    /**
+     * @return The loader used by {@link #batchInsert(String)} and {@link #batchDelete(String)}
+     */
+    public WordFileLoader getWordFileLoader() {
+        return loader;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets how many shards are built at once by batch operations and {@link #build()}.
+     * With 1 everything runs on the caller's thread.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        synchronized (this) {
+            if (pool != null && parallelism != this.parallelism) {
+                pool.shutdown();
+                pool = null;
+            }
+            this.parallelism = parallelism;
+        }
+    }
+
+    /**
+     * Stops the threads of the parallel batch operations and releases the shards' tables, e.g.
+     * their build threads or off-heap memory. The dictionary must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (pool != null) {
+                pool.shutdown();
+                pool = null;
+            }
+        }
+        for (Shard shard : shards) {
+            Lock lock = shard.lock.writeLock();
+            lock.lock();
+            try {
+                release(shard.table);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // The pool of the parallel batch operations, null if none is running
+    synchronized ForkJoinPool getPool() {
+        return pool;
+    }
+
+    private void forEachShard(IntConsumer action) {
+        ForkJoinPool shardPool;
+        synchronized (this) {
+            if (parallelism == 1 || shards.length == 1) {
+                shardPool = null;
+            } else {
+                if (pool == null) {
+                    pool = new ForkJoinPool(parallelism);
+                }
+                shardPool = pool;
+            }
+        }
+        if (shardPool == null) {
+            for (int s = 0; s < shards.length; s++) {
+                action.accept(s);
+            }
+        } else {
+            shardPool.invoke(new ShardTask(action, 0, shards.length));
+        }
+    }
+
+    /**
+     * Splits the shard range in halves until one shard is left.
+     */
+    private static class ShardTask extends RecursiveAction {
+        private final IntConsumer action;
+        private final int from;
+        private final int to;
+
+        ShardTask(IntConsumer action, int from, int to) {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                action.accept(from);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ShardTask(action, from, mid), new ShardTask(action, mid, to));
+        }
+    }
+
+    // Parsed before any shard is locked, so lookups are not held up by the file
+    private List<List<String>> readWordsByShard(String filePath) {
+        List<List<String>> perShard = new ArrayList<>(shards.length);
+        for (int s = 0; s < shards.length; s++) {
+            perShard.add(new ArrayList<>());
+        }
+        try {
+            loader.forEachChunk(Paths.get(filePath), words -> {
+                for (String word : words) {
+                    perShard.get(shardOf(word)).add(word);
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+            throw new RuntimeException(e);
+        }
+        return perShard;
+    }
+
+    private static int[] sum(int[][] results) {
+        int[] total = new int[2];
+        for (int[] result : results) {
+            total[0] += result[0];
+            total[1] += result[1];
+        }
+        return total;
+    }
+}
@@ -0,0 +1,209 @@
+package dictionary;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Reads a UTF-8 word list, one word per line, fast enough for multi-gigabyte files.
+ * <p>
+ * The file is memory-mapped in chunks of about {@link #getChunkBytes()} bytes, each ending on a line
+ * break, and the chunks are decoded, trimmed and normalized on a pool of {@link #getParallelism()}
+ * threads. Only a few chunks are in flight at a time, so memory use does not grow with the file.
+ * Words are handed to the caller chunk by chunk, in file order and on the caller's thread, so the
+ * caller can feed them straight into a bulk build or apply them as updates.
+ * <p>
+ * Lines are split and trimmed the way {@code BufferedReader.readLine()} and {@code String.trim()} do
+ * it, and blank lines are skipped. Unlike {@code FileReader}, the charset is always UTF-8.
+ */
+public class WordFileLoader {
+
+    public static final int DEFAULT_CHUNK_BYTES = 8 << 20;
+    private static final int SCAN_BYTES = 4096; // read at a time while looking for a chunk's last line break
+    private static final int CHUNKS_PER_THREAD = 2;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int chunkBytes = DEFAULT_CHUNK_BYTES;
+    private UnaryOperator<String> normalizer = UnaryOperator.identity();
+    private Consumer<LoadProgress> progressListener;
+
+    /**
+     * Hands every word of the file to {@code sink}, one list per chunk, in file order.
+     *
+     * @return Progress at the end of the file
+     */
+    public LoadProgress forEachChunk(Path file, Consumer<List<String>> sink) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+            ByteBuffer scan = ByteBuffer.allocateDirect(SCAN_BYTES);
+            ArrayDeque<Chunk> inFlight = new ArrayDeque<>();
+            long position = 0;
+            long words = 0;
+            LoadProgress progress = new LoadProgress(0, size, 0, 0);
+            try {
+                while (position < size || !inFlight.isEmpty()) {
+                    while (position < size && inFlight.size() < CHUNKS_PER_THREAD * parallelism) {
+                        long end = chunkEnd(channel, position, size, scan);
+                        inFlight.add(new Chunk(end, channel.map(FileChannel.MapMode.READ_ONLY, position, end - position), pool));
+                        position = end;
+                    }
+
+                    Chunk chunk = inFlight.poll();
+                    List<String> chunkWords = chunk.words();
+                    sink.accept(chunkWords);
+                    words += chunkWords.size();
+                    progress = new LoadProgress(chunk.end, size, words, System.nanoTime() - start);
+                    if (progressListener != null)
+                        progressListener.accept(progress);
+                }
+            } finally {
+                if (pool != null)
+                    pool.shutdownNow();
+            }
+            return progress;
+        }
+    }
+
+    /**
+     * @return All words of the file in file order, duplicates included
+     */
+    public List<String> readAll(Path file) throws IOException {
+        List<String> words = new ArrayList<>();
+        forEachChunk(file, words::addAll);
+        return words;
+    }
+
+    // Returns the position just past the first line break at or after position + chunkBytes, or the file size
+    private long chunkEnd(FileChannel channel, long position, long size, ByteBuffer scan) throws IOException {
+        long end = position + chunkBytes;
+        while (end < size) {
+            scan.clear();
+            int read = channel.read(scan, end);
+            if (read <= 0)
+                break;
+            for (int i = 0; i < read; i++) {
+                if (scan.get(i) == '\n')
+                    return end + i + 1;
+            }
+            end += read;
+        }
+        return size;
+    }
+
+    private List<String> parse(MappedByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+
+        List<String> words = new ArrayList<>();
+        int lineStart = 0;
+        for (int i = 0; i <= bytes.length; i++) {
+            if (i < bytes.length && bytes[i] != '\n' && bytes[i] != '\r')
+                continue;
+            // bytes up to 0x20 are exactly the characters String.trim() removes, UTF-8 never uses them inside a character
+            int from = lineStart;
+            int to = i;
+            while (from < to && (bytes[from] & 0xFF) <= ' ')
+                from++;
+            while (to > from && (bytes[to - 1] & 0xFF) <= ' ')
+                to--;
+            if (from < to) {
+                String word = normalizer.apply(new String(bytes, from, to - from, StandardCharsets.UTF_8));
+                if (word != null && !word.isEmpty())
+                    words.add(word);
+            }
+            lineStart = i + 1;
+        }
+        return words;
+    }
+
+    /**
+     * A mapped region being parsed on the pool, or parsed on the caller's thread when there is no pool.
+     */
+    private final class Chunk {
+        final long end;
+        private final MappedByteBuffer buffer;
+        private final Future<List<String>> parsed;
+
+        Chunk(long end, MappedByteBuffer buffer, ForkJoinPool pool) {
+            this.end = end;
+            this.buffer = buffer;
+            this.parsed = pool == null ? null : pool.submit(() -> parse(buffer));
+        }
+
+        List<String> words() throws IOException {
+            if (parsed == null)
+                return parse(buffer);
+            try {
+                return parsed.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while parsing word file");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) e.getCause();
+                throw new IOException(e.getCause());
+            }
+        }
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets how many threads parse chunks. With 1 everything runs on the caller's thread.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    public int getChunkBytes() {
+        return chunkBytes;
+    }
+
+    /**
+     * Sets the approximate size of a chunk; each one is extended to the end of its last line.
+     */
+    public void setChunkBytes(int chunkBytes) {
+        if (chunkBytes < 1) {
+            throw new IllegalArgumentException("Chunk size must be at least 1 byte");
+        }
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Sets a function applied to every trimmed word on the parsing threads. Words it maps to null or
+     * to the empty string are dropped. The default keeps words as they are.
+     */
+    public void setNormalizer(UnaryOperator<String> normalizer) {
+        if (normalizer == null) {
+            throw new IllegalArgumentException("Normalizer cannot be null");
+        }
+        this.normalizer = normalizer;
+    }
+
+    /**
+     * Sets a listener called on the caller's thread after every chunk, or null for none.
+     */
+    public void setProgressListener(Consumer<LoadProgress> progressListener) {
+        this.progressListener = progressListener;
+    }
+}
@@ -1,18 +1,26 @@
 package hashing.functions;
 
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class FastHashFunction implements IHashFunction {
     private final int seed;
     private final int tableSize;
-    private static final Random random = new Random();
 
     public FastHashFunction(int tableSize) {
         this.tableSize = tableSize;
-        this.seed = random.nextInt(Integer.MAX_VALUE);
+        this.seed = ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE);
     }
+
+    /**
+     * Restores a function from its seed, e.g. when loading a snapshot.
+     */
+    FastHashFunction(int tableSize, int seed) {
+        this.tableSize = tableSize;
+        this.seed = seed;
+    }
+
     @Override
-    public int hash(String key) {
+    public int hash(CharSequence key) {
         int h = seed;
         for (int i = 0; i < key.length(); i++) {
             h ^= key.charAt(i);
@@ -20,11 +28,20 @@ public class FastHashFunction implements IHashFunction {
             h ^= h >>> 13;
         }
         h ^= h >>> 15;
-        return Math.abs(h) % tableSize;
+        int index = Math.abs(h) % tableSize;
+        return index < 0 ? index + tableSize : index; // Math.abs(Integer.MIN_VALUE) stays negative
     }
 
     @Override
     public IHashFunction generateNew() {
         return new FastHashFunction(tableSize);
     }
+
+    int getSeed() {
+        return seed;
+    }
+
+    int getTableSize() {
+        return tableSize;
+    }
 }
@@ -0,0 +1,82 @@
+package hashing.functions;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+public class FingerprintHashFunction implements IHashFunction {
+    /*
+        multiply-shift hashing of a 64-bit key fingerprint:
+            h(x) = high 32 bits of (a * x mod 2^64), scaled onto [0, tableSize)
+        with a random odd multiplier a. Two fingerprints collide with probability at most 2 / 2^32
+        before scaling (Dietzfelbinger et al.), so the family is close to universal.
+
+        the fingerprint is computed from the UTF-8 bytes of the key under a fingerprint seed.
+        a table gives the functions of all its levels the same seed, so it can fingerprint a key
+        once and derive the primary and the secondary index from it, and a rebuild only draws new
+        multipliers without reading the keys again. Two distinct keys with the same 64-bit
+        fingerprint share every index no multiplier can separate; the seed is drawn per table,
+        so no key pair collides for every table, and a table that meets one draws a new seed.
+
+        a new function is only a new 64-bit multiplier, drawn from the calling thread's SplitMix
+        generator, so parallel sub-table builds neither allocate nor contend for a shared seed.
+     */
+    private final long multiplier; // odd
+    private final int tableSize;
+    private final long fingerprintSeed;
+
+    public FingerprintHashFunction(int tableSize) {
+        this(tableSize, ThreadLocalRandom.current().nextLong() | 1, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Restores a function from its multiplier and fingerprint seed, e.g. when loading a snapshot.
+     */
+    FingerprintHashFunction(int tableSize, long multiplier, long fingerprintSeed) {
+        this.tableSize = tableSize;
+        this.multiplier = multiplier;
+        this.fingerprintSeed = fingerprintSeed;
+    }
+
+    /**
+     * @return The same function fingerprinting keys under the given seed, e.g. the seed of the
+     *         table it serves
+     */
+    public FingerprintHashFunction withFingerprintSeed(long fingerprintSeed) {
+        return new FingerprintHashFunction(tableSize, multiplier, fingerprintSeed);
+    }
+
+    /**
+     * @return The fingerprint this function hashes, computed without allocating
+     */
+    public long fingerprint(CharSequence key) {
+        return KeyFingerprint.ofUtf8(key, fingerprintSeed);
+    }
+
+    /**
+     * @return A value in [0, tableSize), without looking at the key itself
+     */
+    public int hash(long fingerprint) {
+        return (int) ((((multiplier * fingerprint) >>> 32) * tableSize) >>> 32);
+    }
+
+    @Override
+    public int hash(CharSequence key) {
+        return hash(fingerprint(key));
+    }
+
+    @Override
+    public IHashFunction generateNew() {
+        return new FingerprintHashFunction(tableSize);
+    }
+
+    public long getFingerprintSeed() {
+        return fingerprintSeed;
+    }
+
+    long getMultiplier() {
+        return multiplier;
+    }
+
+    int getTableSize() {
+        return tableSize;
+    }
+}
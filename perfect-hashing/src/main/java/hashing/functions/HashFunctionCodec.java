@@ -0,0 +1,142 @@
+package hashing.functions;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Binary encoding of hash function parameters, used by table snapshots.
+ * <p>
+ * Every function is written as a one byte type tag, its table size and the parameters of its family.
+ * Multi-byte values are big-endian, matching {@link DataOutput} and the default {@link ByteBuffer} order.
+ */
+public final class HashFunctionCodec {
+
+    private static final byte MATRIX = 1;
+    private static final byte PACKED_MATRIX = 2;
+    private static final byte TABULATION = 3;
+    private static final byte FAST = 4;
+    private static final byte FINGERPRINT = 5;
+
+    private HashFunctionCodec() {
+    }
+
+    public static void write(IHashFunction function, DataOutput out) throws IOException {
+        if (function instanceof MatrixHashFunction) {
+            MatrixHashFunction matrix = (MatrixHashFunction) function;
+            out.writeByte(MATRIX);
+            out.writeInt(matrix.getTableSize());
+            out.writeInt(matrix.getKeyBits());
+            out.writeInt(matrix.getMatrix().length);
+            out.writeLong(matrix.getFoldSeed());
+            // one bit per matrix entry, packed the same way as PackedMatrixHashFunction
+            long[] words = new long[(matrix.getKeyBits() + Long.SIZE - 1) / Long.SIZE];
+            for (int[] row : matrix.getMatrix()) {
+                Arrays.fill(words, 0);
+                for (int j = 0; j < row.length; j++)
+                    words[j >>> 6] |= (long) row[j] << (j & 63);
+                for (long word : words)
+                    out.writeLong(word);
+            }
+        } else if (function instanceof PackedMatrixHashFunction) {
+            PackedMatrixHashFunction packed = (PackedMatrixHashFunction) function;
+            out.writeByte(PACKED_MATRIX);
+            out.writeInt(packed.getTableSize());
+            out.writeInt(packed.getKeyBits());
+            out.writeInt(packed.getRows().length);
+            out.writeLong(packed.getFoldSeed());
+            for (long[] row : packed.getRows())
+                for (long word : row)
+                    out.writeLong(word);
+        } else if (function instanceof TabulationHashFunction) {
+            TabulationHashFunction tabulation = (TabulationHashFunction) function;
+            out.writeByte(TABULATION);
+            out.writeInt(tabulation.getTableSize());
+            out.writeInt(tabulation.getTables().length);
+            for (int[] table : tabulation.getTables())
+                for (int value : table)
+                    out.writeInt(value);
+            out.writeLong(tabulation.getSeed());
+        } else if (function instanceof FastHashFunction) {
+            FastHashFunction fast = (FastHashFunction) function;
+            out.writeByte(FAST);
+            out.writeInt(fast.getTableSize());
+            out.writeInt(fast.getSeed());
+        } else if (function instanceof FingerprintHashFunction) {
+            FingerprintHashFunction fingerprint = (FingerprintHashFunction) function;
+            out.writeByte(FINGERPRINT);
+            out.writeInt(fingerprint.getTableSize());
+            out.writeLong(fingerprint.getMultiplier());
+            out.writeLong(fingerprint.getFingerprintSeed());
+        } else {
+            throw new IllegalArgumentException("Unsupported hash function: " + function.getClass().getName());
+        }
+    }
+
+    public static IHashFunction read(ByteBuffer in) throws IOException {
+        byte type = in.get();
+        int tableSize = in.getInt();
+        switch (type) {
+            case MATRIX: {
+                int keyBits = in.getInt();
+                int numBits = in.getInt();
+                long foldSeed = in.getLong();
+                int words = (keyBits + Long.SIZE - 1) / Long.SIZE;
+                int[][] matrix = new int[numBits][keyBits];
+                for (int i = 0; i < numBits; i++) {
+                    for (int w = 0; w < words; w++) {
+                        long word = in.getLong();
+                        for (int j = w * Long.SIZE; j < Math.min(keyBits, (w + 1) * Long.SIZE); j++)
+                            matrix[i][j] = (int) (word >>> (j & 63)) & 1;
+                    }
+                }
+                return new MatrixHashFunction(tableSize, keyBits, matrix, foldSeed);
+            }
+            case PACKED_MATRIX: {
+                int keyBits = in.getInt();
+                int numBits = in.getInt();
+                long foldSeed = in.getLong();
+                long[][] rows = new long[numBits][(keyBits + Long.SIZE - 1) / Long.SIZE];
+                for (long[] row : rows) {
+                    in.asLongBuffer().get(row);
+                    in.position(in.position() + row.length * Long.BYTES);
+                }
+                return new PackedMatrixHashFunction(tableSize, keyBits, rows, foldSeed);
+            }
+            case TABULATION: {
+                int positions = in.getInt();
+                int[][] tables = new int[positions][256];
+                for (int[] table : tables) {
+                    in.asIntBuffer().get(table);
+                    in.position(in.position() + table.length * Integer.BYTES);
+                }
+                return new TabulationHashFunction(tableSize, tables, in.getLong());
+            }
+            case FAST:
+                return new FastHashFunction(tableSize, in.getInt());
+            case FINGERPRINT: {
+                long multiplier = in.getLong();
+                long fingerprintSeed = in.getLong();
+                return new FingerprintHashFunction(tableSize, multiplier, fingerprintSeed);
+            }
+            default:
+                throw new IOException("Unknown hash function type " + type);
+        }
+    }
+
+    /**
+     * @return A factory drawing new functions from the same family as the given one
+     */
+    public static IHashFunctionFactory familyOf(IHashFunction function) {
+        if (function instanceof MatrixHashFunction)
+            return IHashFunctionFactory.MATRIX;
+        if (function instanceof TabulationHashFunction)
+            return IHashFunctionFactory.TABULATION;
+        if (function instanceof FastHashFunction)
+            return (tableSize, keyBits) -> new FastHashFunction(tableSize);
+        if (function instanceof FingerprintHashFunction)
+            return IHashFunctionFactory.FINGERPRINT;
+        return IHashFunctionFactory.PACKED_MATRIX;
+    }
+}
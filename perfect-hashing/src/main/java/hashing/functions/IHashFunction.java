@@ -1,7 +1,14 @@
 package hashing.functions;
 
 public interface IHashFunction {
-    int hash(String key);
+    /**
+     * Takes any character sequence, so callers can hash a slice of a larger buffer without
+     * copying it into a String. Every implementation except {@link MatrixHashFunction} hashes
+     * without allocating.
+     *
+     * @return A value in [0, tableSize)
+     */
+    int hash(CharSequence key);
 
     IHashFunction generateNew();
 }
@@ -0,0 +1,31 @@
+package hashing.functions;
+
+/**
+ * Creates fresh, independently drawn members of a universal hash family.
+ * The hash tables call this on every (re)build, so swapping the factory swaps the family.
+ */
+@FunctionalInterface
+public interface IHashFunctionFactory {
+
+    /**
+     * @param tableSize range of the function, hashes fall in [0, tableSize)
+     * @param keyBits   number of key bits the function should look at (ignored by families without a limit)
+     */
+    IHashFunction create(int tableSize, int keyBits);
+
+    IHashFunctionFactory MATRIX = MatrixHashFunction::new;
+
+    IHashFunctionFactory PACKED_MATRIX = PackedMatrixHashFunction::new;
+
+    /**
+     * Simple tabulation over a seeded 64-bit fingerprint of the key, 3-independent over keys whose
+     * fingerprints differ, with eight lookups per key whatever its length.
+     */
+    IHashFunctionFactory TABULATION = (tableSize, keyBits) -> new TabulationHashFunction(tableSize);
+
+    /**
+     * Multiply-shift over one 64-bit fingerprint per key. Tables whose levels all use it fingerprint
+     * a key once per lookup, and rebuild retries never reread the keys.
+     */
+    IHashFunctionFactory FINGERPRINT = (tableSize, keyBits) -> new FingerprintHashFunction(tableSize);
+}
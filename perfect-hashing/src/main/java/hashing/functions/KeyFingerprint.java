@@ -0,0 +1,106 @@
+package hashing.functions;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Seeded 64-bit fingerprints of string keys, plus the mixing and range reduction helpers
+ * the seed-based tables build their indexes from.
+ */
+public final class KeyFingerprint {
+
+    private static final long M1 = 0x87C37B91114253D5L;
+    private static final long M2 = 0x4CF5AD432745937FL;
+    private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private KeyFingerprint() {
+    }
+
+    /**
+     * Hashes the key four characters at a time and finishes with {@link #mix(long)},
+     * so every input bit affects every output bit.
+     */
+    public static long of(CharSequence key, long seed) {
+        int length = key.length();
+        long h = seed ^ (length * M2);
+        int i = 0;
+        for (; i + 4 <= length; i += 4) {
+            long block = key.charAt(i)
+                    | (long) key.charAt(i + 1) << 16
+                    | (long) key.charAt(i + 2) << 32
+                    | (long) key.charAt(i + 3) << 48;
+            h = Long.rotateLeft(h ^ (block * M1), 31) * M2;
+        }
+        if (i < length) {
+            long block = 0;
+            for (int shift = 0; i < length; i++, shift += 16)
+                block |= (long) key.charAt(i) << shift;
+            h = Long.rotateLeft(h ^ (block * M1), 31) * M2;
+        }
+        return mix(h);
+    }
+
+    /**
+     * Hashes the UTF-8 bytes {@code [from, to)} eight at a time. Equal to {@link #ofUtf8(CharSequence, long)}
+     * of the decoded string, so keys stored as bytes and keys given as strings land on the same fingerprint.
+     */
+    public static long ofUtf8(byte[] bytes, int from, int to, long seed) {
+        long h = seed;
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            h = Long.rotateLeft(h ^ ((long) LONG_LE.get(bytes, i) * M1), 31) * M2;
+        }
+        if (i < to) {
+            long block = 0;
+            for (int shift = 0; i < to; i++, shift += 8)
+                block |= (bytes[i] & 0xFFL) << shift;
+            h = Long.rotateLeft(h ^ (block * M1), 31) * M2;
+        }
+        return mix(h ^ ((to - from) * M2));
+    }
+
+    /**
+     * Hashes the key as if it were encoded with {@link Utf8} first, without allocating the bytes.
+     */
+    public static long ofUtf8(CharSequence key, long seed) {
+        long h = seed;
+        long block = 0;
+        int shift = 0;
+        int total = 0;
+        for (int i = 0; i < key.length(); ) {
+            long encoded = Utf8.encode(key, i);
+            int count = Utf8.count(encoded);
+            i += count == 4 ? 2 : 1;
+            total += count;
+            for (int k = 0; k < count; k++, encoded >>>= 8) {
+                block |= (encoded & 0xFF) << shift;
+                shift += 8;
+                if (shift == Long.SIZE) {
+                    h = Long.rotateLeft(h ^ (block * M1), 31) * M2;
+                    block = 0;
+                    shift = 0;
+                }
+            }
+        }
+        if (shift > 0)
+            h = Long.rotateLeft(h ^ (block * M1), 31) * M2;
+        return mix(h ^ (total * M2));
+    }
+
+    /**
+     * SplitMix64 finalizer: a bijective avalanche on 64 bits.
+     */
+    public static long mix(long h) {
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+
+    /**
+     * Maps the high 32 bits of a hash onto [0, range) with a multiply instead of a modulo.
+     */
+    public static int reduce(long hash, int range) {
+        return (int) (((hash >>> 32) * range) >>> 32);
+    }
+}
@@ -1,35 +1,68 @@
 package hashing.functions;
 
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class MatrixHashFunction implements IHashFunction {
     /*
         1. we will need a function to convert a string into numerical vector
-            ascii character is 127 -> 7 bits
+            the key is encoded as UTF-8, 8 bits per byte, so every character counts in full,
+            followed by a single 1 bit that marks its end. the bits are read as 64-bit words
+            W0, W1, ... (little-endian, first byte lowest)
         2. generate a matrix of size b x u
             where b = log2(tableSize)
-            and u = maximum expected bits = length of max string * 7
+            and u = number of key bits the matrix looks at
+        3. a key that fits in u bits with its end marker is the vector itself, so distinct
+            short keys always get distinct vectors. a longer key folds every word into vector
+            word j % ceil(u / 64) after scrambling it under a random per-function seed and its
+            position: V[j % w] ^= mix(Wj ^ (seed + j * phi)). the fold is non-linear and depends
+            on where each word sits, so a trailing zero byte or two swapped blocks change the
+            vector, and keys that still collide are split by the next function, which draws a
+            new seed
      */
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
     private final int[][] matrix; // b x u
     private final int tableSize;
     private final int numBits; // b = log2(tableSize)
     private final int keyBits; // u (number of bits in key)
+    private final long foldSeed;
 
     public MatrixHashFunction(int tableSize, int keyBits) {
         this.tableSize = tableSize;
         this.keyBits = keyBits;
         this.numBits = Integer.SIZE - Integer.numberOfLeadingZeros(this.tableSize - 1);
         this.matrix = new int[numBits][keyBits];
-        Random random = new Random();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
 
-        for (int i = 0; i < numBits; i++)
-            for (int j = 0; j < keyBits; j++)
-                matrix[i][j] = random.nextInt(2);
+        // 64 matrix bits per draw rather than one
+        for (int i = 0; i < numBits; i++) {
+            long bits = 0;
+            for (int j = 0; j < keyBits; j++) {
+                if ((j & 63) == 0)
+                    bits = random.nextLong();
+                matrix[i][j] = (int) (bits >>> (j & 63)) & 1;
+            }
+        }
+        this.foldSeed = random.nextLong();
+    }
+
+    /**
+     * Restores a function from its matrix and fold seed, e.g. when loading a snapshot.
+     */
+    MatrixHashFunction(int tableSize, int keyBits, int[][] matrix, long foldSeed) {
+        this.tableSize = tableSize;
+        this.keyBits = keyBits;
+        this.numBits = matrix.length;
+        this.matrix = matrix;
+        this.foldSeed = foldSeed;
     }
 
     @Override
-    public int hash(String key) {
-        int[] bits = stringToBits(key, keyBits);
+    public int hash(CharSequence key) {
+        return multiply(stringToBits(key, keyBits));
+    }
+
+    private int multiply(int[] bits) {
         int[] result = new int[numBits];
 
         for (int i = 0; i < numBits; i++)
@@ -48,15 +81,66 @@ public class MatrixHashFunction implements IHashFunction {
         return new MatrixHashFunction(tableSize, keyBits);
     }
 
-    private int[] stringToBits(String key, int bitsSize) {
-        int[] result = new int[bitsSize];
+    int[][] getMatrix() {
+        return matrix;
+    }
+
+    int getTableSize() {
+        return tableSize;
+    }
+
+    int getKeyBits() {
+        return keyBits;
+    }
+
+    long getFoldSeed() {
+        return foldSeed;
+    }
+
+    /**
+     * @return true if a key of this many UTF-8 bytes does not fit in u bits with its end marker
+     */
+    static boolean folds(long keyBytes, int keyBits) {
+        return keyBytes * Byte.SIZE >= keyBits;
+    }
+
+    /**
+     * Scrambles word {@code index} of a folded key. The mixer is a bijection, so no two words
+     * at the same position are merged before they reach the vector.
+     */
+    static long foldWord(long foldSeed, int index, long word) {
+        return KeyFingerprint.mix(word ^ (foldSeed + index * GOLDEN));
+    }
 
-        for (int i = 0; i < key.length() && i * 7 < bitsSize; i++) {
-            char c = key.charAt(i);
-            for (int j = 0; j < 7 && i * 7 + j < bitsSize; j++)
-                result[i * 7 + j] = (c >> j) & 1;
+    private int[] stringToBits(CharSequence key, int bitsSize) {
+        byte[] bytes = new byte[Utf8.length(key)];
+        int length = 0;
+        for (int i = 0; i < key.length(); ) {
+            long encoded = Utf8.encode(key, i);
+            int count = Utf8.count(encoded);
+            i += count == 4 ? 2 : 1;
+            for (int k = 0; k < count; k++, encoded >>>= 8)
+                bytes[length++] = (byte) encoded;
         }
 
+        // the bytes and the end marker as words, folded into the vector if they do not fit
+        long[] vector = new long[(bitsSize + Long.SIZE - 1) / Long.SIZE];
+        boolean fold = folds(length, bitsSize);
+        for (int index = 0; index <= length / Byte.SIZE; index++) {
+            long word = 0;
+            for (int k = 0; k < Byte.SIZE; k++) {
+                int pos = index * Byte.SIZE + k;
+                if (pos < length)
+                    word |= (bytes[pos] & 0xFFL) << (k * Byte.SIZE);
+                else if (pos == length)
+                    word |= 1L << (k * Byte.SIZE);
+            }
+            vector[index % vector.length] ^= fold ? foldWord(foldSeed, index, word) : word;
+        }
+
+        int[] result = new int[bitsSize];
+        for (int j = 0; j < bitsSize; j++)
+            result[j] = (int) (vector[j >>> 6] >>> (j & 63)) & 1;
         return result;
     }
 }
@@ -0,0 +1,167 @@
+package hashing.functions;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+public class PackedMatrixHashFunction implements IHashFunction {
+    /*
+        same b x u random bit matrix and key vector as MatrixHashFunction, but every row
+        is packed into ceil(u / 64) longs. The UTF-8 bytes of the key and its end marker
+        are streamed straight into a running 64-bit word, and every time a word fills up
+        it is (folded, for a key longer than u bits, and) multiplied against the matching
+        column block of all rows:
+            output bit i ^= parity(row[i][w] & keyWord)
+        so hashing allocates nothing and does b popcounts per 64 key bits.
+     */
+    private final long[][] rows; // b x ceil(u / 64)
+    private final int tableSize;
+    private final int numBits; // b = log2(tableSize)
+    private final int keyBits; // u (number of bits in key)
+    private final int words; // ceil(u / 64)
+    private final long foldSeed;
+
+    public PackedMatrixHashFunction(int tableSize, int keyBits) {
+        this.tableSize = tableSize;
+        this.keyBits = keyBits;
+        this.numBits = Integer.SIZE - Integer.numberOfLeadingZeros(this.tableSize - 1);
+        this.words = (keyBits + Long.SIZE - 1) / Long.SIZE;
+        this.rows = new long[numBits][words];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        for (int i = 0; i < numBits; i++)
+            for (int w = 0; w < words; w++)
+                rows[i][w] = random.nextLong() & columnMask(w);
+        this.foldSeed = random.nextLong();
+    }
+
+    /**
+     * Packs the matrix of an existing {@link MatrixHashFunction}, so both produce identical hashes.
+     */
+    PackedMatrixHashFunction(MatrixHashFunction source) {
+        int[][] matrix = source.getMatrix();
+        this.tableSize = source.getTableSize();
+        this.keyBits = source.getKeyBits();
+        this.numBits = matrix.length;
+        this.words = (keyBits + Long.SIZE - 1) / Long.SIZE;
+        this.rows = new long[numBits][words];
+
+        for (int i = 0; i < numBits; i++)
+            for (int j = 0; j < keyBits; j++)
+                rows[i][j >>> 6] |= (long) matrix[i][j] << (j & 63);
+        this.foldSeed = source.getFoldSeed();
+    }
+
+    /**
+     * Restores a function from its packed rows and fold seed, e.g. when loading a snapshot.
+     */
+    PackedMatrixHashFunction(int tableSize, int keyBits, long[][] rows, long foldSeed) {
+        this.tableSize = tableSize;
+        this.keyBits = keyBits;
+        this.numBits = rows.length;
+        this.words = (keyBits + Long.SIZE - 1) / Long.SIZE;
+        this.rows = rows;
+        this.foldSeed = foldSeed;
+    }
+
+    @Override
+    public int hash(CharSequence key) {
+        int length = key.length();
+        if (MatrixHashFunction.folds(length, keyBits))
+            return hashUtf8(key, true);
+
+        // short key: if it is all ASCII, one byte per char and the end marker still below bit u
+        int hash = 0;
+        long word = 0;
+        int wordIndex = 0;
+        int bitPos = 0;
+        for (int i = 0; i < length; i++) {
+            char c = key.charAt(i);
+            if (c >= 0x80)
+                return hashUtf8(key, MatrixHashFunction.folds(Utf8.length(key), keyBits));
+            word |= (long) c << bitPos;
+            bitPos += Byte.SIZE;
+            if (bitPos == Long.SIZE) {
+                hash ^= multiply(wordIndex++, word);
+                word = 0;
+                bitPos = 0;
+            }
+        }
+        hash ^= multiply(wordIndex, word | 1L << bitPos);
+
+        return hash % tableSize;
+    }
+
+    // Streams the UTF-8 encoding of the key and its end marker through the matrix
+    private int hashUtf8(CharSequence key, boolean fold) {
+        int hash = 0;
+        long word = 0;
+        int wordIndex = 0;
+        int bitPos = 0;
+
+        for (int i = 0; i < key.length(); ) {
+            long encoded;
+            int n;
+            char c = key.charAt(i);
+            if (c < 0x80) {
+                encoded = c;
+                n = 1;
+                i++;
+            } else {
+                encoded = Utf8.encode(key, i);
+                n = Utf8.count(encoded);
+                i += n == 4 ? 2 : 1;
+            }
+            for (int k = 0; k < n; k++, encoded >>>= 8) {
+                word |= (encoded & 0xFF) << bitPos;
+                bitPos += Byte.SIZE;
+                if (bitPos == Long.SIZE) {
+                    hash ^= fold ? multiplyFolded(wordIndex++, word) : multiply(wordIndex++, word);
+                    word = 0;
+                    bitPos = 0;
+                }
+            }
+        }
+        word |= 1L << bitPos;
+        hash ^= fold ? multiplyFolded(wordIndex, word) : multiply(wordIndex, word);
+
+        return hash % tableSize;
+    }
+
+    // Word index of a key longer than u bits, scrambled and wrapped onto the column blocks
+    private int multiplyFolded(int wordIndex, long word) {
+        return multiply(wordIndex % words, MatrixHashFunction.foldWord(foldSeed, wordIndex, word));
+    }
+
+    @Override
+    public IHashFunction generateNew() {
+        return new PackedMatrixHashFunction(tableSize, keyBits);
+    }
+
+    long[][] getRows() {
+        return rows;
+    }
+
+    int getTableSize() {
+        return tableSize;
+    }
+
+    int getKeyBits() {
+        return keyBits;
+    }
+
+    long getFoldSeed() {
+        return foldSeed;
+    }
+
+    // XOR = addition modulo 2, so each key word contributes its partial product independently
+    private int multiply(int wordIndex, long word) {
+        int result = 0;
+        for (int i = 0; i < numBits; i++)
+            result |= (Long.bitCount(rows[i][wordIndex] & word) & 1) << i;
+        return result;
+    }
+
+    private long columnMask(int wordIndex) {
+        int remaining = keyBits - wordIndex * Long.SIZE;
+        return remaining >= Long.SIZE ? -1L : (1L << remaining) - 1;
+    }
+}
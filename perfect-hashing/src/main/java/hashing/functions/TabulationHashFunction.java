@@ -0,0 +1,75 @@
+package hashing.functions;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+public class TabulationHashFunction implements IHashFunction {
+    /*
+        simple tabulation hashing:
+            h(x) = T0[x0] ^ T1[x1] ^ ... ^ T7[x7]
+        where every Ti is its own table of 256 random ints. Simple tabulation is 3-independent
+        over keys of a fixed number of characters, so a key of any length is first compressed to
+        a 64-bit fingerprint of its UTF-8 bytes (see KeyFingerprint) under a seed drawn with the
+        tables, and x0..x7 are the fingerprint's bytes.
+
+        the family is 3-independent over keys whose fingerprints differ. Two distinct keys share
+        a fingerprint with probability about 2^-64, and since every function draws a new seed a
+        pair that does is parted by the next draw. The footprint is POSITIONS * 256 ints (8 KiB)
+        per function, and a hash costs one pass over the key plus 8 table lookups.
+     */
+    private static final int POSITIONS = 8; // bytes of the fingerprint
+
+    private final int[][] tables; // POSITIONS x 256
+    private final long seed; // of the key fingerprint
+    private final int tableSize;
+
+    public TabulationHashFunction(int tableSize) {
+        this.tableSize = tableSize;
+        this.tables = new int[POSITIONS][256];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        for (int i = 0; i < POSITIONS; i++)
+            for (int j = 0; j < 256; j++)
+                tables[i][j] = random.nextInt();
+        this.seed = random.nextLong();
+    }
+
+    /**
+     * Restores a function from its tables and fingerprint seed, e.g. when loading a snapshot.
+     */
+    TabulationHashFunction(int tableSize, int[][] tables, long seed) {
+        this.tableSize = tableSize;
+        this.tables = tables;
+        this.seed = seed;
+    }
+
+    @Override
+    public int hash(CharSequence key) {
+        long x = KeyFingerprint.ofUtf8(key, seed);
+        int h = 0;
+        for (int p = 0; p < POSITIONS; p++, x >>>= 8)
+            h ^= tables[p][(int) x & 0xFF];
+        return reduce(h);
+    }
+
+    // map the 32-bit value onto [0, tableSize) with a multiply instead of a modulo
+    private int reduce(int h) {
+        return (int) (((h & 0xFFFFFFFFL) * tableSize) >>> 32);
+    }
+
+    @Override
+    public IHashFunction generateNew() {
+        return new TabulationHashFunction(tableSize);
+    }
+
+    int[][] getTables() {
+        return tables;
+    }
+
+    long getSeed() {
+        return seed;
+    }
+
+    int getTableSize() {
+        return tableSize;
+    }
+}
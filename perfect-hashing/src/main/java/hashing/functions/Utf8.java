@@ -0,0 +1,106 @@
+package hashing.functions;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Allocation-free UTF-8 encoding of single characters, for code that hashes or compares keys
+ * byte by byte without calling {@link String#getBytes}.
+ * <p>
+ * Well-formed strings encode exactly like {@link java.nio.charset.StandardCharsets#UTF_8}. A lone
+ * surrogate is encoded as its own three byte sequence instead of being replaced by '?', so distinct
+ * strings never share an encoding (the WTF-8 convention).
+ */
+public final class Utf8 {
+
+    private Utf8() {
+    }
+
+    /**
+     * Encodes the character at {@code index}, or the surrogate pair starting there.
+     *
+     * @return The bytes in the low 32 bits, first byte lowest, and the byte count in the bits above.
+     *         A count of 4 means two chars were consumed.
+     */
+    public static long encode(CharSequence s, int index) {
+        char c = s.charAt(index);
+        if (c < 0x80)
+            return 1L << 32 | c;
+        if (c < 0x800)
+            return 2L << 32 | (0xC0 | c >>> 6) | (0x80 | c & 0x3F) << 8;
+        if (Character.isHighSurrogate(c) && index + 1 < s.length() && Character.isLowSurrogate(s.charAt(index + 1))) {
+            int cp = Character.toCodePoint(c, s.charAt(index + 1));
+            return 4L << 32 | (0xF0 | cp >>> 18) | (0x80 | cp >>> 12 & 0x3F) << 8
+                    | (0x80 | cp >>> 6 & 0x3F) << 16 | (long) (0x80 | cp & 0x3F) << 24;
+        }
+        return 3L << 32 | (0xE0 | c >>> 12) | (0x80 | c >>> 6 & 0x3F) << 8 | (0x80 | c & 0x3F) << 16;
+    }
+
+    /**
+     * @return Number of bytes in an encoded value
+     */
+    public static int count(long encoded) {
+        return (int) (encoded >>> 32);
+    }
+
+    /**
+     * @return Number of bytes the whole sequence encodes to
+     */
+    public static int length(CharSequence s) {
+        int bytes = 0;
+        for (int i = 0; i < s.length(); ) {
+            int count = count(encode(s, i));
+            bytes += count;
+            i += count == 4 ? 2 : 1;
+        }
+        return bytes;
+    }
+
+    /**
+     * Decodes {@code bytes[from .. to)} as written by {@link #encode}, lone surrogates included.
+     */
+    public static String decode(byte[] bytes, int from, int to) {
+        char[] chars = new char[to - from];
+        int length = 0;
+        int pos = from;
+        while (pos < to) {
+            int b = bytes[pos] & 0xFF;
+            if (b < 0x80) {
+                chars[length++] = (char) b;
+                pos++;
+            } else if (b < 0xE0) {
+                chars[length++] = (char) ((b & 0x1F) << 6 | bytes[pos + 1] & 0x3F);
+                pos += 2;
+            } else if (b < 0xF0) {
+                chars[length++] = (char) ((b & 0x0F) << 12 | (bytes[pos + 1] & 0x3F) << 6 | bytes[pos + 2] & 0x3F);
+                pos += 3;
+            } else {
+                int cp = (b & 0x07) << 18 | (bytes[pos + 1] & 0x3F) << 12
+                        | (bytes[pos + 2] & 0x3F) << 6 | bytes[pos + 3] & 0x3F;
+                chars[length++] = Character.highSurrogate(cp);
+                chars[length++] = Character.lowSurrogate(cp);
+                pos += 4;
+            }
+        }
+        return new String(chars, 0, length);
+    }
+
+    /**
+     * Compares {@code bytes[from .. to)}, read with absolute gets, with the sequence encoded on the
+     * fly, without allocating.
+     */
+    public static boolean equals(ByteBuffer bytes, int from, int to, CharSequence s) {
+        int pos = from;
+        for (int i = 0; i < s.length(); ) {
+            long encoded = encode(s, i);
+            int n = count(encoded);
+            i += n == 4 ? 2 : 1;
+            if (pos + n > to)
+                return false;
+            for (int k = 0; k < n; k++, encoded >>>= 8) {
+                if (bytes.get(pos++) != (byte) encoded)
+                    return false;
+            }
+        }
+        return pos == to;
+    }
+}
@@ -0,0 +1,325 @@
+package hashing.tables;
+
+import hashing.functions.KeyFingerprint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Two-level FKS table whose keys live in a {@link KeyArena} instead of String objects, laid out for
+ * as few cache misses per lookup as possible.
+ * <p>
+ * Keys are fingerprinted from their UTF-8 bytes with a table-wide seed. The fingerprint picks one of
+ * n buckets, and bucket b owns a region of {@code capacity(b) >= size(b)^2} slots in one shared
+ * {@code long[]} slot array. A per-bucket seed places its keys collision-free inside the region.
+ * Each bucket is two packed {@code long}s in one directory array, {@code start << 32 | seed} and
+ * {@code capacity << 32 | size}, which always share a cache line. A slot holds
+ * {@code id << 32 | low 32 bits of the key's fingerprint}, so a miss is almost always rejected at
+ * the slot without reading the key bytes. A lookup is one fingerprint of the query, a directory and
+ * a slot read and an in-place byte comparison, and never allocates.
+ * <p>
+ * {@link #searchAll(List)} runs the lookups of a group of keys phase by phase: all fingerprints,
+ * then all directory entries, then all slots, then the few key compares left. The loads of one
+ * phase do not depend on each other, so their misses overlap once the table is larger than the caches.
+ * <p>
+ * Updates follow dynamic perfect hashing: an insert into an occupied slot reseeds only its bucket,
+ * moving it to a region twice as large when it has outgrown the old one. The whole table is rebuilt
+ * and compacted when the key count doubles or when abandoned regions and dead keys take more space
+ * than the live ones.
+ */
+public class ArenaHashTable implements IPerfectHashTable {
+
+    private static final int EMPTY = FlatLayout.EMPTY;
+    private static final long EMPTY_SLOT = -1L; // id -1, no key has that id
+    private static final int AVERAGE_KEY_BYTES = 10;
+    private static final int LOOKUP_BATCH = 16;
+
+    private final Random random = new Random();
+
+    private KeyArena arena = new KeyArena(0, 0);
+    private long seed;
+    private int buckets;
+    private long[] directory = new long[0]; // two per bucket: start << 32 | seed, capacity << 32 | size
+    private long[] slots = new long[0];
+    private int slotsEnd;      // slots past this index are spare capacity
+    private int abandonedSlots; // regions left behind by buckets that moved
+    private int size;
+
+    @Override
+    public int build(List<String> keys) {
+        if (keys == null) {
+            throw new IllegalArgumentException("Keys cannot be null");
+        }
+
+        LinkedHashSet<String> distinct = new LinkedHashSet<>(keys);
+        KeyArena keyArena = new KeyArena(distinct.size(), distinct.size() * AVERAGE_KEY_BYTES);
+        for (String key : distinct) {
+            keyArena.append(key);
+        }
+        return build(keyArena);
+    }
+
+    // Builds over every key of the arena, all of which must be distinct
+    private int build(KeyArena keyArena) {
+        FlatLayout layout = FlatLayout.build(keyArena, random);
+
+        long[] newDirectory = new long[2 * layout.buckets];
+        for (int b = 0; b < layout.buckets; b++) {
+            newDirectory[2 * b] = pack(layout.bucketStart[b], layout.bucketSeed[b]);
+            newDirectory[2 * b + 1] = pack(layout.bucketCapacity[b], layout.bucketSize[b]);
+        }
+        long[] newSlots = new long[layout.slotsEnd];
+        for (int s = 0; s < layout.slotsEnd; s++) {
+            int id = layout.slots[s];
+            newSlots[s] = id == EMPTY ? EMPTY_SLOT : slot(id, keyArena.fingerprint(id, layout.seed));
+        }
+
+        this.arena = keyArena;
+        this.seed = layout.seed;
+        this.buckets = layout.buckets;
+        this.directory = newDirectory;
+        this.slots = newSlots;
+        this.slotsEnd = layout.slotsEnd;
+        this.abandonedSlots = 0;
+        this.size = keyArena.count();
+        return layout.attempts;
+    }
+
+    @Override
+    public boolean insert(String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        if (search(key)) {
+            return false;
+        }
+
+        int id = arena.append(key);
+        size++;
+        if (size > 2 * buckets) {
+            rebuild();
+            return true;
+        }
+
+        long fingerprint = arena.fingerprint(id, seed);
+        int b = KeyFingerprint.reduce(fingerprint, buckets);
+        long extent = directory[2 * b + 1];
+        int capacity = high(extent);
+        if (capacity > 0) {
+            long header = directory[2 * b];
+            int slot = high(header) + FlatLayout.slotIndex(fingerprint, (int) header, capacity);
+            if (slots[slot] == EMPTY_SLOT) {
+                slots[slot] = slot(id, fingerprint);
+                directory[2 * b + 1] = extent + 1;
+                return true;
+            }
+        }
+
+        if (!rebuildBucket(b, id) || abandonedSlots > slotsEnd - abandonedSlots) {
+            rebuild();
+        }
+        return true;
+    }
+
+    /**
+     * Reseeds bucket b with the extra id, moving it to the end of the slot array with twice the
+     * required capacity when its region is too small.
+     *
+     * @return false if no seed worked, which calls for a full rebuild
+     */
+    private boolean rebuildBucket(int b, int extraId) {
+        int start = high(directory[2 * b]);
+        int capacity = high(directory[2 * b + 1]);
+        int count = (int) directory[2 * b + 1] + 1;
+
+        // the bucket's keys as local indexes 0 .. count-1, so the placement needs no arena lookups
+        int[] ids = new int[count];
+        long[] fingerprints = new long[count];
+        int n = 0;
+        for (int s = start, end = start + capacity; s < end; s++) {
+            if (slots[s] != EMPTY_SLOT) {
+                ids[n] = (int) (slots[s] >>> 32);
+                fingerprints[n] = arena.fingerprint(ids[n], seed);
+                n++;
+            }
+        }
+        ids[n] = extraId;
+        fingerprints[n] = arena.fingerprint(extraId, seed);
+        int[] local = new int[count];
+        for (int i = 0; i < count; i++) {
+            local[i] = i;
+        }
+
+        if ((long) count * count > capacity) {
+            int newCapacity = 2 * count * count;
+            if (slotsEnd + newCapacity > slots.length) {
+                slots = Arrays.copyOf(slots, Math.max(slots.length * 2, slotsEnd + newCapacity));
+                Arrays.fill(slots, slotsEnd, slots.length, EMPTY_SLOT);
+            }
+            Arrays.fill(slots, start, start + capacity, EMPTY_SLOT);
+            abandonedSlots += capacity;
+            start = slotsEnd;
+            capacity = newCapacity;
+            slotsEnd += newCapacity;
+        }
+
+        int[] region = new int[capacity];
+        Arrays.fill(region, EMPTY);
+        int bucketSeed = FlatLayout.place(region, 0, capacity, local, count, fingerprints, null, seed, random);
+        if (bucketSeed == EMPTY) {
+            return false;
+        }
+        for (int s = 0; s < capacity; s++) {
+            slots[start + s] = region[s] == EMPTY ? EMPTY_SLOT : slot(ids[region[s]], fingerprints[region[s]]);
+        }
+        directory[2 * b] = pack(start, bucketSeed);
+        directory[2 * b + 1] = pack(capacity, count);
+        return true;
+    }
+
+    @Override
+    public boolean delete(String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        if (size == 0) {
+            return false;
+        }
+
+        long fingerprint = KeyFingerprint.ofUtf8(key, seed);
+        int b = KeyFingerprint.reduce(fingerprint, buckets);
+        int slot = find(key, fingerprint, b);
+        if (slot == EMPTY) {
+            return false;
+        }
+
+        arena.markDead((int) (slots[slot] >>> 32));
+        slots[slot] = EMPTY_SLOT;
+        directory[2 * b + 1]--;
+        size--;
+        if (arena.deadBytes() > arena.usedBytes() - arena.deadBytes()) {
+            rebuild();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean search(String key) {
+        return contains(key);
+    }
+
+    @Override
+    public boolean contains(CharSequence key) {
+        if (key == null || size == 0) {
+            return false;
+        }
+        long fingerprint = KeyFingerprint.ofUtf8(key, seed);
+        return find(key, fingerprint, KeyFingerprint.reduce(fingerprint, buckets)) != EMPTY;
+    }
+
+    /**
+     * Looks the keys up in groups, one phase at a time: fingerprints, directory entries, slots, key bytes.
+     */
+    @Override
+    public boolean[] searchAll(List<? extends CharSequence> keys) {
+        boolean[] found = new boolean[keys.size()];
+        if (size == 0) {
+            return found;
+        }
+
+        long[] fingerprints = new long[LOOKUP_BATCH];
+        int[] indexes = new int[LOOKUP_BATCH]; // bucket, then slot
+        long[] entries = new long[LOOKUP_BATCH];
+        for (int from = 0; from < found.length; from += LOOKUP_BATCH) {
+            int count = Math.min(LOOKUP_BATCH, found.length - from);
+            for (int k = 0; k < count; k++) {
+                CharSequence key = keys.get(from + k);
+                fingerprints[k] = key == null ? 0 : KeyFingerprint.ofUtf8(key, seed);
+                indexes[k] = KeyFingerprint.reduce(fingerprints[k], buckets);
+            }
+            for (int k = 0; k < count; k++) {
+                int b = indexes[k];
+                indexes[k] = slotOf(fingerprints[k], directory[2 * b], directory[2 * b + 1]);
+            }
+            for (int k = 0; k < count; k++) {
+                entries[k] = indexes[k] == EMPTY ? EMPTY_SLOT : slots[indexes[k]];
+            }
+            for (int k = 0; k < count; k++) {
+                long entry = entries[k];
+                CharSequence key = keys.get(from + k);
+                found[from + k] = key != null && entry != EMPTY_SLOT && (int) entry == (int) fingerprints[k]
+                        && arena.equals((int) (entry >>> 32), key);
+            }
+        }
+        return found;
+    }
+
+    // Returns the slot holding the key, or EMPTY
+    private int find(CharSequence key, long fingerprint, int b) {
+        int slot = slotOf(fingerprint, directory[2 * b], directory[2 * b + 1]);
+        if (slot == EMPTY) {
+            return EMPTY;
+        }
+        long entry = slots[slot];
+        return entry != EMPTY_SLOT && (int) entry == (int) fingerprint
+                && arena.equals((int) (entry >>> 32), key) ? slot : EMPTY;
+    }
+
+    // Slot of the fingerprint in the bucket with the given directory entry, or EMPTY if it has no slots
+    private static int slotOf(long fingerprint, long header, long extent) {
+        int capacity = high(extent);
+        if (capacity == 0) {
+            return EMPTY;
+        }
+        return high(header) + FlatLayout.slotIndex(fingerprint, (int) header, capacity);
+    }
+
+    private static long pack(int high, int low) {
+        return (long) high << 32 | (low & 0xFFFFFFFFL);
+    }
+
+    private static int high(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    private static long slot(int id, long fingerprint) {
+        return pack(id, (int) fingerprint);
+    }
+
+    // Compacts the arena to the live keys and builds everything again
+    private void rebuild() {
+        build(arena.compact());
+    }
+
+    /**
+     * @return Number of first-level buckets plus all second-level slots in use
+     */
+    @Override
+    public int getSpace() {
+        return buckets + slotsEnd - abandonedSlots;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public List<String> toList() {
+        List<String> keys = new ArrayList<>(size);
+        for (int s = 0; s < slotsEnd; s++) {
+            if (slots[s] != EMPTY_SLOT) {
+                keys.add(arena.toString((int) (slots[s] >>> 32)));
+            }
+        }
+        return keys;
+    }
+
+    public MemoryReport getMemoryReport() {
+        return new MemoryReport(size, arena.usedBytes() - arena.deadBytes(), arena.allocatedBytes(),
+                (long) slots.length * Long.BYTES, (long) directory.length * Long.BYTES);
+    }
+}
@@ -0,0 +1,87 @@
+package hashing.tables;
+
+/**
+ * Retry counts and per-phase timings of a single hash table build.
+ */
+public class BuildReport {
+
+    private final int primaryRetries;
+    private final int secondaryRetries;
+    private final int bucketRebuilds;
+    private final long sumOfSquares;
+    private final long splitNanos;
+    private final long subTableNanos;
+    private final long totalNanos;
+    private final int parallelism;
+
+    BuildReport(int primaryRetries, int secondaryRetries, int bucketRebuilds, long sumOfSquares,
+                long splitNanos, long subTableNanos, long totalNanos, int parallelism) {
+        this.primaryRetries = primaryRetries;
+        this.secondaryRetries = secondaryRetries;
+        this.bucketRebuilds = bucketRebuilds;
+        this.sumOfSquares = sumOfSquares;
+        this.splitNanos = splitNanos;
+        this.subTableNanos = subTableNanos;
+        this.totalNanos = totalNanos;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return Number of times the primary split was redrawn, because it broke the
+     *         sum-of-squares bound or one of its buckets could not be built
+     */
+    public int getPrimaryRetries() {
+        return primaryRetries;
+    }
+
+    /**
+     * @return Number of hash functions redrawn inside sub-tables, summed over all buckets
+     */
+    public int getSecondaryRetries() {
+        return secondaryRetries;
+    }
+
+    /**
+     * @return Number of sub-tables that ran out of attempts and were rebuilt locally
+     */
+    public int getBucketRebuilds() {
+        return bucketRebuilds;
+    }
+
+    /**
+     * @return Sum of the squared bucket sizes of the accepted primary split
+     */
+    public long getSumOfSquares() {
+        return sumOfSquares;
+    }
+
+    /**
+     * @return Time spent drawing primary hash functions and distributing keys to buckets
+     */
+    public long getSplitNanos() {
+        return splitNanos;
+    }
+
+    /**
+     * @return Time spent building the second-level tables
+     */
+    public long getSubTableNanos() {
+        return subTableNanos;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("primary retries %d, secondary retries %d, bucket rebuilds %d, sum of squares %d, "
+                        + "split %.2f ms, sub-tables %.2f ms, total %.2f ms (parallelism %d)",
+                primaryRetries, secondaryRetries, bucketRebuilds, sumOfSquares,
+                splitNanos / 1e6, subTableNanos / 1e6, totalNanos / 1e6, parallelism);
+    }
+}
@@ -0,0 +1,69 @@
+package hashing.tables;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Direct buffers that can be released right away instead of when the garbage collector gets to them.
+ * <p>
+ * Java 21 has no supported way to free a direct buffer; the Foreign Memory API that adds one is
+ * still a preview there. {@link #free(ByteBuffer)} runs the buffer's cleaner through
+ * {@code sun.misc.Unsafe.invokeCleaner}, looked up reflectively from the jdk.unsupported module.
+ * Where that is missing the buffer is left to the collector as before. Only free a buffer no
+ * reader can reach any more, e.g. when its owner is closed.
+ */
+final class DirectMemory {
+
+    private static final MethodHandle INVOKE_CLEANER = findCleaner();
+
+    private DirectMemory() {
+    }
+
+    static ByteBuffer allocate(long bytes) {
+        if (bytes > Integer.MAX_VALUE)
+            throw new IllegalStateException("Off-heap buffer larger than 2 GiB: " + bytes + " bytes");
+        return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Returns the buffer's memory to the operating system now. The buffer, and every view of it,
+     * must not be touched afterwards: reads of freed memory can crash the JVM.
+     *
+     * @param buffer a buffer from {@link #allocate(long)}, not a slice or duplicate
+     * @return false if the memory is left to the garbage collector instead
+     */
+    static boolean free(ByteBuffer buffer) {
+        if (INVOKE_CLEANER == null || buffer == null || !buffer.isDirect())
+            return false;
+        try {
+            INVOKE_CLEANER.invokeExact(buffer);
+            return true;
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return true if {@link #free(ByteBuffer)} releases memory deterministically on this JVM
+     */
+    static boolean canFree() {
+        return INVOKE_CLEANER != null;
+    }
+
+    private static MethodHandle findCleaner() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(field.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
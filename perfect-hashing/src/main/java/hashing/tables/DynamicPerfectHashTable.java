@@ -0,0 +1,294 @@
+package hashing.tables;
+
+import hashing.functions.IHashFunction;
+import hashing.functions.IHashFunctionFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Dynamic perfect hashing after Dietzfelbinger, Karlin, Mehlhorn, Meyer auf der Heide, Rohnert and Tarjan.
+ * <p>
+ * Like {@link LinearSpaceHashTable} a primary function splits the keys into buckets and every bucket is
+ * a collision-free second-level table, but the second level never probes: bucket j may hold up to
+ * {@code limit(j)} keys in {@code 2 * limit(j)^2} slots, so a lookup is always exactly two hashes
+ * and one comparison.
+ * <ul>
+ *   <li>An insert into a free slot just stores the key.</li>
+ *   <li>A real collision redraws the bucket's function (a local rebuild). If the bucket has reached its
+ *   limit, the limit doubles first. Each local rebuild gets {@link #LOCAL_REBUILD_BUDGET} draws.</li>
+ *   <li>A global rebuild happens only when the slots of all buckets exceed the sum-of-squares budget,
+ *   when the key count outgrows the bucket count, when a bucket uses up its draw budget, or when
+ *   deletes leave the table a quarter full.</li>
+ * </ul>
+ */
+public class DynamicPerfectHashTable implements IPerfectHashTable {
+
+    private static final int KEY_BITS = 300;
+    private static final int SUM_OF_SQUARES_FACTOR = 4;
+    // total second-level slots allowed per bucket before a global rebuild
+    private static final int SLOT_BUDGET_FACTOR = 32;
+    private static final int LOCAL_REBUILD_BUDGET = 64;
+    private static final int MAX_PRIMARY_ATTEMPTS = 100;
+
+    private final IHashFunctionFactory hashFunctionFactory;
+    private IHashFunction primaryHashFunction;
+    private int buckets;
+    private int maxKeys;          // global rebuild once the table holds more keys
+    private IHashFunction[] functions;
+    private String[][] slots;
+    private int[] counts;
+    private int[] limits;
+    private long totalSlots;
+    private int size;
+    private int localRebuilds;
+    private int globalRebuilds;
+
+    public DynamicPerfectHashTable() {
+        this(IHashFunctionFactory.PACKED_MATRIX);
+    }
+
+    /**
+     * @param hashFunctionFactory hash family used for the primary split and for every bucket
+     */
+    public DynamicPerfectHashTable(IHashFunctionFactory hashFunctionFactory) {
+        if (hashFunctionFactory == null) {
+            throw new IllegalArgumentException("Hash function factory cannot be null");
+        }
+        this.hashFunctionFactory = hashFunctionFactory;
+        build(new ArrayList<>());
+    }
+
+    @Override
+    public int build(List<String> keys) {
+        if (keys == null) {
+            throw new IllegalArgumentException("Keys cannot be null");
+        }
+        localRebuilds = 0;
+        globalRebuilds = 0;
+        return rebuildAll(new ArrayList<>(new LinkedHashSet<>(keys)));
+    }
+
+    // Returns the number of primary functions rejected on the way
+    private int rebuildAll(List<String> keys) {
+        int n = keys.size();
+        // room for the table to double before the next global rebuild
+        maxKeys = Math.max(4, 2 * n);
+        buckets = maxKeys;
+
+        int attempts = -1;
+        boolean success = false;
+        while (!success) {
+            if (++attempts == MAX_PRIMARY_ATTEMPTS) {
+                // a split fails the bound with probability at most 1/4, so this only happens to keys
+                // the family cannot tell apart
+                throw new RuntimeException("Failed to find a primary hash function after " +
+                        MAX_PRIMARY_ATTEMPTS + " attempts. The key set may be too large or problematic.");
+            }
+            primaryHashFunction = hashFunctionFactory.create(buckets, KEY_BITS);
+            List<List<String>> split = new ArrayList<>(buckets);
+            for (int j = 0; j < buckets; j++) {
+                split.add(new ArrayList<>());
+            }
+            for (String key : keys) {
+                split.get(primaryHashFunction.hash(key)).add(key);
+            }
+
+            long sumOfSquares = 0;
+            for (List<String> bucket : split) {
+                sumOfSquares += (long) bucket.size() * bucket.size();
+            }
+            if (sumOfSquares > SUM_OF_SQUARES_FACTOR * (long) buckets) {
+                continue;
+            }
+
+            functions = new IHashFunction[buckets];
+            slots = new String[buckets][];
+            counts = new int[buckets];
+            limits = new int[buckets];
+            totalSlots = 0;
+            success = true;
+            for (int j = 0; j < buckets && success; j++) {
+                List<String> bucket = split.get(j);
+                counts[j] = bucket.size();
+                limits[j] = Math.max(1, bucket.size());
+                success = placeBucket(j, bucket);
+            }
+        }
+        size = n;
+        return attempts;
+    }
+
+    /**
+     * Draws functions for bucket j, sized by its limit, until its keys land on distinct slots.
+     *
+     * @return false if the local rebuild budget ran out, in which case the bucket is left as it was
+     */
+    private boolean placeBucket(int j, List<String> keys) {
+        int capacity = 2 * limits[j] * limits[j];
+        for (int attempt = 0; attempt < LOCAL_REBUILD_BUDGET; attempt++) {
+            IHashFunction function = hashFunctionFactory.create(capacity, KEY_BITS);
+            String[] table = new String[capacity];
+            boolean injective = true;
+            for (String key : keys) {
+                int slot = function.hash(key);
+                if (table[slot] != null) {
+                    injective = false;
+                    break;
+                }
+                table[slot] = key;
+            }
+            if (injective) {
+                totalSlots += capacity - (slots[j] == null ? 0 : slots[j].length);
+                functions[j] = function;
+                slots[j] = table;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean insert(String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        if (search(key)) {
+            return false;
+        }
+
+        if (size + 1 > maxKeys) {
+            globalRebuild(key);
+            return true;
+        }
+
+        int j = primaryHashFunction.hash(key);
+        int slot = functions[j].hash(key);
+        if (slots[j][slot] == null) {
+            slots[j][slot] = key;
+            counts[j]++;
+            size++;
+            return true;
+        }
+
+        // a real collision: rebuild bucket j alone, with a doubled limit if it is full
+        List<String> bucket = bucketKeys(j);
+        bucket.add(key);
+        if (bucket.size() > limits[j]) {
+            while (bucket.size() > limits[j]) {
+                limits[j] *= 2;
+            }
+            long grownSlots = totalSlots + 2L * limits[j] * limits[j] - slots[j].length;
+            if (grownSlots > SLOT_BUDGET_FACTOR * (long) buckets) {
+                globalRebuild(key);
+                return true;
+            }
+        }
+        localRebuilds++;
+        if (!placeBucket(j, bucket)) {
+            globalRebuild(key);
+            return true;
+        }
+        counts[j]++;
+        size++;
+        return true;
+    }
+
+    private void globalRebuild(String extraKey) {
+        List<String> keys = toList();
+        if (extraKey != null) {
+            keys.add(extraKey);
+        }
+        globalRebuilds++;
+        rebuildAll(keys);
+    }
+
+    private List<String> bucketKeys(int j) {
+        List<String> keys = new ArrayList<>(counts[j] + 1);
+        for (String key : slots[j]) {
+            if (key != null) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    @Override
+    public boolean delete(String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        int j = primaryHashFunction.hash(key);
+        int slot = functions[j].hash(key);
+        if (!key.equals(slots[j][slot])) {
+            return false;
+        }
+
+        slots[j][slot] = null;
+        counts[j]--;
+        size--;
+        if (size > 0 && size < maxKeys / 8) {
+            globalRebuild(null); // shrink, fewer than a quarter of the keys it was built with are left
+        }
+        return true;
+    }
+
+    /**
+     * Exactly two probes: the primary function picks the bucket, the bucket's function the slot.
+     */
+    @Override
+    public boolean search(String key) {
+        return contains(key);
+    }
+
+    @Override
+    public boolean contains(CharSequence key) {
+        if (key == null) {
+            return false;
+        }
+        int j = primaryHashFunction.hash(key);
+        String stored = slots[j][functions[j].hash(key)];
+        return stored != null && stored.contentEquals(key);
+    }
+
+    /**
+     * @return Number of primary buckets plus all second-level slots
+     */
+    @Override
+    public int getSpace() {
+        return (int) (buckets + totalSlots);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public List<String> toList() {
+        List<String> keys = new ArrayList<>(size);
+        for (int j = 0; j < buckets; j++) {
+            for (String key : slots[j]) {
+                if (key != null) {
+                    keys.add(key);
+                }
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * @return Buckets rebuilt on their own because of a collision, since the last {@link #build(List)}
+     */
+    public int getLocalRebuilds() {
+        return localRebuilds;
+    }
+
+    /**
+     * @return Whole-table rebuilds triggered by updates since the last {@link #build(List)}
+     */
+    public int getGlobalRebuilds() {
+        return globalRebuilds;
+    }
+}
@@ -0,0 +1,141 @@
+package hashing.tables;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Puts a {@link BlockedBloomFilter} in front of a table, so most lookups of absent keys are
+ * answered from one filter block without hashing into the table or comparing a key.
+ * <p>
+ * The filter is rebuilt with every {@link #build(List)}, and inserted keys are added to it. Deleted
+ * keys stay in the filter and only cost an extra table lookup, until they outnumber the live keys
+ * and the filter is rebuilt; it is also rebuilt, twice as large, once inserts fill it.
+ */
+public class FilteredHashTable implements IPerfectHashTable {
+
+    private static final int MIN_CAPACITY = 64;
+    private static final int GROWTH = 2;
+
+    private final IPerfectHashTable delegate;
+    private final double falsePositiveRate;
+    private BlockedBloomFilter filter;
+    private int staleKeys; // deleted since the filter was built
+
+    /**
+     * @param delegate          the table answering every lookup the filter lets through; if it is
+     *                          already built the filter is built from its keys
+     * @param falsePositiveRate fraction of absent keys the filter lets through, in (0, 1)
+     */
+    public FilteredHashTable(IPerfectHashTable delegate, double falsePositiveRate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Table cannot be null");
+        }
+        this.delegate = delegate;
+        this.falsePositiveRate = falsePositiveRate;
+        List<String> keys = delegate.size() == 0 ? new ArrayList<>() : delegate.toList();
+        rebuildFilter(keys, keys.size());
+    }
+
+    @Override
+    public int build(List<String> keys) {
+        int retries = delegate.build(keys);
+        rebuildFilter(keys, keys.size());
+        return retries;
+    }
+
+    @Override
+    public boolean insert(String key) {
+        if (!delegate.insert(key)) {
+            return false;
+        }
+        if (filter.getCount() >= filter.getCapacity()) {
+            rebuildFilter(delegate.toList(), delegate.size() * GROWTH);
+        } else {
+            filter.add(key);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean delete(String key) {
+        if (!delegate.delete(key)) {
+            return false;
+        }
+        if (++staleKeys > Math.max(delegate.size(), MIN_CAPACITY)) {
+            rebuildFilter(delegate.toList(), delegate.size());
+        }
+        return true;
+    }
+
+    @Override
+    public boolean search(String key) {
+        return contains(key);
+    }
+
+    @Override
+    public boolean contains(CharSequence key) {
+        return key != null && filter.mightContain(key) && delegate.contains(key);
+    }
+
+    /**
+     * Filters the whole batch first and hands only the keys that pass to the table's batch lookup.
+     */
+    @Override
+    public boolean[] searchAll(List<? extends CharSequence> keys) {
+        boolean[] found = new boolean[keys.size()];
+        List<CharSequence> passed = new ArrayList<>();
+        int[] positions = new int[keys.size()];
+        for (int i = 0; i < found.length; i++) {
+            CharSequence key = keys.get(i);
+            if (key != null && filter.mightContain(key)) {
+                positions[passed.size()] = i;
+                passed.add(key);
+            }
+        }
+        if (!passed.isEmpty()) {
+            boolean[] passedFound = delegate.searchAll(passed);
+            for (int k = 0; k < passedFound.length; k++) {
+                found[positions[k]] = passedFound[k];
+            }
+        }
+        return found;
+    }
+
+    private void rebuildFilter(List<String> keys, int capacity) {
+        BlockedBloomFilter newFilter = new BlockedBloomFilter(Math.max(capacity, MIN_CAPACITY), falsePositiveRate);
+        for (String key : keys) {
+            newFilter.add(key);
+        }
+        filter = newFilter;
+        staleKeys = 0;
+    }
+
+    /**
+     * @return The table behind the filter
+     */
+    public IPerfectHashTable getDelegate() {
+        return delegate;
+    }
+
+    public BlockedBloomFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * @return The table's slots; the filter's bits are not slots, see {@link BlockedBloomFilter#getBytes()}
+     */
+    @Override
+    public int getSpace() {
+        return delegate.getSpace();
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public List<String> toList() {
+        return delegate.toList();
+    }
+}
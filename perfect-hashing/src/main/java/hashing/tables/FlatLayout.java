@@ -0,0 +1,141 @@
+package hashing.tables;
+
+import hashing.functions.KeyFingerprint;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Seed-based FKS layout over the keys of a {@link KeyArena}, in plain arrays.
+ * <p>
+ * A key's fingerprint under {@link #seed} picks bucket {@code reduce(fingerprint, buckets)}. Bucket b
+ * owns {@code slots[bucketStart[b] .. bucketStart[b] + bucketCapacity[b])} and places its keys with
+ * {@link #slotIndex(long, int, int)} under {@code bucketSeed[b]}. Slots hold key ids or {@link #EMPTY}.
+ * The tables that use it either keep the arrays or copy them into other storage.
+ */
+final class FlatLayout {
+
+    static final int EMPTY = -1;
+
+    private static final int SUM_OF_SQUARES_FACTOR = 4;
+    private static final int MAX_BUCKET_ATTEMPTS = 32;
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    long seed;
+    int buckets;
+    int[] bucketStart;
+    int[] bucketCapacity;
+    int[] bucketSize;
+    int[] bucketSeed;
+    int[] slots;
+    int slotsEnd;
+    int attempts; // table-wide seeds rejected before this layout was found
+
+    private FlatLayout() {
+    }
+
+    /**
+     * Lays out all keys of the arena, which must be distinct, drawing seeds from {@code random}.
+     */
+    static FlatLayout build(KeyArena arena, Random random) {
+        FlatLayout layout = new FlatLayout();
+        while (!layout.tryBuild(arena, random.nextLong(), random)) {
+            layout.attempts++;
+        }
+        return layout;
+    }
+
+    private boolean tryBuild(KeyArena arena, long seed, Random random) {
+        int n = arena.count();
+        int numBuckets = Math.max(n, 1);
+        long[] fingerprints = new long[n];
+        int[] counts = new int[numBuckets];
+        for (int id = 0; id < n; id++) {
+            fingerprints[id] = arena.fingerprint(id, seed);
+            counts[KeyFingerprint.reduce(fingerprints[id], numBuckets)]++;
+        }
+
+        long sumOfSquares = 0;
+        for (int count : counts) {
+            sumOfSquares += (long) count * count;
+        }
+        if (sumOfSquares > SUM_OF_SQUARES_FACTOR * (long) numBuckets) {
+            return false;
+        }
+
+        // counting sort of the ids by bucket, starts[b] is where bucket b begins in order
+        int[] starts = new int[numBuckets + 1];
+        for (int b = 0; b < numBuckets; b++) {
+            starts[b + 1] = starts[b] + counts[b];
+        }
+        int[] order = new int[n];
+        int[] fill = Arrays.copyOf(starts, numBuckets);
+        for (int id = 0; id < n; id++) {
+            order[fill[KeyFingerprint.reduce(fingerprints[id], numBuckets)]++] = id;
+        }
+
+        int[] newStart = new int[numBuckets];
+        int[] newCapacity = new int[numBuckets];
+        int[] newSeed = new int[numBuckets];
+        int[] newSlots = new int[(int) sumOfSquares];
+        Arrays.fill(newSlots, EMPTY);
+        int end = 0;
+        for (int b = 0; b < numBuckets; b++) {
+            newStart[b] = end;
+            newCapacity[b] = counts[b] * counts[b];
+            end += newCapacity[b];
+            if (counts[b] > 0) {
+                int[] ids = Arrays.copyOfRange(order, starts[b], starts[b + 1]);
+                int bucketSeedValue = place(newSlots, newStart[b], newCapacity[b], ids, ids.length,
+                        fingerprints, null, seed, random);
+                if (bucketSeedValue == EMPTY) {
+                    return false; // almost surely two keys share a fingerprint, try a new seed
+                }
+                newSeed[b] = bucketSeedValue;
+            }
+        }
+
+        this.seed = seed;
+        this.buckets = numBuckets;
+        this.bucketStart = newStart;
+        this.bucketCapacity = newCapacity;
+        this.bucketSize = counts;
+        this.bucketSeed = newSeed;
+        this.slots = newSlots;
+        this.slotsEnd = end;
+        return true;
+    }
+
+    /**
+     * Draws bucket seeds until the ids land on distinct slots of the region
+     * {@code target[start .. start + capacity)}, which must be empty.
+     *
+     * @param fingerprints fingerprints indexed by id, or null to compute them from {@code arena} under {@code seed}
+     * @return The seed that worked, or EMPTY after MAX_BUCKET_ATTEMPTS tries, with the region left empty
+     */
+    static int place(int[] target, int start, int capacity, int[] ids, int count,
+                     long[] fingerprints, KeyArena arena, long seed, Random random) {
+        for (int attempt = 0; attempt < MAX_BUCKET_ATTEMPTS; attempt++) {
+            int candidate = random.nextInt() & Integer.MAX_VALUE; // EMPTY is never a valid seed
+            boolean placed = true;
+            for (int i = 0; i < count && placed; i++) {
+                long fingerprint = fingerprints != null ? fingerprints[ids[i]] : arena.fingerprint(ids[i], seed);
+                int slot = start + slotIndex(fingerprint, candidate, capacity);
+                if (target[slot] != EMPTY) {
+                    placed = false;
+                } else {
+                    target[slot] = ids[i];
+                }
+            }
+            if (placed) {
+                return candidate;
+            }
+            Arrays.fill(target, start, start + capacity, EMPTY);
+        }
+        return EMPTY;
+    }
+
+    static int slotIndex(long fingerprint, int bucketSeed, int capacity) {
+        return KeyFingerprint.reduce(KeyFingerprint.mix(fingerprint ^ bucketSeed * GOLDEN), capacity);
+    }
+}
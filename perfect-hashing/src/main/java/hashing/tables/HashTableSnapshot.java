@@ -0,0 +1,266 @@
+package hashing.tables;
+
+import hashing.functions.HashFunctionCodec;
+import hashing.functions.IHashFunction;
+import hashing.functions.IHashFunctionFactory;
+import hashing.functions.Utf8;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Saves built hash tables to a binary file and maps them back without rehashing a single key.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ *   int  magic "PHSH"
+ *   int  format version
+ *   int  table type (1 = quadratic, 2 = linear)
+ *   long payload length in bytes
+ *   long CRC32 of the payload
+ *   payload
+ * </pre>
+ * A quadratic payload holds the key count, slot count, hash function parameters, the slot
+ * fingerprints, the offset of every slot's key in the key bytes (slot count + 1 ints, empty slots
+ * take no bytes) and then all key bytes in slot order, UTF-8 encoded like {@link Utf8}.
+ * A linear payload holds the key count, bucket count, total slot count, primary hash function
+ * parameters, the payload offset of every bucket's sub-table (-1 for none) and the sub-tables.
+ * <p>
+ * {@link #load(Path)} verifies the checksum and returns a {@link MappedSnapshotTable} that answers
+ * lookups from the mapped file, so no key or hash function is decoded up front.
+ */
+public final class HashTableSnapshot {
+
+    private static final int MAGIC = 0x50485348; // "PHSH"
+    // 2: matrix functions hash UTF-8 bytes, no longer 7 bits per char
+    // 3: bucket and key offsets, so lookups can be served from the mapped file
+    // 4: matrix functions fold long keys under a per-function seed
+    // 5: fingerprint functions carry their table's fingerprint seed
+    // 6: tabulation functions tabulate a seeded 64-bit fingerprint of the key
+    private static final int VERSION = 6;
+    private static final int HEADER_BYTES = 3 * Integer.BYTES + 2 * Long.BYTES;
+
+    static final int QUADRATIC = 1;
+    static final int LINEAR = 2;
+    static final int NO_SUB_TABLE = -1;
+
+    private HashTableSnapshot() {
+    }
+
+    /**
+     * A {@link MappedSnapshotTable} is saved as the table it was loaded from, which copies it to the heap.
+     */
+    public static void save(IPerfectHashTable table, Path path) throws IOException {
+        if (table instanceof MappedSnapshotTable)
+            table = ((MappedSnapshotTable) table).heapTable();
+        int type;
+        if (table instanceof QuadraticSpaceHashTable)
+            type = QUADRATIC;
+        else if (table instanceof LinearSpaceHashTable)
+            type = LINEAR;
+        else
+            throw new IllegalArgumentException("Snapshots are only supported for linear and quadratic tables");
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.position(HEADER_BYTES);
+
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), crc));
+            if (type == QUADRATIC)
+                writeQuadratic((QuadraticSpaceHashTable) table, out);
+            else
+                writeLinear((LinearSpaceHashTable) table, out);
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(type).putLong(out.size()).putLong(crc.getValue());
+            header.flip();
+            channel.write(header, 0);
+        }
+    }
+
+    /**
+     * Maps the snapshot and verifies the CRC32 of its payload, so a corrupt file is rejected here
+     * instead of answering lookups wrongly. This reads the entire file once.
+     */
+    public static IPerfectHashTable load(Path path) throws IOException {
+        return load(path, true);
+    }
+
+    /**
+     * @param verifyChecksum check the CRC32 of the whole payload; false only checks the header,
+     *                       for files known to be intact, and leaves corruption undetected
+     */
+    public static IPerfectHashTable load(Path path, boolean verifyChecksum) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES)
+                throw new IOException("Snapshot is truncated: " + path);
+            if (fileSize > Integer.MAX_VALUE)
+                throw new IOException("Snapshot is larger than 2 GiB and cannot be mapped: " + path);
+
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            if (buffer.getInt() != MAGIC)
+                throw new IOException("Not a hash table snapshot: " + path);
+            int version = buffer.getInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported snapshot version " + version + ": " + path);
+            int type = buffer.getInt();
+            long payloadLength = buffer.getLong();
+            long checksum = buffer.getLong();
+            if (payloadLength != fileSize - HEADER_BYTES)
+                throw new IOException("Snapshot is truncated: " + path);
+            if (type != QUADRATIC && type != LINEAR)
+                throw new IOException("Unknown table type " + type + ": " + path);
+
+            ByteBuffer payload = buffer.slice();
+            if (verifyChecksum) {
+                CRC32 crc = new CRC32();
+                crc.update(payload.duplicate());
+                if (crc.getValue() != checksum)
+                    throw new IOException("Snapshot checksum mismatch, the file is corrupt: " + path);
+            }
+            return new MappedSnapshotTable(payload, type);
+        }
+    }
+
+    /**
+     * Decodes a whole payload into a heap table.
+     */
+    static IPerfectHashTable read(ByteBuffer payload, int type) throws IOException {
+        return type == QUADRATIC ? readQuadratic(payload, 0, false) : readLinear(payload);
+    }
+
+    private static void writeLinear(LinearSpaceHashTable table, DataOutputStream out) throws IOException {
+        table.finishResize();
+        QuadraticSpaceHashTable[] subTables = table.getSubTables();
+        int buckets = subTables == null ? 0 : subTables.length;
+        out.writeInt(table.size());
+        out.writeInt(buckets);
+        out.writeInt(table.getSpace());
+        if (buckets == 0)
+            return;
+
+        HashFunctionCodec.write(table.getPrimaryHashFunction(), out);
+        int offset = out.size() + buckets * Integer.BYTES;
+        for (QuadraticSpaceHashTable subTable : subTables) {
+            if (subTable == null) {
+                out.writeInt(NO_SUB_TABLE);
+            } else {
+                out.writeInt(offset);
+                offset += quadraticBytes(subTable);
+            }
+        }
+        for (QuadraticSpaceHashTable subTable : subTables) {
+            if (subTable != null)
+                writeQuadratic(subTable, out);
+        }
+        if (out.size() != offset)
+            throw new IllegalStateException("Sub-table sizes do not add up to the payload");
+    }
+
+    private static LinearSpaceHashTable readLinear(ByteBuffer in) throws IOException {
+        int size = in.getInt(0);
+        int buckets = in.getInt(Integer.BYTES);
+        QuadraticSpaceHashTable[] subTables = new QuadraticSpaceHashTable[buckets];
+        if (buckets == 0)
+            return new LinearSpaceHashTable(IHashFunctionFactory.PACKED_MATRIX, null, subTables, 0);
+
+        in.position(3 * Integer.BYTES);
+        IHashFunction primary = HashFunctionCodec.read(in);
+        int directory = in.position();
+        for (int i = 0; i < buckets; i++) {
+            int offset = in.getInt(directory + i * Integer.BYTES);
+            if (offset != NO_SUB_TABLE)
+                subTables[i] = readQuadratic(in, offset, true);
+        }
+        return new LinearSpaceHashTable(HashFunctionCodec.familyOf(primary), primary, subTables, size);
+    }
+
+    private static void writeQuadratic(QuadraticSpaceHashTable table, DataOutputStream out) throws IOException {
+        String[] keys = table.getKeys();
+        int[] fingerprints = table.getFingerprints();
+        out.writeInt(table.size());
+        out.writeInt(keys.length);
+        HashFunctionCodec.write(table.getHashFunction(), out);
+        for (int fingerprint : fingerprints)
+            out.writeInt(fingerprint);
+
+        int offset = 0;
+        out.writeInt(offset);
+        for (int i = 0; i < keys.length; i++) {
+            if (QuadraticSpaceHashTable.isOccupied(fingerprints[i]))
+                offset += Utf8.length(keys[i]);
+            out.writeInt(offset);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (QuadraticSpaceHashTable.isOccupied(fingerprints[i]))
+                writeUtf8(keys[i], out);
+        }
+    }
+
+    private static int quadraticBytes(QuadraticSpaceHashTable table) throws IOException {
+        String[] keys = table.getKeys();
+        int[] fingerprints = table.getFingerprints();
+        DataOutputStream function = new DataOutputStream(OutputStream.nullOutputStream());
+        HashFunctionCodec.write(table.getHashFunction(), function);
+        int bytes = 2 * Integer.BYTES + function.size() + (2 * keys.length + 1) * Integer.BYTES;
+        for (int i = 0; i < keys.length; i++) {
+            if (QuadraticSpaceHashTable.isOccupied(fingerprints[i]))
+                bytes += Utf8.length(keys[i]);
+        }
+        return bytes;
+    }
+
+    private static void writeUtf8(String key, DataOutputStream out) throws IOException {
+        for (int i = 0; i < key.length(); ) {
+            long encoded = Utf8.encode(key, i);
+            int n = Utf8.count(encoded);
+            i += n == 4 ? 2 : 1;
+            for (int k = 0; k < n; k++, encoded >>>= 8)
+                out.write((int) encoded);
+        }
+    }
+
+    private static QuadraticSpaceHashTable readQuadratic(ByteBuffer in, int position, boolean subTable)
+            throws IOException {
+        MappedSnapshotTable.SubTable layout = new MappedSnapshotTable.SubTable(in, position);
+        int size = in.getInt(position);
+        int tableSize = layout.tableSize;
+
+        int[] fingerprints = new int[tableSize];
+        String[] keys = new String[tableSize];
+        byte[] scratch = new byte[64];
+        int count = 0;
+        for (int i = 0; i < tableSize; i++) {
+            fingerprints[i] = in.getInt(layout.fingerprints + i * Integer.BYTES);
+            if (!QuadraticSpaceHashTable.isOccupied(fingerprints[i]))
+                continue;
+            int from = layout.keyFrom(in, i);
+            int length = layout.keyTo(in, i) - from;
+            if (scratch.length < length)
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            in.get(from, scratch, 0, length);
+            keys[i] = Utf8.decode(scratch, 0, length);
+            count++;
+        }
+        if (count != size)
+            throw new IOException("Snapshot slot layout does not match its key count");
+
+        return new QuadraticSpaceHashTable(HashFunctionCodec.familyOf(layout.hashFunction), layout.hashFunction,
+                keys, fingerprints, size, subTable);
+    }
+}
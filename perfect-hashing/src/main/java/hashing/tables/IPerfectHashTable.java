@@ -18,6 +18,32 @@ public interface IPerfectHashTable {
      */
     boolean search(String key);
 
+    /**
+     * Same as {@link #search(String)} for any character sequence, e.g. a slice of a larger buffer.
+     * The built-in tables answer without allocating when their hash family does not allocate,
+     * which holds for every family except {@code MATRIX}.
+     *
+     * @return true if key exists
+     */
+    default boolean contains(CharSequence key) {
+        return key != null && search(key.toString());
+    }
+
+    /**
+     * Looks up many keys at once. Tables that override it work through the keys in small groups,
+     * running each lookup stage for the whole group before the next, so the cache misses of
+     * independent keys overlap instead of being paid one after another.
+     *
+     * @return One entry per key, true if that key exists
+     */
+    default boolean[] searchAll(List<? extends CharSequence> keys) {
+        boolean[] found = new boolean[keys.size()];
+        for (int i = 0; i < found.length; i++) {
+            found[i] = contains(keys.get(i));
+        }
+        return found;
+    }
+
     /**
      * Gets the actual space used by the hash table (total number of slots)
      *
@@ -32,4 +58,11 @@ public interface IPerfectHashTable {
      */
     int size();
 
+    /**
+     * Gets a copy of all keys stored in the hash table, in no particular order
+     *
+     * @return List of keys
+     */
+    List<String> toList();
+
 }
\ No newline at end of file
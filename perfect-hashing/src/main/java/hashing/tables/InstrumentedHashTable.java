@@ -0,0 +1,181 @@
+package hashing.tables;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Wraps a table and records what it does in a {@link TableMetrics}, leaving the table itself
+ * untouched: unwrapping it switches metrics off at no cost.
+ * <p>
+ * Probes per lookup, retries by level and bucket sizes are known for {@link LinearSpaceHashTable}
+ * and {@link QuadraticSpaceHashTable}, also behind a {@link FilteredHashTable}, where a lookup the
+ * filter rejects counts as zero probes. For the other tables only lookups, latency, builds and
+ * slots per key are recorded.
+ */
+public class InstrumentedHashTable implements IPerfectHashTable {
+
+    private final IPerfectHashTable delegate;
+    private final TableMetrics metrics;
+
+    public InstrumentedHashTable(IPerfectHashTable delegate, TableMetrics metrics) {
+        if (delegate == null || metrics == null) {
+            throw new IllegalArgumentException("Table and metrics cannot be null");
+        }
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public int build(List<String> keys) {
+        long start = System.nanoTime();
+        int retries = delegate.build(keys);
+        metrics.recordBuild(retries, System.nanoTime() - start);
+
+        IPerfectHashTable table = table();
+        if (table instanceof LinearSpaceHashTable) {
+            BuildReport report = ((LinearSpaceHashTable) table).getBuildReport();
+            metrics.recordRetries(report.getPrimaryRetries(), report.getSecondaryRetries(), report.getBucketRebuilds());
+        } else if (table instanceof QuadraticSpaceHashTable) {
+            metrics.recordRetries(retries, 0, 0);
+        }
+        recordLayout();
+        return retries;
+    }
+
+    @Override
+    public boolean insert(String key) {
+        long before = updateRebuilds();
+        long subTablesBefore = subTableRebuilds();
+        boolean inserted = delegate.insert(key);
+        recordUpdate(before, subTablesBefore);
+        return inserted;
+    }
+
+    @Override
+    public boolean delete(String key) {
+        long before = updateRebuilds();
+        long subTablesBefore = subTableRebuilds();
+        boolean deleted = delegate.delete(key);
+        recordUpdate(before, subTablesBefore);
+        return deleted;
+    }
+
+    @Override
+    public boolean search(String key) {
+        return contains(key);
+    }
+
+    @Override
+    public boolean contains(CharSequence key) {
+        if (ThreadLocalRandom.current().nextInt(metrics.getSampleInterval()) != 0) {
+            boolean found = delegate.contains(key);
+            metrics.recordLookups(1, found ? 1 : 0);
+            return found;
+        }
+
+        long start = System.nanoTime();
+        boolean found = delegate.contains(key);
+        long nanos = System.nanoTime() - start;
+        metrics.recordLookups(1, found ? 1 : 0);
+        metrics.recordSample(nanos, key == null ? -1 : probes(key));
+        return found;
+    }
+
+    /**
+     * Counts every key; the batch is not timed, since its cost per key is not a single lookup's latency.
+     */
+    @Override
+    public boolean[] searchAll(List<? extends CharSequence> keys) {
+        boolean[] found = delegate.searchAll(keys);
+        int hits = 0;
+        for (boolean f : found) {
+            if (f)
+                hits++;
+        }
+        metrics.recordLookups(found.length, hits);
+        return found;
+    }
+
+    // The table whose structure is reported, behind the filter if there is one
+    private IPerfectHashTable table() {
+        return delegate instanceof FilteredHashTable ? ((FilteredHashTable) delegate).getDelegate() : delegate;
+    }
+
+    // -1 if the table does not report probes
+    private int probes(CharSequence key) {
+        if (delegate instanceof FilteredHashTable && !((FilteredHashTable) delegate).getFilter().mightContain(key))
+            return 0;
+        IPerfectHashTable table = table();
+        if (table instanceof LinearSpaceHashTable)
+            return ((LinearSpaceHashTable) table).probes(key);
+        if (table instanceof QuadraticSpaceHashTable)
+            return ((QuadraticSpaceHashTable) table).probes(key);
+        return -1;
+    }
+
+    private long updateRebuilds() {
+        IPerfectHashTable table = table();
+        if (table instanceof LinearSpaceHashTable)
+            return ((LinearSpaceHashTable) table).getUpdateRebuilds();
+        if (table instanceof QuadraticSpaceHashTable)
+            return ((QuadraticSpaceHashTable) table).getUpdateRebuilds();
+        return 0;
+    }
+
+    private long subTableRebuilds() {
+        IPerfectHashTable table = table();
+        return table instanceof LinearSpaceHashTable ? ((LinearSpaceHashTable) table).getSubTableRebuilds() : 0;
+    }
+
+    private void recordUpdate(long updateRebuildsBefore, long subTableRebuildsBefore) {
+        long rebuilds = updateRebuilds() - updateRebuildsBefore;
+        long subTables = subTableRebuilds() - subTableRebuildsBefore;
+        if (rebuilds != 0 || subTables != 0) {
+            metrics.recordUpdateRebuilds(rebuilds, subTables);
+        }
+        if (rebuilds != 0) {
+            recordLayout();
+        }
+    }
+
+    // Bucket sizes of a two-level table and slots per key, as they are after a (re)build
+    private void recordLayout() {
+        long[] bucketSizeCounts = new long[0];
+        IPerfectHashTable table = table();
+        if (table instanceof LinearSpaceHashTable) {
+            bucketSizeCounts = new long[TableMetrics.BUCKET_SIZE_LIMIT + 1];
+            QuadraticSpaceHashTable[] subTables = ((LinearSpaceHashTable) table).getSubTables();
+            for (QuadraticSpaceHashTable subTable : subTables) {
+                int size = subTable == null ? 0 : subTable.size();
+                bucketSizeCounts[Math.min(size, TableMetrics.BUCKET_SIZE_LIMIT)]++;
+            }
+        }
+        metrics.recordLayout(bucketSizeCounts, delegate.getSpace(), delegate.size());
+    }
+
+    /**
+     * @return The wrapped table, e.g. to save it to a snapshot
+     */
+    public IPerfectHashTable getDelegate() {
+        return delegate;
+    }
+
+    public TableMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public int getSpace() {
+        return delegate.getSpace();
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public List<String> toList() {
+        return delegate.toList();
+    }
+}
@@ -0,0 +1,177 @@
+package hashing.tables;
+
+import hashing.functions.KeyFingerprint;
+import hashing.functions.Utf8;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Append-only store of keys as UTF-8 bytes in one array. Key {@code id} occupies
+ * {@code bytes[offsets[id] .. offsets[id + 1])}, so a key costs its encoded length plus one int
+ * instead of a String object with its own header and backing array.
+ * <p>
+ * Keys are never removed in place: callers mark them dead and {@link #compact()} copies the live
+ * ones into a fresh arena.
+ */
+final class KeyArena {
+
+    private static final int INITIAL_KEYS = 16;
+
+    private byte[] bytes;
+    private int[] offsets;
+    private int count;
+    private long[] dead = new long[0]; // one bit per id
+    private long deadBytes;
+
+    KeyArena(int expectedKeys, int expectedBytes) {
+        this.bytes = new byte[Math.max(expectedBytes, INITIAL_KEYS)];
+        this.offsets = new int[Math.max(expectedKeys, INITIAL_KEYS) + 1];
+    }
+
+    /**
+     * @return Id of the appended key
+     */
+    int append(CharSequence key) {
+        int length = Utf8.length(key);
+        int start = reserve(length);
+        for (int i = 0, pos = start; i < key.length(); ) {
+            long encoded = Utf8.encode(key, i);
+            int n = Utf8.count(encoded);
+            i += n == 4 ? 2 : 1;
+            for (int k = 0; k < n; k++, encoded >>>= 8)
+                bytes[pos++] = (byte) encoded;
+        }
+        return commit(start + length);
+    }
+
+    /**
+     * Appends a key that is already encoded, e.g. one read back from off-heap storage.
+     *
+     * @return Id of the appended key
+     */
+    int append(ByteBuffer source, int from, int to) {
+        int length = to - from;
+        int start = reserve(length);
+        source.get(from, bytes, start, length);
+        return commit(start + length);
+    }
+
+    int count() {
+        return count;
+    }
+
+    int length(int id) {
+        return offsets[id + 1] - offsets[id];
+    }
+
+    long fingerprint(int id, long seed) {
+        return KeyFingerprint.ofUtf8(bytes, offsets[id], offsets[id + 1], seed);
+    }
+
+    /**
+     * Compares the stored bytes with the key encoded on the fly, without allocating.
+     */
+    boolean equals(int id, CharSequence key) {
+        int pos = offsets[id];
+        int end = offsets[id + 1];
+        for (int i = 0; i < key.length(); ) {
+            long encoded = Utf8.encode(key, i);
+            int n = Utf8.count(encoded);
+            i += n == 4 ? 2 : 1;
+            if (pos + n > end)
+                return false;
+            for (int k = 0; k < n; k++, encoded >>>= 8) {
+                if (bytes[pos++] != (byte) encoded)
+                    return false;
+            }
+        }
+        return pos == end;
+    }
+
+    /**
+     * Decodes a key back into a String.
+     */
+    String toString(int id) {
+        return Utf8.decode(bytes, offsets[id], offsets[id + 1]);
+    }
+
+    int offset(int id) {
+        return offsets[id];
+    }
+
+    /**
+     * @return The backing array, valid up to {@link #usedBytes()}; replaced when the arena grows
+     */
+    byte[] bytes() {
+        return bytes;
+    }
+
+    void markDead(int id) {
+        if (dead.length <= id >>> 6)
+            dead = Arrays.copyOf(dead, Math.max(dead.length * 2, (id >>> 6) + 1));
+        if ((dead[id >>> 6] & 1L << id) == 0) {
+            dead[id >>> 6] |= 1L << id;
+            deadBytes += length(id);
+        }
+    }
+
+    boolean isDead(int id) {
+        return id >>> 6 < dead.length && (dead[id >>> 6] & 1L << id) != 0;
+    }
+
+    /**
+     * @return Bytes of keys marked dead, reclaimed by the next {@link #compact()}
+     */
+    long deadBytes() {
+        return deadBytes;
+    }
+
+    /**
+     * @return Encoded bytes of all keys, dead ones included
+     */
+    int usedBytes() {
+        return offsets[count];
+    }
+
+    /**
+     * @return Heap bytes held by the two arrays, including unused capacity
+     */
+    long allocatedBytes() {
+        return bytes.length + (long) offsets.length * Integer.BYTES + (long) dead.length * Long.BYTES;
+    }
+
+    /**
+     * Copies the live keys into a new arena, keeping their relative order.
+     */
+    KeyArena compact() {
+        KeyArena copy = new KeyArena(count, (int) (usedBytes() - deadBytes));
+        for (int id = 0; id < count; id++) {
+            if (isDead(id))
+                continue;
+            int length = length(id);
+            int start = copy.reserve(length);
+            System.arraycopy(bytes, offsets[id], copy.bytes, start, length);
+            copy.commit(start + length);
+        }
+        return copy;
+    }
+
+    private int reserve(int length) {
+        int start = offsets[count];
+        if (start + length > bytes.length) {
+            long grown = Math.max((long) bytes.length * 2, (long) start + length);
+            if (grown > Integer.MAX_VALUE - 8)
+                throw new IllegalStateException("Key arena is full");
+            bytes = Arrays.copyOf(bytes, (int) grown);
+        }
+        if (count + 2 > offsets.length)
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        return start;
+    }
+
+    private int commit(int end) {
+        offsets[count + 1] = end;
+        return count++;
+    }
+}
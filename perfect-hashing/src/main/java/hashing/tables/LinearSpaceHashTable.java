@@ -1,35 +1,105 @@
 package hashing.tables;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
+import hashing.functions.FingerprintHashFunction;
 import hashing.functions.IHashFunction;
-import hashing.functions.MatrixHashFunction;
+import hashing.functions.IHashFunctionFactory;
 
-public class LinearSpaceHashTable implements IPerfectHashTable {
+public class LinearSpaceHashTable implements IPerfectHashTable, AutoCloseable {
 
+    private final IHashFunctionFactory hashFunctionFactory;
     private IHashFunction primaryHashFunction;
+    private long fingerprintSeed = ThreadLocalRandom.current().nextLong(); // shared by every level
     private QuadraticSpaceHashTable[] subTables;
     private int capacity;
     private int currentSize;
     private int rebuildAttempts;
+    private BuildReport lastBuildReport;
+    private int parallelism = 1;
+    private ForkJoinPool pool;
+    private boolean incrementalResize;
+    private IHashFunction nextPrimaryHashFunction;
+    private QuadraticSpaceHashTable[] nextSubTables;
+    private int nextCapacity;
+    private int migrationCursor; // old buckets below the cursor have been moved
+    private long maxInsertNanos;
+    private long updateRebuilds; // whole-table rebuilds an update triggered, for TableMetrics
+    private long subTableRebuilds; // sub-tables rebuilt because an insert did not fit
     private static final int DEFAULT_KEY_BITS = 128;
+    private static final int MAX_SUB_TABLE_RETRIES = 3;
+    private static final int SUB_TABLE_BATCH = 1024;
+    private static final int SUM_OF_SQUARES_FACTOR = 4;
+    private static final int MAX_PRIMARY_ATTEMPTS = 100;
+    private static final int MIGRATION_STEP = 2; // old buckets moved per update during a resize
+    private static final int LOOKUP_BATCH = 16;
+
+    public LinearSpaceHashTable() {
+        this(IHashFunctionFactory.PACKED_MATRIX);
+    }
+
+    /**
+     * @param hashFunctionFactory hash family used for the primary split and for every sub-table
+     */
+    public LinearSpaceHashTable(IHashFunctionFactory hashFunctionFactory) {
+        if (hashFunctionFactory == null) {
+            throw new IllegalArgumentException("Hash function factory cannot be null");
+        }
+        this.hashFunctionFactory = hashFunctionFactory;
+    }
+
+    /**
+     * Restores an already built table, e.g. from a snapshot.
+     */
+    LinearSpaceHashTable(IHashFunctionFactory hashFunctionFactory, IHashFunction primaryHashFunction,
+                         QuadraticSpaceHashTable[] subTables, int size) {
+        this(hashFunctionFactory);
+        if (primaryHashFunction instanceof FingerprintHashFunction) {
+            this.fingerprintSeed = ((FingerprintHashFunction) primaryHashFunction).getFingerprintSeed();
+        }
+        this.primaryHashFunction = primaryHashFunction;
+        this.subTables = subTables;
+        this.capacity = subTables.length;
+        this.currentSize = size;
+    }
 
     @Override
     public int build(List<String> keys) {
         if (keys == null) {
             throw new IllegalArgumentException("Keys cannot be null");
         }
+        maxInsertNanos = 0;
+        return build(keys, keys.size());
+    }
 
-        this.capacity = keys.size();
+    // Builds with the given number of primary buckets, at least one per key
+    private int build(List<String> keys, int buckets) {
+        long buildStart = System.nanoTime();
+        long splitNanos = 0;
+        long subTableNanos = 0;
+        long sumOfSquares = 0;
+        LongAdder secondaryRetries = new LongAdder();
+        LongAdder bucketRebuilds = new LongAdder();
+
+        this.capacity = buckets;
         this.subTables = new QuadraticSpaceHashTable[capacity];
         this.rebuildAttempts = -1;
         this.currentSize = 0;
+        clearResize();
 
+        long[] keyFingerprints = null; // with the fingerprint family every retry reuses them
         boolean success = false;
-        while (!success) {
-            success = true;
+        while (!success && rebuildAttempts < MAX_PRIMARY_ATTEMPTS) {
             rebuildAttempts++;
+            long splitStart = System.nanoTime();
 
             // Initialize temporary buckets for key distribution
             List<List<String>> tempBuckets = new ArrayList<>(capacity);
@@ -37,33 +107,180 @@ public class LinearSpaceHashTable implements IPerfectHashTable {
                 tempBuckets.add(new ArrayList<>());
             }
 
-            primaryHashFunction = new MatrixHashFunction(capacity, DEFAULT_KEY_BITS);
+            primaryHashFunction = newPrimaryHashFunction(capacity);
+            if (primaryHashFunction instanceof FingerprintHashFunction && keyFingerprints == null) {
+                keyFingerprints = new long[keys.size()];
+                int k = 0;
+                for (String key : keys) {
+                    keyFingerprints[k++] = ((FingerprintHashFunction) primaryHashFunction).fingerprint(key);
+                }
+            }
 
             // Distribute keys to buckets
+            int k = 0;
             for (String key : keys) {
-                int bucketIndex = Math.abs(primaryHashFunction.hash(key) % capacity);
-                tempBuckets.get(bucketIndex).add(key);
+                long keyFingerprint = keyFingerprints == null ? 0 : keyFingerprints[k++];
+                tempBuckets.get(bucketIndex(primaryHashFunction, key, keyFingerprint)).add(key);
             }
 
-            // Build each sub-table
-            for (int i = 0; i < capacity; i++) {
-                List<String> bucketKeys = tempBuckets.get(i);
-                subTables[i] = new QuadraticSpaceHashTable();
-
-                try{
-                    subTables[i].build(bucketKeys);
-                } catch (RuntimeException e) {
-                    // If a rebuild fails, mark success as false and break
-                    success = false;
-                    break;
-                }
+            // FKS: the sub-tables only stay linear in total if sum(b_i^2) <= 4n,
+            // which a universal primary function satisfies with probability at least 1/2
+            sumOfSquares = 0;
+            for (List<String> bucket : tempBuckets) {
+                sumOfSquares += (long) bucket.size() * bucket.size();
+            }
+
+            long subTableStart = System.nanoTime();
+            splitNanos += subTableStart - splitStart;
+            if (sumOfSquares > SUM_OF_SQUARES_FACTOR * (long) capacity) {
+                success = false;
+                continue;
+            }
+            if (keyFingerprints != null
+                    && hasEqualFingerprints(keyFingerprints, (FingerprintHashFunction) primaryHashFunction, capacity)) {
+                // keys with one fingerprint share a bucket and a slot under every multiplier,
+                // only a new seed parts them
+                fingerprintSeed = ThreadLocalRandom.current().nextLong();
+                keyFingerprints = null;
+                success = false;
+                continue;
+            }
+
+            // Build each sub-table, the primary split is only redone if a bucket keeps failing
+            if (parallelism > 1 && capacity > SUB_TABLE_BATCH) {
+                AtomicBoolean failed = new AtomicBoolean();
+                getPool().invoke(new SubTableBuildTask(tempBuckets, 0, capacity, failed, secondaryRetries, bucketRebuilds));
+                success = !failed.get();
+            } else {
+                success = buildSubTables(tempBuckets, 0, capacity, secondaryRetries, bucketRebuilds);
             }
+            subTableNanos += System.nanoTime() - subTableStart;
+        }
+        if (!success) {
+            // a split fails the bound with probability at most 1/2, so this only happens to keys
+            // the family cannot tell apart
+            throw new RuntimeException("Failed to find a primary hash function after " +
+                    MAX_PRIMARY_ATTEMPTS + " attempts. The key set may be too large or problematic.");
         }
 
         currentSize = keys.size();
+        lastBuildReport = new BuildReport(rebuildAttempts, secondaryRetries.intValue(), bucketRebuilds.intValue(),
+                sumOfSquares, splitNanos, subTableNanos, System.nanoTime() - buildStart, parallelism);
         return rebuildAttempts;
     }
 
+    /**
+     * Groups the fingerprints by bucket and compares each bucket's among themselves, which takes
+     * O(n) time because the buckets passed the sum of squares bound.
+     */
+    private static boolean hasEqualFingerprints(long[] keyFingerprints, FingerprintHashFunction primary, int buckets) {
+        int[] starts = new int[buckets + 1];
+        for (long fingerprint : keyFingerprints) {
+            starts[primary.hash(fingerprint) + 1]++;
+        }
+        for (int b = 0; b < buckets; b++) {
+            starts[b + 1] += starts[b];
+        }
+        int[] ends = Arrays.copyOf(starts, buckets);
+        long[] grouped = new long[keyFingerprints.length];
+        for (long fingerprint : keyFingerprints) {
+            grouped[ends[primary.hash(fingerprint)]++] = fingerprint;
+        }
+        for (int b = 0; b < buckets; b++) {
+            for (int i = starts[b]; i < starts[b + 1]; i++) {
+                for (int j = i + 1; j < starts[b + 1]; j++) {
+                    if (grouped[i] == grouped[j]) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // A primary function for the given bucket count, fingerprinting under the table's seed
+    private IHashFunction newPrimaryHashFunction(int buckets) {
+        return QuadraticSpaceHashTable.withFingerprintSeed(hashFunctionFactory.create(buckets, DEFAULT_KEY_BITS),
+                fingerprintSeed);
+    }
+
+    // A sub-table fingerprinting under the table's seed
+    private QuadraticSpaceHashTable newSubTable() {
+        return new QuadraticSpaceHashTable(hashFunctionFactory, fingerprintSeed);
+    }
+
+    // Builds sub-tables [from, to), returns false if one of them could not be built
+    private boolean buildSubTables(List<List<String>> buckets, int from, int to,
+                                   LongAdder secondaryRetries, LongAdder bucketRebuilds) {
+        for (int i = from; i < to; i++) {
+            subTables[i] = buildSubTable(buckets.get(i), secondaryRetries, bucketRebuilds);
+            if (subTables[i] == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private QuadraticSpaceHashTable buildSubTable(List<String> bucketKeys,
+                                                  LongAdder secondaryRetries, LongAdder bucketRebuilds) {
+        for (int attempt = 0; attempt < MAX_SUB_TABLE_RETRIES; attempt++) {
+            QuadraticSpaceHashTable subTable = newSubTable();
+            try {
+                secondaryRetries.add(subTable.build(bucketKeys));
+                return subTable;
+            } catch (RuntimeException e) {
+                // Retry this bucket on its own before blaming the primary split
+                bucketRebuilds.increment();
+            }
+        }
+        return null;
+    }
+
+    private ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(parallelism);
+        }
+        return pool;
+    }
+
+    /**
+     * Splits the bucket range in halves until a batch is small enough to build directly.
+     */
+    private class SubTableBuildTask extends RecursiveAction {
+        private final List<List<String>> buckets;
+        private final int from;
+        private final int to;
+        private final AtomicBoolean failed;
+        private final LongAdder secondaryRetries;
+        private final LongAdder bucketRebuilds;
+
+        SubTableBuildTask(List<List<String>> buckets, int from, int to, AtomicBoolean failed,
+                          LongAdder secondaryRetries, LongAdder bucketRebuilds) {
+            this.buckets = buckets;
+            this.from = from;
+            this.to = to;
+            this.failed = failed;
+            this.secondaryRetries = secondaryRetries;
+            this.bucketRebuilds = bucketRebuilds;
+        }
+
+        @Override
+        protected void compute() {
+            if (failed.get()) {
+                return;
+            }
+            if (to - from <= SUB_TABLE_BATCH) {
+                if (!buildSubTables(buckets, from, to, secondaryRetries, bucketRebuilds)) {
+                    failed.set(true);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SubTableBuildTask(buckets, from, mid, failed, secondaryRetries, bucketRebuilds),
+                    new SubTableBuildTask(buckets, mid, to, failed, secondaryRetries, bucketRebuilds));
+        }
+    }
+
     @Override
     public boolean insert(String key) {
         if (key == null) {
@@ -73,60 +290,189 @@ public class LinearSpaceHashTable implements IPerfectHashTable {
             return false; // Key already exists
         }
 
+        long insertStart = System.nanoTime();
+        insertAbsent(key);
+        maxInsertNanos = Math.max(maxInsertNanos, System.nanoTime() - insertStart);
+        return true;
+    }
+
+    private void insertAbsent(String key) {
+        if (isResizing()) {
+            migrateStep();
+        }
+
         // Check if we need to resize
-        if (currentSize >= capacity) {
-            // Double the capacity and rebuild
-            List<String> allKeys = getAllKeys();
-            allKeys.add(key);
-            if (capacity == 0) {
-                capacity = 1;
+        if (currentSize >= capacity && !isResizing()) {
+            if (incrementalResize && capacity > 0) {
+                startResize();
             } else {
-                capacity *= 2;
+                // Double the capacity and rebuild
+                List<String> allKeys = toList();
+                allKeys.add(key);
+                build(allKeys, Math.max(1, capacity * 2));
+                updateRebuilds++;
+                return;
             }
-            build(allKeys);
-            return true;
         }
 
-        // First check if key would cause collision in existing structure
-        int tableIndex = Math.abs(primaryHashFunction.hash(key) % capacity);
+        // During a resize the key goes wherever search will look for it
+        boolean migrated = isResizing() && bucketIndex(primaryHashFunction, key) < migrationCursor;
+        boolean inserted = migrated
+                ? insertIntoBucket(nextSubTables, bucketIndex(nextPrimaryHashFunction, key), key)
+                : insertIntoBucket(subTables, bucketIndex(primaryHashFunction, key), key);
 
+        // If too many attempts, rebuild the entire table (the rebuilt sub-table already holds the key)
+        if (!inserted) {
+            build(toList());
+            updateRebuilds++;
+            return;
+        }
+        currentSize++;
+    }
+
+    /**
+     * Inserts an absent key into one sub-table, creating or rebuilding the sub-table as needed.
+     *
+     * @return false if the sub-table needed too many attempts and the whole table should be rebuilt
+     */
+    private boolean insertIntoBucket(QuadraticSpaceHashTable[] tables, int tableIndex, String key) {
         // Initialize the sub-table if it's null
-        if (subTables[tableIndex] == null) {
-            subTables[tableIndex] = new QuadraticSpaceHashTable();
-            subTables[tableIndex].build(new ArrayList<>());
+        if (tables[tableIndex] == null) {
+            tables[tableIndex] = newSubTable();
+            tables[tableIndex].build(new ArrayList<>());
         }
 
         // Try to insert into the sub-table
-        boolean inserted = subTables[tableIndex].insert(key);
+        if (tables[tableIndex].insert(key)) {
+            return true;
+        }
 
         // If insertion fails, rebuild the sub-table only
-        if (!inserted) {
-            List<String> bucketKeys = subTables[tableIndex].toList();
-            bucketKeys.add(key);
-            subTables[tableIndex] = new QuadraticSpaceHashTable();
-            int attempts = subTables[tableIndex].build(bucketKeys);
-
-            // If too many attempts, rebuild the entire table
-            if (attempts > 100) {
-                List<String> allKeys = getAllKeys();
-                allKeys.add(key);
-                build(allKeys);
+        List<String> bucketKeys = tables[tableIndex].toList();
+        bucketKeys.add(key);
+        subTableRebuilds++;
+        tables[tableIndex] = newSubTable();
+        return tables[tableIndex].build(bucketKeys) <= 100;
+    }
+
+    // primary functions are always drawn for the current bucket count, so no reduction is needed
+    private static int bucketIndex(IHashFunction hashFunction, CharSequence key) {
+        return hashFunction.hash(key);
+    }
+
+    // Same, but the fingerprint family takes the key's precomputed fingerprint instead of the key
+    private static int bucketIndex(IHashFunction hashFunction, CharSequence key, long keyFingerprint) {
+        if (hashFunction instanceof FingerprintHashFunction)
+            return ((FingerprintHashFunction) hashFunction).hash(keyFingerprint);
+        return hashFunction.hash(key);
+    }
+
+    // The key's fingerprint if the table uses the fingerprint family, so every level can share it
+    private long keyFingerprint(CharSequence key) {
+        return primaryHashFunction instanceof FingerprintHashFunction
+                ? ((FingerprintHashFunction) primaryHashFunction).fingerprint(key) : 0;
+    }
+
+    /*
+        incremental resize:
+            instead of rebuilding everything once the table is full, a second structure with twice the
+            buckets is allocated and every insert or delete moves MIGRATION_STEP old buckets into it.
+            old buckets below migrationCursor are already moved, so a key whose old bucket is below the
+            cursor lives in the new structure and any other key in the old one: reads still need one
+            lookup. migration finishes after capacity / MIGRATION_STEP updates, well before the new
+            structure is full, and the new one then replaces the old.
+     */
+    private void startResize() {
+        nextCapacity = capacity * 2;
+        nextPrimaryHashFunction = newPrimaryHashFunction(nextCapacity);
+        nextSubTables = new QuadraticSpaceHashTable[nextCapacity];
+        migrationCursor = 0;
+    }
+
+    private void migrateStep() {
+        for (int step = 0; step < MIGRATION_STEP && migrationCursor < capacity; step++) {
+            QuadraticSpaceHashTable old = subTables[migrationCursor];
+            if (old != null) {
+                for (String key : old.toList()) {
+                    if (!insertIntoBucket(nextSubTables, bucketIndex(nextPrimaryHashFunction, key), key)) {
+                        // give up on the resize, keys of this bucket may already be in both structures
+                        build(new ArrayList<>(new LinkedHashSet<>(toList())));
+                        updateRebuilds++;
+                        return;
+                    }
+                }
+                subTables[migrationCursor] = null;
             }
+            migrationCursor++;
         }
 
-        currentSize++;
-        return true;
+        if (migrationCursor == capacity) {
+            primaryHashFunction = nextPrimaryHashFunction;
+            subTables = nextSubTables;
+            capacity = nextCapacity;
+            clearResize();
+        }
+    }
+
+    private void clearResize() {
+        nextPrimaryHashFunction = null;
+        nextSubTables = null;
+        nextCapacity = 0;
+        migrationCursor = 0;
+    }
+
+    /**
+     * @return true while an incremental resize is moving keys into the larger structure
+     */
+    public boolean isResizing() {
+        return nextSubTables != null;
+    }
+
+    /**
+     * Moves all remaining buckets of a pending incremental resize at once.
+     */
+    public void finishResize() {
+        while (isResizing()) {
+            migrateStep();
+        }
+    }
+
+    public boolean isIncrementalResize() {
+        return incrementalResize;
+    }
+
+    /**
+     * With incremental resize a full table grows over the following updates instead of in one
+     * O(n) rebuild, which bounds the latency of every single insert. Off by default.
+     */
+    public void setIncrementalResize(boolean incrementalResize) {
+        this.incrementalResize = incrementalResize;
     }
 
-    // Helper method to get all keys currently in the table
-    private List<String> getAllKeys() {
-        List<String> allKeys = new ArrayList<>();
-        for (QuadraticSpaceHashTable subTable : subTables) {
+    /**
+     * @return Slowest {@link #insert(String)} of a new key since the last {@link #build(List)}, in nanoseconds
+     */
+    public long getMaxInsertNanos() {
+        return maxInsertNanos;
+    }
+
+    @Override
+    public List<String> toList() {
+        List<String> allKeys = new ArrayList<>(currentSize);
+        addAll(subTables, allKeys);
+        addAll(nextSubTables, allKeys);
+        return allKeys;
+    }
+
+    private static void addAll(QuadraticSpaceHashTable[] tables, List<String> allKeys) {
+        if (tables == null) {
+            return;
+        }
+        for (QuadraticSpaceHashTable subTable : tables) {
             if (subTable != null) {
                 allKeys.addAll(subTable.toList());
             }
         }
-        return allKeys;
     }
 
     @Override
@@ -139,30 +485,112 @@ public class LinearSpaceHashTable implements IPerfectHashTable {
             return false; // Key not found
         }
 
-        int tableIndex = Math.abs(primaryHashFunction.hash(key) % capacity);
-        boolean deleted = subTables[tableIndex].delete(key);
+        boolean deleted;
+        if (isResizing() && bucketIndex(primaryHashFunction, key) < migrationCursor) {
+            deleted = nextSubTables[bucketIndex(nextPrimaryHashFunction, key)].delete(key);
+        } else {
+            deleted = subTables[bucketIndex(primaryHashFunction, key)].delete(key);
+        }
 
         if (deleted) {
             currentSize--;
         }
+        if (isResizing()) {
+            migrateStep();
+        }
 
         return deleted;
     }
 
     @Override
     public boolean search(String key) {
+        return contains(key);
+    }
+
+    @Override
+    public boolean contains(CharSequence key) {
         if (key == null || capacity == 0) {
             return false;
         }
 
-        int tableIndex = Math.abs(primaryHashFunction.hash(key) % capacity);
-        return subTables[tableIndex] != null && subTables[tableIndex].search(key);
+        // one fingerprint pass over the key serves both levels (and both tables during a resize)
+        long fingerprint = keyFingerprint(key);
+        QuadraticSpaceHashTable subTable = subTableOf(key, fingerprint);
+        return subTable != null && subTable.contains(key, fingerprint);
+    }
+
+    /**
+     * @return Slots a lookup of the key inspects, the primary bucket counting as one, or 0 if the
+     *         table was never built
+     */
+    int probes(CharSequence key) {
+        if (capacity == 0) {
+            return 0;
+        }
+        long fingerprint = keyFingerprint(key);
+        QuadraticSpaceHashTable subTable = subTableOf(key, fingerprint);
+        return 1 + (subTable == null ? 0 : subTable.probes(key, fingerprint));
+    }
+
+    // The sub-table that holds the key if it is present, null if its bucket is still empty
+    private QuadraticSpaceHashTable subTableOf(CharSequence key, long fingerprint) {
+        int tableIndex = bucketIndex(primaryHashFunction, key, fingerprint);
+        if (tableIndex < migrationCursor) {
+            return nextSubTables[bucketIndex(nextPrimaryHashFunction, key, fingerprint)];
+        }
+        return subTables[tableIndex];
+    }
+
+    /**
+     * Runs each lookup stage for a group of keys before the next: all primary hashes, then all
+     * sub-table hashes, then all slot compares.
+     */
+    @Override
+    public boolean[] searchAll(List<? extends CharSequence> keys) {
+        boolean[] found = new boolean[keys.size()];
+        if (capacity == 0 || isResizing()) {
+            // during a resize every key is routed on its own
+            for (int i = 0; i < found.length; i++) {
+                found[i] = contains(keys.get(i));
+            }
+            return found;
+        }
+
+        QuadraticSpaceHashTable[] tables = new QuadraticSpaceHashTable[LOOKUP_BATCH];
+        long[] fingerprints = new long[LOOKUP_BATCH];
+        int[] homes = new int[LOOKUP_BATCH];
+        for (int from = 0; from < found.length; from += LOOKUP_BATCH) {
+            int count = Math.min(LOOKUP_BATCH, found.length - from);
+            for (int k = 0; k < count; k++) {
+                CharSequence key = keys.get(from + k);
+                if (key == null) {
+                    tables[k] = null;
+                    continue;
+                }
+                fingerprints[k] = keyFingerprint(key);
+                tables[k] = subTables[bucketIndex(primaryHashFunction, key, fingerprints[k])];
+            }
+            for (int k = 0; k < count; k++) {
+                homes[k] = tables[k] == null ? -1 : tables[k].home(keys.get(from + k), fingerprints[k]);
+            }
+            for (int k = 0; k < count; k++) {
+                found[from + k] = homes[k] != -1 && tables[k].findFrom(keys.get(from + k), homes[k]) != -1;
+            }
+        }
+        return found;
     }
 
     @Override
     public int getSpace() {
+        return space(capacity, subTables) + space(nextCapacity, nextSubTables);
+    }
+
+    private static int space(int capacity, QuadraticSpaceHashTable[] tables) {
         int totalSpace = capacity;
-        for (QuadraticSpaceHashTable subTable : subTables) {
+        if (tables == null) {
+            return totalSpace;
+        }
+        for (QuadraticSpaceHashTable subTable : tables) {
             if (subTable != null) {
                 totalSpace += subTable.getSpace();
             }
@@ -175,8 +603,68 @@ public class LinearSpaceHashTable implements IPerfectHashTable {
         return currentSize;
     }
 
+    IHashFunction getPrimaryHashFunction() {
+        return primaryHashFunction;
+    }
+
+    QuadraticSpaceHashTable[] getSubTables() {
+        return subTables;
+    }
+
+    long getUpdateRebuilds() {
+        return updateRebuilds;
+    }
+
+    long getSubTableRebuilds() {
+        return subTableRebuilds;
+    }
+
+    /**
+     * @return Number of times the primary hash function was redrawn in the most recent build
+     */
     public int getRebuildAttempts() {
         return rebuildAttempts;
     }
 
+    /**
+     * @return Primary and secondary retries and timings of the most recent {@link #build(List)},
+     *         or null if the table was never built
+     */
+    public BuildReport getBuildReport() {
+        return lastBuildReport;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets how many threads build the sub-tables. With 1 (the default) everything runs on the caller's thread.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        if (pool != null && parallelism != this.parallelism) {
+            pool.shutdown();
+            pool = null;
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Stops the threads of a parallel build. The table stays usable, and the next parallel build starts new ones.
+     */
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    // The pool of the last parallel build, null if there is none
+    ForkJoinPool getBuildPool() {
+        return pool;
+    }
 }
@@ -0,0 +1,90 @@
+package hashing.tables;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts non-negative values in log-linear buckets, the way HdrHistogram does: values below
+ * {@value #SUB_BUCKETS} * 2 get a bucket each, and every larger power of two is split into
+ * {@value #SUB_BUCKETS} equal buckets, so a percentile is off by at most 1 / {@value #SUB_BUCKETS}
+ * of its value. Fixed size, never allocates while recording, and safe to record from many threads.
+ */
+public class LogHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    public void record(long value) {
+        counts.incrementAndGet(bucketOf(Math.max(0, value)));
+    }
+
+    /**
+     * @return Number of values recorded since the last {@link #reset()}
+     */
+    public long getCount() {
+        long total = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            total += counts.get(b);
+        }
+        return total;
+    }
+
+    /**
+     * @param fraction from 0 to 1, e.g. 0.99 for the 99th percentile
+     * @return Largest value of the bucket holding that fraction of all values, or 0 if empty
+     */
+    public long percentile(double fraction) {
+        long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts.get(b);
+            if (seen >= rank) {
+                return highestValueOf(b);
+            }
+        }
+        return highestValueOf(BUCKETS - 1);
+    }
+
+    /**
+     * @return Exact counts of the values 0 .. limit - 1, and of all larger values in the last entry
+     */
+    public long[] counts(int limit) {
+        long[] result = new long[limit + 1];
+        for (int b = 0; b < BUCKETS; b++) {
+            long count = counts.get(b);
+            if (count != 0) {
+                long low = lowestValueOf(b);
+                result[low < limit && highestValueOf(b) == low ? (int) low : limit] += count;
+            }
+        }
+        return result;
+    }
+
+    public void reset() {
+        for (int b = 0; b < BUCKETS; b++) {
+            counts.set(b, 0);
+        }
+    }
+
+    // values below 2 * SUB_BUCKETS map to themselves, larger ones to (exponent, top SUB_BUCKET_BITS bits)
+    private static int bucketOf(long value) {
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value | SUB_BUCKETS) - SUB_BUCKET_BITS;
+        return exponent * SUB_BUCKETS + (int) (value >>> exponent);
+    }
+
+    private static long lowestValueOf(int bucket) {
+        int exponent = Math.max(0, bucket / SUB_BUCKETS - 1);
+        return (long) (bucket - exponent * SUB_BUCKETS) << exponent;
+    }
+
+    private static long highestValueOf(int bucket) {
+        int exponent = Math.max(0, bucket / SUB_BUCKETS - 1);
+        return lowestValueOf(bucket) + (1L << exponent) - 1;
+    }
+}
@@ -0,0 +1,250 @@
+package hashing.tables;
+
+import hashing.functions.FingerprintHashFunction;
+import hashing.functions.HashFunctionCodec;
+import hashing.functions.IHashFunction;
+import hashing.functions.Utf8;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A linear or quadratic table answering lookups straight from a mapped snapshot file, as returned
+ * by {@link HashTableSnapshot#load(Path)}.
+ * <p>
+ * Apart from the checksum, which is one sequential pass over the file, loading reads the header
+ * and the primary hash function only, and the table keeps a handful of objects on the heap
+ * whatever its size. A lookup hashes the key, follows the bucket and slot offsets in the mapping
+ * and compares the UTF-8 key bytes in place. A sub-table's hash function is decoded the first time
+ * a lookup reaches it and kept for the next ones.
+ * <p>
+ * The first {@link #insert(String)}, {@link #delete(String)} or {@link #build(List)} copies the
+ * table to the heap as a regular {@link LinearSpaceHashTable} or {@link QuadraticSpaceHashTable},
+ * which costs O(n) once; every later call goes to that copy.
+ */
+public class MappedSnapshotTable implements IPerfectHashTable {
+
+    private final ByteBuffer payload; // absolute gets only, so lookups may run concurrently
+    private final int type;
+    private final int size;
+    private final int space;
+    private final IHashFunction primaryHashFunction; // null for a quadratic snapshot or an empty linear one
+    private final int directory; // position of the bucket offsets of a linear snapshot
+    private final SubTable[] subTables; // decoded on first use
+    private IPerfectHashTable heapTable;
+
+    MappedSnapshotTable(ByteBuffer payload, int type) throws IOException {
+        this.payload = payload;
+        this.type = type;
+        if (type == HashTableSnapshot.QUADRATIC) {
+            SubTable root = new SubTable(payload, 0);
+            this.size = payload.getInt(0);
+            this.space = root.tableSize;
+            this.primaryHashFunction = null;
+            this.directory = 0;
+            this.subTables = new SubTable[]{root};
+            return;
+        }
+
+        this.size = payload.getInt(0);
+        int buckets = payload.getInt(Integer.BYTES);
+        this.space = payload.getInt(2 * Integer.BYTES);
+        this.subTables = new SubTable[buckets];
+        if (buckets == 0) {
+            this.primaryHashFunction = null;
+            this.directory = 0;
+            return;
+        }
+        ByteBuffer in = payload.duplicate().position(3 * Integer.BYTES);
+        this.primaryHashFunction = HashFunctionCodec.read(in);
+        this.directory = in.position();
+    }
+
+    /**
+     * Where a snapshotted quadratic table keeps its parts inside the payload.
+     */
+    static final class SubTable {
+        final IHashFunction hashFunction;
+        final int tableSize;
+        final int fingerprints; // position of the slot fingerprints
+        final int offsets; // position of the tableSize + 1 key offsets
+        final int keys; // position of the key bytes
+
+        SubTable(ByteBuffer payload, int position) throws IOException {
+            this.tableSize = payload.getInt(position + Integer.BYTES);
+            ByteBuffer in = payload.duplicate().position(position + 2 * Integer.BYTES);
+            this.hashFunction = HashFunctionCodec.read(in);
+            this.fingerprints = in.position();
+            this.offsets = fingerprints + tableSize * Integer.BYTES;
+            this.keys = offsets + (tableSize + 1) * Integer.BYTES;
+        }
+
+        int keyFrom(ByteBuffer payload, int slot) {
+            return keys + payload.getInt(offsets + slot * Integer.BYTES);
+        }
+
+        int keyTo(ByteBuffer payload, int slot) {
+            return keys + payload.getInt(offsets + (slot + 1) * Integer.BYTES);
+        }
+
+        // Same probe sequence as QuadraticSpaceHashTable.findFrom
+        boolean contains(ByteBuffer payload, CharSequence key, long keyFingerprint) {
+            int idx = hashFunction instanceof FingerprintHashFunction
+                    ? ((FingerprintHashFunction) hashFunction).hash(keyFingerprint)
+                    : hashFunction.hash(key);
+            int fingerprint = QuadraticSpaceHashTable.fingerprint(key);
+            for (int probes = 0; probes < tableSize; probes++) {
+                int state = payload.getInt(fingerprints + idx * Integer.BYTES);
+                if (state == QuadraticSpaceHashTable.EMPTY)
+                    return false;
+                if (state == fingerprint && Utf8.equals(payload, keyFrom(payload, idx), keyTo(payload, idx), key))
+                    return true;
+                idx = idx + 1 == tableSize ? 0 : idx + 1;
+            }
+            return false;
+        }
+    }
+
+    @Override
+    public boolean search(String key) {
+        return contains(key);
+    }
+
+    @Override
+    public boolean contains(CharSequence key) {
+        if (heapTable != null)
+            return heapTable.contains(key);
+        if (key == null || size == 0)
+            return false;
+
+        if (type == HashTableSnapshot.QUADRATIC) {
+            SubTable root = subTables[0];
+            return root.contains(payload, key, keyFingerprint(root.hashFunction, key));
+        }
+        long fingerprint = keyFingerprint(primaryHashFunction, key);
+        int bucket = primaryHashFunction instanceof FingerprintHashFunction
+                ? ((FingerprintHashFunction) primaryHashFunction).hash(fingerprint)
+                : primaryHashFunction.hash(key);
+        SubTable subTable = subTable(bucket);
+        return subTable != null && subTable.contains(payload, key, fingerprint);
+    }
+
+    // The key's fingerprint if the table uses the fingerprint family, whose seed every level shares
+    private static long keyFingerprint(IHashFunction hashFunction, CharSequence key) {
+        return hashFunction instanceof FingerprintHashFunction
+                ? ((FingerprintHashFunction) hashFunction).fingerprint(key) : 0;
+    }
+
+    private SubTable subTable(int bucket) {
+        SubTable subTable = subTables[bucket];
+        if (subTable == null) {
+            int offset = payload.getInt(directory + bucket * Integer.BYTES);
+            if (offset == HashTableSnapshot.NO_SUB_TABLE)
+                return null;
+            subTable = decode(offset);
+            subTables[bucket] = subTable; // immutable, so a racing lookup at worst decodes it twice
+        }
+        return subTable;
+    }
+
+    private SubTable decode(int offset) {
+        try {
+            return new SubTable(payload, offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt snapshot sub-table at offset " + offset, e);
+        }
+    }
+
+    @Override
+    public int build(List<String> keys) {
+        return heapTable().build(keys);
+    }
+
+    /**
+     * Copies the table to the heap first. Costs O(n) once.
+     */
+    @Override
+    public boolean insert(String key) {
+        return heapTable().insert(key);
+    }
+
+    /**
+     * Copies the table to the heap first. Costs O(n) once.
+     */
+    @Override
+    public boolean delete(String key) {
+        return heapTable().delete(key);
+    }
+
+    @Override
+    public int getSpace() {
+        return heapTable != null ? heapTable.getSpace() : space;
+    }
+
+    @Override
+    public int size() {
+        return heapTable != null ? heapTable.size() : size;
+    }
+
+    @Override
+    public List<String> toList() {
+        if (heapTable != null)
+            return heapTable.toList();
+        List<String> keys = new ArrayList<>(size);
+        if (type == HashTableSnapshot.QUADRATIC) {
+            addAll(subTables[0], keys);
+            return keys;
+        }
+        for (int bucket = 0; bucket < subTables.length; bucket++) {
+            SubTable subTable = subTables[bucket];
+            if (subTable == null) {
+                int offset = payload.getInt(directory + bucket * Integer.BYTES);
+                if (offset == HashTableSnapshot.NO_SUB_TABLE)
+                    continue;
+                subTable = decode(offset); // not kept, a full scan should not fill the cache
+            }
+            addAll(subTable, keys);
+        }
+        return keys;
+    }
+
+    private void addAll(SubTable subTable, List<String> keys) {
+        byte[] scratch = new byte[64];
+        for (int slot = 0; slot < subTable.tableSize; slot++) {
+            if (!QuadraticSpaceHashTable.isOccupied(payload.getInt(subTable.fingerprints + slot * Integer.BYTES)))
+                continue;
+            int from = subTable.keyFrom(payload, slot);
+            int length = subTable.keyTo(payload, slot) - from;
+            if (scratch.length < length)
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            payload.get(from, scratch, 0, length);
+            keys.add(Utf8.decode(scratch, 0, length));
+        }
+    }
+
+    /**
+     * @return false until the first update copies the table to the heap
+     */
+    public boolean isOnHeap() {
+        return heapTable != null;
+    }
+
+    /**
+     * @return The table as a heap {@link LinearSpaceHashTable} or {@link QuadraticSpaceHashTable},
+     *         decoded from the mapping on the first call
+     */
+    IPerfectHashTable heapTable() {
+        if (heapTable == null) {
+            try {
+                heapTable = HashTableSnapshot.read(payload.duplicate(), type);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Corrupt snapshot", e);
+            }
+        }
+        return heapTable;
+    }
+}
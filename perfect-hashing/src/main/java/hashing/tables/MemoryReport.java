@@ -0,0 +1,80 @@
+package hashing.tables;
+
+/**
+ * Heap footprint of an {@link ArenaHashTable}, split into the key arena and the index over it.
+ */
+public class MemoryReport {
+
+    // String object (24 B) + byte[] header (16 B) + 4 B average padding, with compressed oops
+    private static final int STRING_OVERHEAD_BYTES = 44;
+
+    private final int keys;
+    private final long keyBytes;
+    private final long arenaBytes;
+    private final long slotBytes;
+    private final long directoryBytes;
+
+    MemoryReport(int keys, long keyBytes, long arenaBytes, long slotBytes, long directoryBytes) {
+        this.keys = keys;
+        this.keyBytes = keyBytes;
+        this.arenaBytes = arenaBytes;
+        this.slotBytes = slotBytes;
+        this.directoryBytes = directoryBytes;
+    }
+
+    public int getKeys() {
+        return keys;
+    }
+
+    /**
+     * @return UTF-8 bytes of the live keys, the payload everything else is overhead on
+     */
+    public long getKeyBytes() {
+        return keyBytes;
+    }
+
+    /**
+     * @return Bytes allocated for the arena: key bytes, offsets, dead keys and spare capacity
+     */
+    public long getArenaBytes() {
+        return arenaBytes;
+    }
+
+    /**
+     * @return Bytes of the second-level slot array holding key ids
+     */
+    public long getSlotBytes() {
+        return slotBytes;
+    }
+
+    /**
+     * @return Bytes of the per-bucket offsets, sizes and seeds
+     */
+    public long getDirectoryBytes() {
+        return directoryBytes;
+    }
+
+    public long getTotalBytes() {
+        return arenaBytes + slotBytes + directoryBytes;
+    }
+
+    public double getBytesPerKey() {
+        return keys == 0 ? 0 : (double) getTotalBytes() / keys;
+    }
+
+    /**
+     * @return Estimated heap bytes of the same keys held as one String each (Latin-1, compressed oops),
+     *         not counting any table around them
+     */
+    public long getStringEquivalentBytes() {
+        return keys * (long) STRING_OVERHEAD_BYTES + keyBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d keys, %d key bytes: arena %d B, slots %d B, directory %d B, "
+                        + "total %d B (%.1f B/key, String keys alone ~%d B)",
+                keys, keyBytes, arenaBytes, slotBytes, directoryBytes,
+                getTotalBytes(), getBytesPerKey(), getStringEquivalentBytes());
+    }
+}
@@ -0,0 +1,321 @@
+package hashing.tables;
+
+import hashing.functions.KeyFingerprint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Static minimal perfect hash table in the style of PTHash (compress, hash, displace).
+ * <p>
+ * Every key is fingerprinted once and assigned to one of about {@code c * n / log2(n)} buckets.
+ * Buckets are placed largest first: for each bucket the smallest "pilot" is searched such that
+ * {@code mix(fingerprint ^ hash(pilot)) mod n} sends all of its keys to free, distinct slots.
+ * Only the pilots are kept. Most of them are small and many repeat, so they are dictionary
+ * coded as in PTHash: every bucket stores the index of its pilot among the distinct pilots,
+ * packed to the width of the largest index, which takes under 3 bits per key. The n keys sit in
+ * a single array at their slot, so a lookup is one fingerprint, one pilot index read, one
+ * dictionary read and one string compare.
+ * <p>
+ * The structure is read-only: {@link #insert(String)} and {@link #delete(String)} rebuild the whole
+ * table from scratch and therefore cost O(n). Load the keys with {@link #build(List)} instead.
+ */
+public class MinimalPerfectHashTable implements IPerfectHashTable {
+
+    // about c * n / log2(n) buckets, PTHash's c trades build time for space
+    private static final double BUCKET_CONSTANT = 3.5;
+    // skewed bucket assignment: 60% of the keys go to 30% of the buckets
+    private static final long DENSE_KEY_THRESHOLD = (long) (0.6 * (1L << 32));
+    private static final double DENSE_BUCKET_FRACTION = 0.3;
+    private static final int LOOKUP_BATCH = 16;
+
+    private final Random random = new Random();
+
+    private long seed;
+    private String[] keys = new String[0];
+    private int numBuckets;
+    private int denseBuckets;
+    private long[] pilots = new long[0]; // numBuckets dictionary indexes of indexWidth bits each
+    private int indexWidth;
+    private long[] pilotValues = new long[0]; // the distinct pilots in ascending order, valueWidth bits each
+    private int valueWidth;
+    private int distinctPilots;
+
+    @Override
+    public int build(List<String> keys) {
+        if (keys == null) {
+            throw new IllegalArgumentException("Keys cannot be null");
+        }
+
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(keys));
+        int rebuildAttempts = 0;
+        while (!tryBuild(distinct, random.nextLong())) {
+            rebuildAttempts++;
+        }
+        return rebuildAttempts;
+    }
+
+    /**
+     * Rebuilds the table with the new key added. Costs O(n).
+     */
+    @Override
+    public boolean insert(String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        if (search(key)) {
+            return false;
+        }
+
+        List<String> allKeys = toList();
+        allKeys.add(key);
+        build(allKeys);
+        return true;
+    }
+
+    /**
+     * Rebuilds the table without the key. Costs O(n).
+     */
+    @Override
+    public boolean delete(String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        if (!search(key)) {
+            return false;
+        }
+
+        List<String> allKeys = toList();
+        allKeys.remove(key);
+        build(allKeys);
+        return true;
+    }
+
+    @Override
+    public boolean search(String key) {
+        return contains(key);
+    }
+
+    @Override
+    public boolean contains(CharSequence key) {
+        if (key == null || keys.length == 0) {
+            return false;
+        }
+
+        long fingerprint = KeyFingerprint.of(key, seed);
+        long pilot = getPilot(bucket(fingerprint));
+        return keys[position(fingerprint, pilot)].contentEquals(key);
+    }
+
+    /**
+     * Runs each lookup stage for a group of keys before the next: all fingerprints, then all
+     * pilot reads, then all key compares.
+     */
+    @Override
+    public boolean[] searchAll(List<? extends CharSequence> queries) {
+        boolean[] found = new boolean[queries.size()];
+        if (keys.length == 0) {
+            return found;
+        }
+
+        long[] fingerprints = new long[LOOKUP_BATCH];
+        int[] positions = new int[LOOKUP_BATCH];
+        for (int from = 0; from < found.length; from += LOOKUP_BATCH) {
+            int count = Math.min(LOOKUP_BATCH, found.length - from);
+            for (int k = 0; k < count; k++) {
+                CharSequence key = queries.get(from + k);
+                fingerprints[k] = key == null ? 0 : KeyFingerprint.of(key, seed);
+            }
+            for (int k = 0; k < count; k++) {
+                positions[k] = position(fingerprints[k], getPilot(bucket(fingerprints[k])));
+            }
+            for (int k = 0; k < count; k++) {
+                CharSequence key = queries.get(from + k);
+                found[from + k] = key != null && keys[positions[k]].contentEquals(key);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * A minimal perfect hash table has exactly one slot per key.
+     */
+    @Override
+    public int getSpace() {
+        return keys.length;
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public List<String> toList() {
+        return new ArrayList<>(Arrays.asList(keys));
+    }
+
+    /**
+     * @return Bits of hash function metadata (pilot indexes and the pilot dictionary) per key,
+     *         excluding the key array
+     */
+    public double getBitsPerKey() {
+        return keys.length == 0 ? 0
+                : ((double) numBuckets * indexWidth + (double) distinctPilots * valueWidth) / keys.length;
+    }
+
+    private boolean tryBuild(List<String> input, long seed) {
+        int n = input.size();
+        this.seed = seed;
+        this.numBuckets = n <= 1 ? 1 : (int) Math.ceil(BUCKET_CONSTANT * n / (Math.log(n) / Math.log(2)));
+        this.denseBuckets = Math.max(1, (int) (numBuckets * DENSE_BUCKET_FRACTION));
+
+        long[] fingerprints = new long[n];
+        int[] bucketStart = new int[numBuckets + 1];
+        for (int i = 0; i < n; i++) {
+            fingerprints[i] = KeyFingerprint.of(input.get(i), seed);
+            bucketStart[bucket(fingerprints[i]) + 1]++;
+        }
+
+        // counting sort: keys of bucket b end up in order[bucketStart[b] .. bucketStart[b + 1])
+        int maxBucketSize = 0;
+        for (int b = 0; b < numBuckets; b++) {
+            maxBucketSize = Math.max(maxBucketSize, bucketStart[b + 1]);
+            bucketStart[b + 1] += bucketStart[b];
+        }
+        int[] order = new int[n];
+        int[] fill = Arrays.copyOf(bucketStart, numBuckets);
+        for (int i = 0; i < n; i++) {
+            order[fill[bucket(fingerprints[i])]++] = i;
+        }
+
+        // buckets sorted by size, largest first
+        int[] sizeStart = new int[maxBucketSize + 2];
+        for (int b = 0; b < numBuckets; b++) {
+            sizeStart[maxBucketSize - (bucketStart[b + 1] - bucketStart[b]) + 1]++;
+        }
+        for (int s = 0; s <= maxBucketSize; s++) {
+            sizeStart[s + 1] += sizeStart[s];
+        }
+        int[] bucketOrder = new int[numBuckets];
+        for (int b = 0; b < numBuckets; b++) {
+            bucketOrder[sizeStart[maxBucketSize - (bucketStart[b + 1] - bucketStart[b])]++] = b;
+        }
+
+        long[] bucketPilots = new long[numBuckets];
+        long[] taken = new long[(n + 63) >>> 6];
+        int[] positions = new int[maxBucketSize];
+        String[] slots = new String[n];
+        long pilotLimit = 16L * n + 1024;
+
+        for (int b : bucketOrder) {
+            int from = bucketStart[b];
+            int bucketSize = bucketStart[b + 1] - from;
+            if (bucketSize == 0) {
+                break; // the remaining buckets are empty as well
+            }
+
+            long pilot = 0;
+            while (true) {
+                if (pilot > pilotLimit) {
+                    return false; // almost surely two keys share a fingerprint, try a new seed
+                }
+                int placed = 0;
+                for (; placed < bucketSize; placed++) {
+                    int pos = reduce(fingerprints[order[from + placed]], pilot, n);
+                    if ((taken[pos >>> 6] & (1L << pos)) != 0 || contains(positions, placed, pos)) {
+                        break;
+                    }
+                    positions[placed] = pos;
+                }
+                if (placed == bucketSize) {
+                    break;
+                }
+                pilot++;
+            }
+
+            for (int k = 0; k < bucketSize; k++) {
+                taken[positions[k] >>> 6] |= 1L << positions[k];
+                slots[positions[k]] = input.get(order[from + k]);
+            }
+            bucketPilots[b] = pilot;
+        }
+
+        // a few late buckets need huge pilots, but indexes only grow with the number of distinct ones
+        long[] distinct = Arrays.stream(bucketPilots).distinct().sorted().toArray();
+        long[] indexes = new long[numBuckets];
+        for (int b = 0; b < numBuckets; b++) {
+            indexes[b] = Arrays.binarySearch(distinct, bucketPilots[b]);
+        }
+        this.distinctPilots = distinct.length;
+        this.valueWidth = width(distinct[distinct.length - 1]);
+        this.pilotValues = pack(distinct, valueWidth);
+        this.indexWidth = width(distinct.length - 1);
+        this.pilots = pack(indexes, indexWidth);
+        this.keys = slots;
+        return true;
+    }
+
+    private int bucket(long fingerprint) {
+        long low = fingerprint & 0xFFFFFFFFL;
+        int sparseBuckets = numBuckets - denseBuckets;
+        if (sparseBuckets == 0 || (fingerprint >>> 32) < DENSE_KEY_THRESHOLD) {
+            return (int) ((low * denseBuckets) >>> 32);
+        }
+        return denseBuckets + (int) ((low * sparseBuckets) >>> 32);
+    }
+
+    private int position(long fingerprint, long pilot) {
+        return reduce(fingerprint, pilot, keys.length);
+    }
+
+    private static int reduce(long fingerprint, long pilot, int n) {
+        return KeyFingerprint.reduce(KeyFingerprint.mix(fingerprint ^ KeyFingerprint.mix(pilot)), n);
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long getPilot(int bucket) {
+        return get(pilotValues, (int) get(pilots, bucket, indexWidth), valueWidth);
+    }
+
+    private static int width(long maxValue) {
+        return Math.max(1, Long.SIZE - Long.numberOfLeadingZeros(maxValue));
+    }
+
+    // Packs the values at width bits each
+    private static long[] pack(long[] values, int width) {
+        long[] words = new long[(int) (((long) values.length * width + 63) >>> 6)];
+        for (int i = 0; i < values.length; i++) {
+            long bit = (long) i * width;
+            int word = (int) (bit >>> 6);
+            int shift = (int) (bit & 63);
+            words[word] |= values[i] << shift;
+            if (shift + width > Long.SIZE) {
+                words[word + 1] |= values[i] >>> (Long.SIZE - shift);
+            }
+        }
+        return words;
+    }
+
+    private static long get(long[] words, int index, int width) {
+        long bit = (long) index * width;
+        int word = (int) (bit >>> 6);
+        int shift = (int) (bit & 63);
+        long value = words[word] >>> shift;
+        if (shift + width > Long.SIZE) {
+            value |= words[word + 1] << (Long.SIZE - shift);
+        }
+        return width == Long.SIZE ? value : value & ((1L << width) - 1);
+    }
+}
@@ -0,0 +1,385 @@
+package hashing.tables;
+
+import hashing.functions.KeyFingerprint;
+import hashing.functions.Utf8;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Two-level FKS table stored outside the Java heap.
+ * <p>
+ * The table uses the same seed-based layout as {@link ArenaHashTable}. Once built, the bucket
+ * directory (start, capacity and seed per bucket), the slot array of key ids, the key offsets and
+ * the UTF-8 key bytes all sit in direct buffers. The heap keeps a handful of fields whatever the
+ * dictionary size, so the garbage collector never scans or copies the keys. Lookups read the
+ * buffers with absolute gets and compare bytes in place, so they do not allocate.
+ * <p>
+ * Updates work on the off-heap image. {@link #insert(String)} appends the key's bytes and re-places
+ * only its bucket, moving the bucket to a fresh region of {@code 2 c^2} slots at the end of the slot
+ * array when its old region is too small. {@link #delete(String)} empties one slot. Both cost
+ * O(bucket size). Once the keys outnumber the buckets twice over, or deleted keys or abandoned
+ * regions make up half of the storage, the table is rebuilt from the off-heap keys, which costs
+ * O(n) and briefly stages the live key bytes (not Strings) on the heap; that happens after
+ * Θ(n) updates, so updates stay O(1) amortized.
+ * <p>
+ * Buffers an update replaces are left to the garbage collector. Only {@link #close()} frees the
+ * current ones right away (see {@link DirectMemory}), and the table cannot be used afterwards.
+ * Like the other tables it is not thread-safe: lookups must not run concurrently with updates,
+ * and no call may race with or follow close, since a read of freed memory crashes the JVM
+ * instead of throwing.
+ */
+public class OffHeapHashTable implements IPerfectHashTable, AutoCloseable {
+
+    private static final int EMPTY = FlatLayout.EMPTY;
+    private static final int DIRECTORY_INTS = 3; // start, capacity, seed
+    private static final int AVERAGE_KEY_BYTES = 10;
+    private static final int REGION_SLACK = 2; // a moved bucket gets 2 c^2 slots, room to grow in place
+    private static final int MAX_LOAD = 2; // keys per bucket before a rebuild doubles the buckets
+    private static final int MIN_DEAD_KEYS = 16;
+
+    private final Random random = new Random();
+
+    private long seed;
+    private int buckets;
+    private int size; // live keys
+    private int keyCount; // key ids handed out, deleted ones included
+    private int slotsEnd;
+    private int deadSlots; // slots of regions abandoned by moved buckets
+    private long updateRebuilds;
+    private ByteBuffer directory = DirectMemory.allocate(0);
+    private ByteBuffer slots = DirectMemory.allocate(0);
+    private ByteBuffer offsets = DirectMemory.allocate(Integer.BYTES);
+    private ByteBuffer keyBytes = DirectMemory.allocate(0);
+    private boolean closed;
+
+    @Override
+    public int build(List<String> keys) {
+        if (keys == null) {
+            throw new IllegalArgumentException("Keys cannot be null");
+        }
+        ensureOpen();
+
+        LinkedHashSet<String> distinct = new LinkedHashSet<>(keys);
+        KeyArena arena = new KeyArena(distinct.size(), distinct.size() * AVERAGE_KEY_BYTES);
+        for (String key : distinct) {
+            arena.append(key);
+        }
+        return layOut(arena);
+    }
+
+    // Replaces the image with a fresh layout of the arena's keys
+    private int layOut(KeyArena arena) {
+        FlatLayout layout = FlatLayout.build(arena, random);
+
+        ByteBuffer newDirectory = DirectMemory.allocate((long) layout.buckets * DIRECTORY_INTS * Integer.BYTES);
+        for (int b = 0; b < layout.buckets; b++) {
+            newDirectory.putInt(layout.bucketStart[b]);
+            newDirectory.putInt(layout.bucketCapacity[b]);
+            newDirectory.putInt(layout.bucketSeed[b]);
+        }
+        ByteBuffer newSlots = DirectMemory.allocate((long) layout.slotsEnd * Integer.BYTES);
+        for (int s = 0; s < layout.slotsEnd; s++) {
+            newSlots.putInt(layout.slots[s]);
+        }
+        int n = arena.count();
+        ByteBuffer newOffsets = DirectMemory.allocate((long) (n + 1) * Integer.BYTES);
+        for (int id = 0; id <= n; id++) {
+            newOffsets.putInt(arena.offset(id));
+        }
+        ByteBuffer newKeyBytes = DirectMemory.allocate(arena.usedBytes());
+        newKeyBytes.put(arena.bytes(), 0, arena.usedBytes());
+
+        // the old buffers are left to the collector, a reader may still hold them
+        this.seed = layout.seed;
+        this.buckets = layout.buckets;
+        this.size = n;
+        this.keyCount = n;
+        this.slotsEnd = layout.slotsEnd;
+        this.deadSlots = 0;
+        this.directory = newDirectory;
+        this.slots = newSlots;
+        this.offsets = newOffsets;
+        this.keyBytes = newKeyBytes;
+        return layout.attempts;
+    }
+
+    /**
+     * Rebuilds from the live keys in the buffers, without turning them into Strings.
+     *
+     * @param pendingId a key appended but not placed yet, or EMPTY
+     */
+    private void rebuild(int pendingId) {
+        int usedBytes = offsets.getInt(keyCount * Integer.BYTES);
+        KeyArena arena = new KeyArena(size, usedBytes);
+        for (int slot = 0; slot < slotsEnd; slot++) {
+            int id = slots.getInt(slot * Integer.BYTES);
+            if (id != EMPTY)
+                appendTo(arena, id);
+        }
+        if (pendingId != EMPTY)
+            appendTo(arena, pendingId);
+        layOut(arena);
+        updateRebuilds++;
+    }
+
+    private void appendTo(KeyArena arena, int id) {
+        arena.append(keyBytes, offsets.getInt(id * Integer.BYTES), offsets.getInt((id + 1) * Integer.BYTES));
+    }
+
+    private boolean needsRebuild() {
+        return size > MAX_LOAD * buckets
+                || deadSlots > slotsEnd / 2
+                || keyCount - size > Math.max(size, MIN_DEAD_KEYS);
+    }
+
+    /**
+     * Appends the key and re-places its bucket. O(bucket size), O(n) when it triggers a rebuild.
+     */
+    @Override
+    public boolean insert(String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        if (search(key)) {
+            return false;
+        }
+
+        int id = appendKey(key);
+        size++;
+        if (needsRebuild() || !placeBucket(KeyFingerprint.reduce(KeyFingerprint.ofUtf8(key, seed), buckets), id)) {
+            rebuild(id);
+        }
+        return true;
+    }
+
+    /**
+     * Empties the key's slot; its bytes are reclaimed by the next rebuild. O(1), O(n) when it
+     * triggers a rebuild.
+     */
+    @Override
+    public boolean delete(String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        int slot = slotOf(key);
+        if (slot == EMPTY) {
+            return false;
+        }
+
+        slots.putInt(slot * Integer.BYTES, EMPTY);
+        size--;
+        if (needsRebuild()) {
+            rebuild(EMPTY);
+        }
+        return true;
+    }
+
+    private int appendKey(String key) {
+        int start = offsets.getInt(keyCount * Integer.BYTES);
+        int length = Utf8.length(key);
+        keyBytes = grow(keyBytes, (long) start + length);
+        offsets = grow(offsets, (long) (keyCount + 2) * Integer.BYTES);
+        int pos = start;
+        for (int i = 0; i < key.length(); ) {
+            long encoded = Utf8.encode(key, i);
+            int n = Utf8.count(encoded);
+            i += n == 4 ? 2 : 1;
+            for (int k = 0; k < n; k++, encoded >>>= 8)
+                keyBytes.put(pos++, (byte) encoded);
+        }
+        offsets.putInt((keyCount + 1) * Integer.BYTES, pos);
+        return keyCount++;
+    }
+
+    /**
+     * Places the bucket's keys and the new one under a new bucket seed: in the bucket's own region
+     * if that has room for {@code c^2} slots, otherwise in a new region at the end.
+     *
+     * @return false if no seed separates the keys, which calls for a new table seed
+     */
+    private boolean placeBucket(int bucket, int newId) {
+        int entry = bucket * DIRECTORY_INTS * Integer.BYTES;
+        int start = directory.getInt(entry);
+        int capacity = directory.getInt(entry + Integer.BYTES);
+
+        int[] members = new int[Math.min(capacity, keyCount) + 1];
+        int count = 0;
+        for (int slot = start; slot < start + capacity; slot++) {
+            int id = slots.getInt(slot * Integer.BYTES);
+            if (id != EMPTY)
+                members[count++] = id;
+        }
+        members[count++] = newId;
+
+        long[] fingerprints = new long[count];
+        int[] local = new int[count];
+        byte[] scratch = new byte[64];
+        for (int i = 0; i < count; i++) {
+            int from = offsets.getInt(members[i] * Integer.BYTES);
+            int length = offsets.getInt((members[i] + 1) * Integer.BYTES) - from;
+            if (scratch.length < length)
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            keyBytes.get(from, scratch, 0, length);
+            fingerprints[i] = KeyFingerprint.ofUtf8(scratch, 0, length, seed);
+            local[i] = i;
+        }
+
+        int regionCapacity = capacity;
+        int bucketSeed = EMPTY;
+        int[] region = null;
+        if ((long) count * count <= capacity) {
+            region = emptyRegion(capacity);
+            bucketSeed = FlatLayout.place(region, 0, capacity, local, count, fingerprints, null, seed, random);
+        }
+        if (bucketSeed == EMPTY) {
+            regionCapacity = REGION_SLACK * count * count;
+            region = emptyRegion(regionCapacity);
+            bucketSeed = FlatLayout.place(region, 0, regionCapacity, local, count, fingerprints, null, seed, random);
+            if (bucketSeed == EMPTY) {
+                return false;
+            }
+            // abandon the old region and move the bucket to the end of the slot array
+            for (int slot = start; slot < start + capacity; slot++)
+                slots.putInt(slot * Integer.BYTES, EMPTY);
+            deadSlots += capacity;
+            start = slotsEnd;
+            slots = grow(slots, (long) (slotsEnd + regionCapacity) * Integer.BYTES);
+            slotsEnd += regionCapacity;
+        }
+
+        for (int i = 0; i < regionCapacity; i++)
+            slots.putInt((start + i) * Integer.BYTES, region[i] == EMPTY ? EMPTY : members[region[i]]);
+        directory.putInt(entry, start);
+        directory.putInt(entry + Integer.BYTES, regionCapacity);
+        directory.putInt(entry + 2 * Integer.BYTES, bucketSeed);
+        return true;
+    }
+
+    private static int[] emptyRegion(int capacity) {
+        int[] region = new int[capacity];
+        Arrays.fill(region, EMPTY);
+        return region;
+    }
+
+    // Copies the buffer into one of at least the given size, or returns it if it is big enough;
+    // the old buffer is left to the collector
+    private static ByteBuffer grow(ByteBuffer buffer, long bytes) {
+        if (bytes <= buffer.capacity())
+            return buffer;
+        ByteBuffer grown = DirectMemory.allocate(Math.max(bytes, 2L * buffer.capacity()));
+        grown.put(buffer.duplicate().clear());
+        return grown;
+    }
+
+    @Override
+    public boolean search(String key) {
+        return contains(key);
+    }
+
+    @Override
+    public boolean contains(CharSequence key) {
+        return key != null && slotOf(key) != EMPTY;
+    }
+
+    // The slot holding the key, or EMPTY if it is absent
+    private int slotOf(CharSequence key) {
+        ensureOpen();
+        if (size == 0) {
+            return EMPTY;
+        }
+
+        long fingerprint = KeyFingerprint.ofUtf8(key, seed);
+        int entry = KeyFingerprint.reduce(fingerprint, buckets) * DIRECTORY_INTS * Integer.BYTES;
+        int capacity = directory.getInt(entry + Integer.BYTES);
+        if (capacity == 0) {
+            return EMPTY;
+        }
+        int slot = directory.getInt(entry)
+                + FlatLayout.slotIndex(fingerprint, directory.getInt(entry + 2 * Integer.BYTES), capacity);
+        int id = slots.getInt(slot * Integer.BYTES);
+        return id != EMPTY && keyEquals(id, key) ? slot : EMPTY;
+    }
+
+    // Compares the stored bytes with the key encoded on the fly
+    private boolean keyEquals(int id, CharSequence key) {
+        return Utf8.equals(keyBytes, offsets.getInt(id * Integer.BYTES), offsets.getInt((id + 1) * Integer.BYTES), key);
+    }
+
+    /**
+     * @return Number of first-level buckets plus all second-level slots, abandoned regions included
+     */
+    @Override
+    public int getSpace() {
+        return buckets + slotsEnd;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public List<String> toList() {
+        ensureOpen();
+        List<String> keys = new ArrayList<>(size);
+        byte[] scratch = new byte[64];
+        for (int slot = 0; slot < slotsEnd; slot++) {
+            int id = slots.getInt(slot * Integer.BYTES);
+            if (id == EMPTY)
+                continue;
+            int from = offsets.getInt(id * Integer.BYTES);
+            int length = offsets.getInt((id + 1) * Integer.BYTES) - from;
+            if (scratch.length < length)
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            keyBytes.get(from, scratch, 0, length);
+            keys.add(Utf8.decode(scratch, 0, length));
+        }
+        return keys;
+    }
+
+    /**
+     * @return Bytes held in direct buffers, including room reserved for inserts
+     */
+    public long getOffHeapBytes() {
+        if (closed)
+            return 0;
+        return (long) directory.capacity() + slots.capacity() + offsets.capacity() + keyBytes.capacity();
+    }
+
+    long getUpdateRebuilds() {
+        return updateRebuilds;
+    }
+
+    /**
+     * Frees the buffers. Any later call other than close fails with {@link IllegalStateException};
+     * a call already running in another thread may crash the JVM.
+     */
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+        freeBuffers();
+        directory = slots = offsets = keyBytes = null;
+        buckets = 0;
+        size = 0;
+        slotsEnd = 0;
+    }
+
+    private void freeBuffers() {
+        DirectMemory.free(directory);
+        DirectMemory.free(slots);
+        DirectMemory.free(offsets);
+        DirectMemory.free(keyBytes);
+    }
+
+    private void ensureOpen() {
+        if (closed)
+            throw new IllegalStateException("Hash table is closed");
+    }
+}
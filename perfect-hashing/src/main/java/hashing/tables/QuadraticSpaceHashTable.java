@@ -1,50 +1,127 @@
 package hashing.tables;
 
+import hashing.functions.FingerprintHashFunction;
 import hashing.functions.IHashFunction;
-import hashing.functions.MatrixHashFunction;
+import hashing.functions.IHashFunctionFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class QuadraticSpaceHashTable implements IPerfectHashTable {
 
+    // slot states share the fingerprint array, real fingerprints are remapped away from them
+    static final int EMPTY = 0;
+    private static final int DELETED = 1;
+
+    private final IHashFunctionFactory hashFunctionFactory;
+    private final boolean sharedFingerprintSeed; // a sub-table must keep the seed of its table
+    private long fingerprintSeed = ThreadLocalRandom.current().nextLong();
     private IHashFunction hashFunction;
-    private List<String> table;
+    private String[] keys;
+    private int[] fingerprints; // EMPTY, DELETED or the fingerprint of keys[i]
     private int size;
+    private long updateRebuilds; // rebuilds an insert triggered, for TableMetrics
 
-    private final String DELETED = "MARK_DELETED";
     private final float LOAD_FACTOR = 0.75f;
 
+    public QuadraticSpaceHashTable() {
+        this(IHashFunctionFactory.PACKED_MATRIX);
+    }
+
+    /**
+     * @param hashFunctionFactory hash family a new function is drawn from on every build attempt
+     */
+    public QuadraticSpaceHashTable(IHashFunctionFactory hashFunctionFactory) {
+        this(hashFunctionFactory, false);
+    }
+
+    /**
+     * A sub-table of a table whose levels share one fingerprint seed: the fingerprint family
+     * fingerprints keys under that seed, and equal fingerprints are left for the table to resolve.
+     */
+    QuadraticSpaceHashTable(IHashFunctionFactory hashFunctionFactory, long fingerprintSeed) {
+        this(hashFunctionFactory, true);
+        this.fingerprintSeed = fingerprintSeed;
+    }
+
+    private QuadraticSpaceHashTable(IHashFunctionFactory hashFunctionFactory, boolean sharedFingerprintSeed) {
+        if (hashFunctionFactory == null) {
+            throw new IllegalArgumentException("Hash function factory cannot be null");
+        }
+        this.hashFunctionFactory = hashFunctionFactory;
+        this.sharedFingerprintSeed = sharedFingerprintSeed;
+    }
+
+    /**
+     * Restores an already built table, e.g. from a snapshot.
+     *
+     * @param subTable whether the table is a sub-table, which keeps the fingerprint seed of its function
+     */
+    QuadraticSpaceHashTable(IHashFunctionFactory hashFunctionFactory, IHashFunction hashFunction,
+                            String[] keys, int[] fingerprints, int size, boolean subTable) {
+        this(hashFunctionFactory, subTable);
+        if (hashFunction instanceof FingerprintHashFunction) {
+            this.fingerprintSeed = ((FingerprintHashFunction) hashFunction).getFingerprintSeed();
+        }
+        this.hashFunction = hashFunction;
+        this.keys = keys;
+        this.fingerprints = fingerprints;
+        this.size = size;
+    }
+
     @Override
     public int build(List<String> set) {
-        this.size = Math.max(set.size(), 1);
+        int n = Math.max(set.size(), 1);
         int NUM_OF_BITS = 300;
         
-        int tableSize = size * size;
+        int tableSize = n * n;
         
         int rebuildAttempts = -1;
         final int MAX_ATTEMPTS = 1000;
         
+        long[] keyFingerprints = null; // computed on the first attempt that needs them, reused by the rest
+        // the slots are allocated once; a failed attempt only empties the slots it filled
+        keys = new String[tableSize];
+        fingerprints = new int[tableSize];
+        int[] placed = new int[set.size()];
+        int placedCount = 0;
         boolean success = false;
         while (!success && rebuildAttempts < MAX_ATTEMPTS) {
             rebuildAttempts++;
-            table = new ArrayList<>(tableSize);
-            for (int i = 0; i < tableSize; i++)
-                table.add("");
+            for (int i = 0; i < placedCount; i++) {
+                keys[placed[i]] = null;
+                fingerprints[placed[i]] = EMPTY;
+            }
+            placedCount = 0;
 
-            hashFunction = new MatrixHashFunction(tableSize, NUM_OF_BITS);
+            hashFunction = withFingerprintSeed(hashFunctionFactory.create(tableSize, NUM_OF_BITS), fingerprintSeed);
+            if (hashFunction instanceof FingerprintHashFunction && keyFingerprints == null) {
+                keyFingerprints = keyFingerprints(set, (FingerprintHashFunction) hashFunction);
+            }
 
             success = true;
+            int k = 0;
             for (String key : set) {
-                int idx = hashFunction.hash(key);
+                int idx = hashFunction instanceof FingerprintHashFunction
+                        ? ((FingerprintHashFunction) hashFunction).hash(keyFingerprints[k++])
+                        : hashFunction.hash(key);
                 if (idx >= tableSize) {
                     success = false;
                     break;
                 }
 
-                if (table.get(idx).isEmpty())
-                    table.set(idx, key);
-                else {
+                if (fingerprints[idx] == EMPTY) {
+                    keys[idx] = key;
+                    fingerprints[idx] = fingerprint(key);
+                    placed[placedCount++] = idx;
+                } else {
+                    if (keyFingerprints != null && !sharedFingerprintSeed
+                            && keyFingerprints[k - 1] == ((FingerprintHashFunction) hashFunction).fingerprint(keys[idx])) {
+                        // keys with one fingerprint share a slot under every multiplier, only a new seed parts them
+                        fingerprintSeed = ThreadLocalRandom.current().nextLong();
+                        keyFingerprints = null;
+                    }
                     success = false;
                     break;
                 }
@@ -54,7 +131,8 @@ public class QuadraticSpaceHashTable implements IPerfectHashTable {
             throw new RuntimeException("Failed to find a perfect hash function after " + 
                 MAX_ATTEMPTS + " attempts. The key set may be too large or problematic.");
         }
-        
+
+        this.size = set.size();
         return rebuildAttempts;
     }
 
@@ -63,17 +141,20 @@ public class QuadraticSpaceHashTable implements IPerfectHashTable {
         int idx = mySearch(key);
         if (idx != -1)
             return false;
-        if ((float) (size + 1) / table.size() >= LOAD_FACTOR) {
+        if ((float) (size + 1) / keys.length >= LOAD_FACTOR) {
             List<String> list = this.toList();
             list.add(key);
             build(list);
+            updateRebuilds++;
             return true;
         }
+        // the key is known to be absent, so the first free slot (empty or deleted) can take it
         idx = hashFunction.hash(key);
-        while (!table.get(idx).isEmpty() || table.get(idx).equals(DELETED)) {
-            idx = (idx + 1) % table.size();
+        while (isOccupied(fingerprints[idx])) {
+            idx = (idx + 1) % keys.length;
         }
-        table.set(idx, key);
+        keys[idx] = key;
+        fingerprints[idx] = fingerprint(key);
         size += 1;
         return true;
     }
@@ -83,7 +164,8 @@ public class QuadraticSpaceHashTable implements IPerfectHashTable {
         int idx = mySearch(key);
         if (idx == -1)
             return false;
-        table.set(idx, DELETED);
+        keys[idx] = null;
+        fingerprints[idx] = DELETED;
         size -= 1;
         return true;
     }
@@ -95,24 +177,94 @@ public class QuadraticSpaceHashTable implements IPerfectHashTable {
         return mySearch(key) != -1;
     }
 
-    public int mySearch(String key) {
-        int idx = hashFunction.hash(key);
-        int stIdx = idx;
-        while (!table.get(idx).equals(key) && !table.get(idx).isEmpty()) {
-            idx = (idx + 1) % table.size();
-            if (idx == stIdx) {
-                build(this.toList());
+    @Override
+    public boolean contains(CharSequence key) {
+        if (hashFunction == null || key == null)
+            return false;
+        return mySearch(key) != -1;
+    }
+
+    public int mySearch(CharSequence key) {
+        return findFrom(key, hashFunction.hash(key));
+    }
+
+    /**
+     * Looks the key up with its {@link FingerprintHashFunction#fingerprint} already computed, so a
+     * table of the fingerprint family does not read the key again to find its slot.
+     */
+    boolean contains(CharSequence key, long keyFingerprint) {
+        int home = home(key, keyFingerprint);
+        return home != -1 && findFrom(key, home) != -1;
+    }
+
+    /**
+     * @param keyFingerprint the key's {@link FingerprintHashFunction#fingerprint}, only read by that family
+     * @return The slot where a search for the key starts, or -1 if the table was never built
+     */
+    int home(CharSequence key, long keyFingerprint) {
+        if (hashFunction instanceof FingerprintHashFunction)
+            return ((FingerprintHashFunction) hashFunction).hash(keyFingerprint);
+        return hashFunction == null ? -1 : hashFunction.hash(key);
+    }
+
+    /**
+     * @return Slots a lookup of the key inspects, up to and including the matching or empty one,
+     *         or 0 if the table was never built
+     */
+    int probes(CharSequence key) {
+        return probes(key, hashFunction instanceof FingerprintHashFunction
+                ? ((FingerprintHashFunction) hashFunction).fingerprint(key) : 0);
+    }
+
+    // Same, with the key's fingerprint already computed
+    int probes(CharSequence key, long keyFingerprint) {
+        int idx = home(key, keyFingerprint);
+        if (idx == -1)
+            return 0;
+        int fingerprint = fingerprint(key);
+        for (int probes = 1; probes < keys.length; probes++) {
+            int state = fingerprints[idx];
+            if (state == EMPTY || (state == fingerprint && keys[idx].contentEquals(key)))
+                return probes;
+            idx = idx + 1 == keys.length ? 0 : idx + 1;
+        }
+        return keys.length;
+    }
+
+    private static long[] keyFingerprints(List<String> keys, FingerprintHashFunction hashFunction) {
+        long[] result = new long[keys.size()];
+        int k = 0;
+        for (String key : keys) {
+            result[k++] = hashFunction.fingerprint(key);
+        }
+        return result;
+    }
+
+    // The function itself, or for the fingerprint family the function under the given seed
+    static IHashFunction withFingerprintSeed(IHashFunction hashFunction, long fingerprintSeed) {
+        return hashFunction instanceof FingerprintHashFunction
+                ? ((FingerprintHashFunction) hashFunction).withFingerprintSeed(fingerprintSeed)
+                : hashFunction;
+    }
+
+    // Probes from idx, the key's home slot; returns the key's slot or -1
+    int findFrom(CharSequence key, int idx) {
+        int fingerprint = fingerprint(key);
+        for (int probes = 0; probes < keys.length; probes++) {
+            int state = fingerprints[idx];
+            if (state == EMPTY)
                 return -1;
-            }
+            // compare the cheap fingerprint first and only then the whole string
+            if (state == fingerprint && keys[idx].contentEquals(key))
+                return idx;
+            idx = idx + 1 == keys.length ? 0 : idx + 1;
         }
-        if (!table.get(idx).isEmpty())
-            return idx;
         return -1;
     }
 
     @Override
     public int getSpace() {
-        return table.size();
+        return keys == null ? 0 : keys.length;
     }
 
     @Override
@@ -120,21 +272,46 @@ public class QuadraticSpaceHashTable implements IPerfectHashTable {
         return this.size;
     }
 
+    @Override
     public List<String> toList() {
-        List<String> list = new ArrayList<>();
-        for (String s : table) {
-            if (!s.isEmpty())
-                list.add(s);
+        List<String> list = new ArrayList<>(size);
+        for (int i = 0; i < keys.length; i++) {
+            if (isOccupied(fingerprints[i]))
+                list.add(keys[i]);
         }
         return list;
     }
 
-    // public static void main(String[] args) {
-    // List<String> input = Arrays.asList("x", "y", "z");
-    // QuadraticSpaceHashTable hashTable = new QuadraticSpaceHashTable();
-    // hashTable.build(input);
-    // hashTable.search("y");
-    // boolean b = hashTable.delete("y");
-    // boolean a = hashTable.search("y");
-    // }
+    IHashFunction getHashFunction() {
+        return hashFunction;
+    }
+
+    String[] getKeys() {
+        return keys;
+    }
+
+    int[] getFingerprints() {
+        return fingerprints;
+    }
+
+    long getUpdateRebuilds() {
+        return updateRebuilds;
+    }
+
+    // String.hashCode, which a String caches, computed the same way for any other sequence
+    static int fingerprint(CharSequence key) {
+        int h;
+        if (key instanceof String) {
+            h = key.hashCode();
+        } else {
+            h = 0;
+            for (int i = 0; i < key.length(); i++)
+                h = 31 * h + key.charAt(i);
+        }
+        return h == EMPTY || h == DELETED ? h + 2 : h;
+    }
+
+    static boolean isOccupied(int state) {
+        return state != EMPTY && state != DELETED;
+    }
 }
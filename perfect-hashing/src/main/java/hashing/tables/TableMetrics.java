@@ -0,0 +1,296 @@
+package hashing.tables;
+
+import hashing.functions.IHashFunctionFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and histograms of what a hash table does: lookups and hits, probes per lookup, lookup
+ * latency, builds, retries per level and the shape of the last build.
+ * <p>
+ * Tables are only measured while wrapped in an {@link InstrumentedHashTable}, so a table without
+ * metrics pays nothing on its lookups. With metrics, every lookup costs one {@link LongAdder}
+ * increment, and one lookup in {@link #getSampleInterval()} is also timed and has its probes counted.
+ * Hash functions drawn are counted by {@link #countingFactory(IHashFunctionFactory)}, at build time only.
+ * Counters can be read and reset from any thread, e.g. over JMX after {@link #register(String)}.
+ */
+public class TableMetrics implements TableMetricsMXBean {
+
+    /** Bucket sizes from this value up share the last entry of {@link #getBucketSizeCounts()}. */
+    public static final int BUCKET_SIZE_LIMIT = 8;
+    private static final int DEFAULT_SAMPLE_INTERVAL = 16;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder probeSamples = new LongAdder();
+    private final LongAdder probes = new LongAdder();
+    private final LogHistogram lookupNanos = new LogHistogram();
+
+    private final LongAdder builds = new LongAdder();
+    private final LongAdder primaryRetries = new LongAdder();
+    private final LongAdder secondaryRetries = new LongAdder();
+    private final LongAdder bucketRebuilds = new LongAdder();
+    private final LongAdder updateRebuilds = new LongAdder();
+    private final LongAdder hashFunctionsDrawn = new LongAdder();
+    private final LogHistogram buildRetries = new LogHistogram();
+
+    private volatile long[] bucketSizeCounts = new long[0];
+    private volatile double slotsPerKey;
+    private volatile double lastBuildMillis;
+    private volatile int sampleInterval = DEFAULT_SAMPLE_INTERVAL;
+
+    /**
+     * @return A factory that creates the same functions as {@code factory} and counts every one it
+     *         creates, i.e. every build attempt at every level of a table using it
+     */
+    public IHashFunctionFactory countingFactory(IHashFunctionFactory factory) {
+        return (tableSize, keyBits) -> {
+            hashFunctionsDrawn.increment();
+            return factory.create(tableSize, keyBits);
+        };
+    }
+
+    void recordLookups(int count, int found) {
+        lookups.add(count);
+        hits.add(found);
+    }
+
+    void recordSample(long nanos, int probeCount) {
+        lookupNanos.record(nanos);
+        if (probeCount >= 0) {
+            probeSamples.increment();
+            probes.add(probeCount);
+        }
+    }
+
+    void recordBuild(int retries, long nanos) {
+        builds.increment();
+        buildRetries.record(retries);
+        lastBuildMillis = nanos / 1e6;
+    }
+
+    void recordRetries(long primary, long secondary, long failedBuckets) {
+        primaryRetries.add(primary);
+        secondaryRetries.add(secondary);
+        bucketRebuilds.add(failedBuckets);
+    }
+
+    void recordUpdateRebuilds(long tableRebuilds, long subTableRebuilds) {
+        updateRebuilds.add(tableRebuilds);
+        bucketRebuilds.add(subTableRebuilds);
+    }
+
+    void recordLayout(long[] bucketSizeCounts, int space, int keys) {
+        this.bucketSizeCounts = bucketSizeCounts;
+        this.slotsPerKey = keys == 0 ? 0 : (double) space / keys;
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server as {@code hashing:type=TableMetrics,name=<name>},
+     * replacing anything registered under that name before.
+     */
+    public ObjectName register(String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = objectName(name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register table metrics '" + name + "'", e);
+        }
+    }
+
+    /**
+     * Removes the MBean registered under the name, if there is one.
+     */
+    public static void unregister(String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = objectName(name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot unregister table metrics '" + name + "'", e);
+        }
+    }
+
+    private static ObjectName objectName(String name) throws JMException {
+        return new ObjectName("hashing:type=TableMetrics,name=" + ObjectName.quote(name));
+    }
+
+    @Override
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public double getHitRatio() {
+        long total = lookups.sum();
+        return total == 0 ? 0 : (double) hits.sum() / total;
+    }
+
+    /**
+     * @return Average slots inspected by a sampled lookup, counting the primary bucket of a two-level
+     *         table as one and a lookup a filter rejected as none; 0 for tables that do not report probes
+     */
+    @Override
+    public double getMeanProbes() {
+        long samples = probeSamples.sum();
+        return samples == 0 ? 0 : (double) probes.sum() / samples;
+    }
+
+    @Override
+    public long getLookupP50Nanos() {
+        return lookupNanos.percentile(0.5);
+    }
+
+    @Override
+    public long getLookupP99Nanos() {
+        return lookupNanos.percentile(0.99);
+    }
+
+    @Override
+    public long getLookupP999Nanos() {
+        return lookupNanos.percentile(0.999);
+    }
+
+    /**
+     * @return Calls of {@code build}, not counting rebuilds an update triggered
+     */
+    @Override
+    public long getBuilds() {
+        return builds.sum();
+    }
+
+    /**
+     * @return Primary hash functions redrawn, summed over all builds
+     */
+    @Override
+    public long getPrimaryRetries() {
+        return primaryRetries.sum();
+    }
+
+    /**
+     * @return Second-level hash functions redrawn, summed over all builds and sub-tables
+     */
+    @Override
+    public long getSecondaryRetries() {
+        return secondaryRetries.sum();
+    }
+
+    /**
+     * @return Sub-tables rebuilt on their own, during builds or because an insert did not fit
+     */
+    @Override
+    public long getBucketRebuilds() {
+        return bucketRebuilds.sum();
+    }
+
+    /**
+     * @return Whole-table rebuilds triggered by an insert or delete
+     */
+    @Override
+    public long getUpdateRebuilds() {
+        return updateRebuilds.sum();
+    }
+
+    /**
+     * @return Hash functions created through {@link #countingFactory(IHashFunctionFactory)}
+     */
+    @Override
+    public long getHashFunctionsDrawn() {
+        return hashFunctionsDrawn.sum();
+    }
+
+    /**
+     * @return Median of the retry counts {@code build} returned
+     */
+    @Override
+    public long getBuildRetriesP50() {
+        return buildRetries.percentile(0.5);
+    }
+
+    @Override
+    public long getBuildRetriesMax() {
+        return buildRetries.percentile(1);
+    }
+
+    /**
+     * @return Number of primary buckets of the last build holding 0, 1, ... keys, the last entry
+     *         counting buckets with {@value #BUCKET_SIZE_LIMIT} or more; empty for one-level tables
+     */
+    @Override
+    public long[] getBucketSizeCounts() {
+        return bucketSizeCounts.clone();
+    }
+
+    /**
+     * @return {@link IPerfectHashTable#getSpace()} per key after the last build
+     */
+    @Override
+    public double getSlotsPerKey() {
+        return slotsPerKey;
+    }
+
+    @Override
+    public double getLastBuildMillis() {
+        return lastBuildMillis;
+    }
+
+    public int getSampleInterval() {
+        return sampleInterval;
+    }
+
+    /**
+     * Sets how often a lookup is timed and has its probes counted: one in {@code sampleInterval}.
+     * With 1 every lookup is, which roughly doubles the cost of a cheap lookup.
+     */
+    public void setSampleInterval(int sampleInterval) {
+        if (sampleInterval < 1) {
+            throw new IllegalArgumentException("Sample interval must be at least 1");
+        }
+        this.sampleInterval = sampleInterval;
+    }
+
+    @Override
+    public void reset() {
+        lookups.reset();
+        hits.reset();
+        probeSamples.reset();
+        probes.reset();
+        lookupNanos.reset();
+        builds.reset();
+        primaryRetries.reset();
+        secondaryRetries.reset();
+        bucketRebuilds.reset();
+        updateRebuilds.reset();
+        hashFunctionsDrawn.reset();
+        buildRetries.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("lookups %d, hit ratio %.3f, probes/lookup %.2f, latency p50 %d ns, p99 %d ns, p99.9 %d ns%n"
+                        + "builds %d (last %.2f ms), retries per build p50 %d, max %d, primary retries %d, "
+                        + "secondary retries %d, bucket rebuilds %d, update rebuilds %d, hash functions drawn %d%n"
+                        + "slots/key %.2f, bucket sizes 0..%d+ %s",
+                getLookups(), getHitRatio(), getMeanProbes(), getLookupP50Nanos(), getLookupP99Nanos(), getLookupP999Nanos(),
+                getBuilds(), lastBuildMillis, getBuildRetriesP50(), getBuildRetriesMax(), getPrimaryRetries(),
+                getSecondaryRetries(), getBucketRebuilds(), getUpdateRebuilds(), getHashFunctionsDrawn(),
+                slotsPerKey, BUCKET_SIZE_LIMIT, Arrays.toString(bucketSizeCounts));
+    }
+}
@@ -0,0 +1,45 @@
+package hashing.tables;
+
+/**
+ * JMX view of a {@link TableMetrics}, registered with {@link TableMetrics#register(String)}.
+ */
+public interface TableMetricsMXBean {
+
+    long getLookups();
+
+    long getHits();
+
+    double getHitRatio();
+
+    double getMeanProbes();
+
+    long getLookupP50Nanos();
+
+    long getLookupP99Nanos();
+
+    long getLookupP999Nanos();
+
+    long getBuilds();
+
+    long getPrimaryRetries();
+
+    long getSecondaryRetries();
+
+    long getBucketRebuilds();
+
+    long getUpdateRebuilds();
+
+    long getHashFunctionsDrawn();
+
+    long getBuildRetriesP50();
+
+    long getBuildRetriesMax();
+
+    long[] getBucketSizeCounts();
+
+    double getSlotsPerKey();
+
+    double getLastBuildMillis();
+
+    void reset();
+}
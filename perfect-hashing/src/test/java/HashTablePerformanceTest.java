@@ -1,9 +1,15 @@
+import hashing.functions.IHashFunction;
+import hashing.functions.IHashFunctionFactory;
+import hashing.functions.MatrixHashFunction;
+import hashing.functions.PackedMatrixHashFunction;
+import hashing.tables.BuildReport;
 import hashing.tables.IPerfectHashTable;
 import hashing.tables.LinearSpaceHashTable;
 import hashing.tables.QuadraticSpaceHashTable;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Random;
 
@@ -132,4 +138,115 @@ public class HashTablePerformanceTest {
         System.out.println("Hash table space: " + hashTable.getSpace());
     }
 
+    @Test
+    public void testMatrixHashThroughput() {
+        System.out.println("\n=== Matrix Hash Throughput Test ===");
+        System.out.printf("%-10s | %-25s | %-25s | %-10s%n",
+                "Key Bits", "Matrix (ns/hash)", "Packed Matrix (ns/hash)", "Speedup");
+        System.out.println("-".repeat(80));
+
+        List<String> keys = generateDataset(10_000);
+        for (int keyBits : new int[] { 128, 300 }) {
+            IHashFunction matrix = new MatrixHashFunction(keys.size() * keys.size(), keyBits);
+            IHashFunction packed = new PackedMatrixHashFunction(keys.size() * keys.size(), keyBits);
+
+            // warm up both before timing
+            hashAll(matrix, keys);
+            hashAll(packed, keys);
+
+            long matrixStart = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++)
+                hashAll(matrix, keys);
+            double matrixNs = (System.nanoTime() - matrixStart) / (double) (ITERATIONS * keys.size());
+
+            long packedStart = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++)
+                hashAll(packed, keys);
+            double packedNs = (System.nanoTime() - packedStart) / (double) (ITERATIONS * keys.size());
+
+            System.out.printf("%-10d | %-25.2f | %-25.2f | %-10.2f%n",
+                    keyBits, matrixNs, packedNs, matrixNs / packedNs);
+        }
+    }
+
+    private int hashAll(IHashFunction hashFunction, List<String> keys) {
+        int sink = 0;
+        for (String key : keys)
+            sink ^= hashFunction.hash(key);
+        return sink;
+    }
+
+    @Test
+    public void testHashFamilyBuildAndLookup() {
+        System.out.println("\n=== Hash Family Comparison (Linear Space, 10000 elements) ===");
+        System.out.printf("%-15s | %-20s | %-20s | %-20s%n",
+                "Family", "Build Time (ms)", "Rebuild Attempts", "Lookup (ns/search)");
+        System.out.println("-".repeat(85));
+
+        List<String> dataset = generateDataset(10_000);
+        String[] names = { "matrix", "packed-matrix", "tabulation" };
+        IHashFunctionFactory[] factories = { IHashFunctionFactory.MATRIX, IHashFunctionFactory.PACKED_MATRIX,
+                IHashFunctionFactory.TABULATION };
+
+        for (int f = 0; f < factories.length; f++) {
+            IPerfectHashTable hashTable = new LinearSpaceHashTable(factories[f]);
+            long buildStart = System.nanoTime();
+            int rebuilds = hashTable.build(dataset);
+            double buildMs = (System.nanoTime() - buildStart) / 1e6;
+
+            int found = 0;
+            long lookupStart = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++)
+                for (String key : dataset)
+                    if (hashTable.search(key))
+                        found++;
+            double lookupNs = (System.nanoTime() - lookupStart) / (double) (ITERATIONS * dataset.size());
+
+            System.out.printf("%-15s | %-20.2f | %-20d | %-20.2f%n", names[f], buildMs, rebuilds, lookupNs);
+            if (found != ITERATIONS * dataset.size())
+                throw new AssertionError("Lookup missed keys with " + names[f]);
+        }
+    }
+
+    @Test
+    public void testParallelLinearBuild() {
+        System.out.println("\n=== Parallel Linear Space Build (100000 elements) ===");
+        System.out.printf("%-12s | %-20s | %-20s | %-20s%n",
+                "Parallelism", "Split (ms)", "Sub-tables (ms)", "Total (ms)");
+        System.out.println("-".repeat(80));
+
+        // random strings repeat at this size, and a perfect hash table cannot hold duplicates
+        List<String> dataset = new ArrayList<>(new LinkedHashSet<>(generateDataset(100_000)));
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int parallelism : new int[] { 1, 2, cores }) {
+            LinearSpaceHashTable hashTable = new LinearSpaceHashTable();
+            hashTable.setParallelism(parallelism);
+            hashTable.build(dataset);
+            BuildReport report = hashTable.getBuildReport();
+            System.out.printf("%-12d | %-20.2f | %-20.2f | %-20.2f%n", parallelism,
+                    report.getSplitNanos() / 1e6, report.getSubTableNanos() / 1e6, report.getTotalNanos() / 1e6);
+        }
+    }
+
+    @Test
+    public void testIncrementalResizeLatency() {
+        System.out.println("\n=== Insert Latency While Growing From 10000 to 40000 Elements ===");
+        System.out.printf("%-12s | %-20s | %-20s%n", "Resize", "Max insert (ms)", "Total (ms)");
+        System.out.println("-".repeat(60));
+
+        List<String> dataset = new ArrayList<>(new LinkedHashSet<>(generateDataset(40_000)));
+        for (boolean incremental : new boolean[] { false, true }) {
+            LinearSpaceHashTable hashTable = new LinearSpaceHashTable();
+            hashTable.setIncrementalResize(incremental);
+            hashTable.build(dataset.subList(0, 10_000));
+
+            long start = System.nanoTime();
+            for (String key : dataset.subList(10_000, dataset.size()))
+                hashTable.insert(key);
+            long total = System.nanoTime() - start;
+            System.out.printf("%-12s | %-20.3f | %-20.2f%n", incremental ? "incremental" : "rebuild",
+                    hashTable.getMaxInsertNanos() / 1e6, total / 1e6);
+        }
+    }
+
 }
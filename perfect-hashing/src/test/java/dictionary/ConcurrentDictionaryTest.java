@@ -0,0 +1,242 @@
+package dictionary;
+
+import hashing.tables.LinearSpaceHashTable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentDictionaryTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testSingleThreadedSemantics() {
+        ConcurrentDictionary dictionary = new ConcurrentDictionary(LinearSpaceHashTable::new, 2);
+        assertTrue(dictionary.insert("apple"));
+        assertTrue(dictionary.insert("banana"));
+        assertFalse(dictionary.insert("apple"));
+        assertTrue(dictionary.insert("cherry")); // third pending change triggers a rebuild
+        assertEquals(0, dictionary.getPendingDelta());
+        assertEquals(3, dictionary.size());
+
+        assertTrue(dictionary.delete("banana"));
+        assertFalse(dictionary.delete("banana"));
+        assertFalse(dictionary.search("banana"));
+        assertTrue(dictionary.insert("banana"));
+        assertTrue(dictionary.search("banana"));
+        assertEquals(3, dictionary.size());
+        assertFalse(dictionary.search(""));
+        assertFalse(dictionary.insert(null));
+    }
+
+    @Test
+    public void testBatchOperations() throws IOException {
+        ConcurrentDictionary dictionary = new ConcurrentDictionary("linear");
+        dictionary.insert("apple");
+        Path file = tempDir.resolve("words.txt");
+        Files.write(file, List.of("apple", "banana", "cherry", "banana"));
+
+        assertArrayEquals(new int[]{2, 2}, dictionary.batchInsert(file.toString()));
+        assertEquals(3, dictionary.size());
+        assertEquals(0, dictionary.getPendingDelta());
+
+        Files.write(file, List.of("banana", "durian"));
+        assertArrayEquals(new int[]{1, 1}, dictionary.batchDelete(file.toString()));
+        assertFalse(dictionary.search("banana"));
+        assertTrue(dictionary.search("cherry"));
+    }
+
+    @Test
+    public void testBackgroundRebuildKeepsOverflowVisible() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger tables = new AtomicInteger();
+        // every table after the initial empty one waits for the latch before it builds
+        ConcurrentDictionary dictionary = new ConcurrentDictionary(() -> tables.getAndIncrement() == 0
+                ? new LinearSpaceHashTable()
+                : new LinearSpaceHashTable() {
+                    @Override
+                    public int build(List<String> keys) {
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            throw new IllegalStateException(e);
+                        }
+                        return super.build(keys);
+                    }
+                }, 2);
+        RebuildScheduler scheduler = new RebuildScheduler(1, 1);
+        dictionary.setRebuildScheduler(scheduler);
+
+        assertTrue(dictionary.insert("apple"));
+        assertTrue(dictionary.insert("banana"));
+        assertTrue(dictionary.insert("cherry")); // returns at once, the rebuild waits for the latch
+        assertTrue(dictionary.isRebuilding());
+        assertEquals(1, scheduler.getPendingRebuilds());
+        assertEquals(3, scheduler.getPendingKeys());
+
+        // updates made during the rebuild go to the overflow and are visible immediately
+        assertTrue(dictionary.insert("durian"));
+        assertTrue(dictionary.delete("apple"));
+        assertTrue(dictionary.search("durian"));
+        assertFalse(dictionary.search("apple"));
+        assertEquals(3, dictionary.size());
+
+        release.countDown();
+        while (dictionary.isRebuilding()) {
+            dictionary.awaitRebuild();
+        }
+        assertEquals(2, dictionary.getPendingDelta(), "durian and apple changed after the rebuild started");
+        while (scheduler.getPendingRebuilds() > 0) {
+            Thread.sleep(1); // the scheduler counts a rebuild as done just after it is published
+        }
+        assertEquals(1, scheduler.getCompletedRebuilds());
+        assertEquals(3, dictionary.size());
+        for (String word : List.of("banana", "cherry", "durian")) {
+            assertTrue(dictionary.search(word), word);
+        }
+        assertFalse(dictionary.search("apple"));
+
+        // a closed scheduler hands rebuilds back to the writer
+        scheduler.close();
+        assertTrue(dictionary.insert("elder"));
+        assertFalse(dictionary.isRebuilding());
+        assertEquals(0, dictionary.getPendingDelta());
+        assertEquals(1, scheduler.getCallerRunsRebuilds());
+        assertEquals(4, dictionary.size());
+    }
+
+    @Test
+    public void testRebuildFailingWithAnErrorIsRetried() throws InterruptedException {
+        AtomicInteger tables = new AtomicInteger();
+        // the first rebuild dies with an Error, the next one succeeds
+        ConcurrentDictionary dictionary = new ConcurrentDictionary(() -> tables.getAndIncrement() == 1
+                ? new LinearSpaceHashTable() {
+                    @Override
+                    public int build(List<String> keys) {
+                        throw new StackOverflowError("build failed");
+                    }
+                }
+                : new LinearSpaceHashTable(), 2);
+        RebuildScheduler scheduler = new RebuildScheduler(1, 1);
+        dictionary.setRebuildScheduler(scheduler);
+
+        assertTrue(dictionary.insert("apple"));
+        assertTrue(dictionary.insert("banana"));
+        assertTrue(dictionary.insert("cherry"));
+        while (scheduler.getPendingRebuilds() > 0) {
+            Thread.sleep(1);
+        }
+        assertFalse(dictionary.isRebuilding());
+        assertEquals(3, dictionary.getPendingDelta());
+
+        assertTrue(dictionary.insert("durian")); // schedules the retry
+        dictionary.awaitRebuild();
+        assertFalse(dictionary.isRebuilding());
+        assertEquals(0, dictionary.getPendingDelta());
+        assertEquals(4, dictionary.size());
+        scheduler.close();
+    }
+
+    /**
+     * Readers race a writer that inserts w0, w1, ... in order and deletes each word again
+     * a while later. A writer-side counter is bumped only after an operation returns, so
+     * every result a reader sees can be checked against what must already have happened.
+     */
+    @Test
+    public void testLinearizableMembershipUnderContention() throws Exception {
+        final int baseWords = 500;
+        final int writes = 3000;
+        final int lag = 100;
+        final int readers = 4;
+
+        ConcurrentDictionary dictionary = new ConcurrentDictionary(LinearSpaceHashTable::new, 64);
+        for (int i = 0; i < baseWords; i++) {
+            assertTrue(dictionary.insert("base" + i));
+        }
+
+        AtomicInteger insertedUpTo = new AtomicInteger(-1);
+        AtomicInteger deleteStarted = new AtomicInteger(-1);
+        AtomicInteger deletedUpTo = new AtomicInteger(-1);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> violation = new AtomicReference<>();
+
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < writes; i++) {
+                if (!dictionary.insert("w" + i)) {
+                    violation.compareAndSet(null, "insert of fresh word w" + i + " failed");
+                }
+                insertedUpTo.set(i);
+                if (i >= lag) {
+                    int j = i - lag;
+                    deleteStarted.set(j);
+                    if (!dictionary.delete("w" + j)) {
+                        violation.compareAndSet(null, "delete of present word w" + j + " failed");
+                    }
+                    deletedUpTo.set(j);
+                }
+            }
+            done.set(true);
+        });
+
+        List<Thread> readerThreads = new ArrayList<>();
+        for (int r = 0; r < readers; r++) {
+            readerThreads.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (!done.get() && violation.get() == null) {
+                    String base = "base" + random.nextInt(baseWords);
+                    if (!dictionary.search(base)) {
+                        violation.compareAndSet(null, "permanent word " + base + " missing");
+                    }
+                    if (dictionary.search("never" + random.nextInt(100))) {
+                        violation.compareAndSet(null, "absent word reported present");
+                    }
+
+                    // completed insert, delete not yet started: must be present
+                    int inserted = insertedUpTo.get();
+                    if (inserted >= 0) {
+                        int j = random.nextInt(inserted + 1);
+                        boolean found = dictionary.search("w" + j);
+                        if (!found && j > deleteStarted.get()) {
+                            violation.compareAndSet(null, "w" + j + " missing after its insert returned");
+                        }
+                    }
+
+                    // completed delete, never reinserted: must be absent
+                    int deleted = deletedUpTo.get();
+                    if (deleted >= 0) {
+                        int j = random.nextInt(deleted + 1);
+                        if (dictionary.search("w" + j)) {
+                            violation.compareAndSet(null, "w" + j + " present after its delete returned");
+                        }
+                    }
+                }
+            }));
+        }
+
+        readerThreads.forEach(Thread::start);
+        writer.start();
+        writer.join();
+        for (Thread reader : readerThreads) {
+            reader.join();
+        }
+
+        assertNull(violation.get());
+        assertEquals(baseWords + lag, dictionary.size());
+        for (int i = writes - lag; i < writes; i++) {
+            assertTrue(dictionary.search("w" + i));
+        }
+    }
+}
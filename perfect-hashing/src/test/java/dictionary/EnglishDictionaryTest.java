@@ -0,0 +1,296 @@
+package dictionary;
+
+import hashing.functions.IHashFunctionFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.CharBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class EnglishDictionaryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path writeWords(String name, List<String> lines) throws IOException {
+        Path file = tempDir.resolve(name);
+        Files.write(file, lines);
+        return file;
+    }
+
+    @Test
+    public void testBatchInsertCountsDuplicates() throws IOException {
+        for (String type : new String[]{"linear", "quadratic", "minimal"}) {
+            EnglishDictionary dictionary = new EnglishDictionary(type);
+            dictionary.build();
+            assertTrue(dictionary.insert("apple"));
+
+            Path file = writeWords("words.txt",
+                    Arrays.asList("apple", "  banana ", "", "cherry", "banana", "date", "   "));
+            int[] result = dictionary.batchInsert(file.toString());
+
+            assertArrayEquals(new int[]{3, 2}, result, type);
+            assertEquals(4, dictionary.size(), type);
+            for (String word : new String[]{"apple", "banana", "cherry", "date"}) {
+                assertTrue(dictionary.search(word), type + ": " + word);
+            }
+        }
+    }
+
+    @Test
+    public void testBatchInsertOnlyDuplicatesKeepsTable() throws IOException {
+        EnglishDictionary dictionary = new EnglishDictionary("linear");
+        dictionary.build();
+        dictionary.insert("apple");
+        int space = dictionary.getSpace();
+
+        int[] result = dictionary.batchInsert(writeWords("dups.txt", Arrays.asList("apple", "apple")).toString());
+        assertArrayEquals(new int[]{0, 2}, result);
+        assertEquals(space, dictionary.getSpace());
+    }
+
+    @Test
+    public void testBatchInsertLargeFileThenMutate() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            lines.add("word" + i);
+        }
+        EnglishDictionary dictionary = new EnglishDictionary("linear");
+        dictionary.build();
+
+        int[] result = dictionary.batchInsert(writeWords("large.txt", lines).toString());
+        assertArrayEquals(new int[]{20_000, 0}, result);
+        assertEquals(20_000, dictionary.size());
+        assertTrue(dictionary.search("word12345"));
+
+        assertTrue(dictionary.insert("extra"));
+        assertTrue(dictionary.delete("word0"));
+        assertEquals(20_000, dictionary.size());
+
+        int[] deleted = dictionary.batchDelete(writeWords("delete.txt", Arrays.asList("word1", "word0")).toString());
+        assertArrayEquals(new int[]{1, 1}, deleted);
+    }
+
+    @Test
+    public void testBatchDeleteCountsMissingWords() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            lines.add("word" + i);
+        }
+        Path words = writeWords("words.txt", lines);
+        List<String> doomed = new ArrayList<>();
+        for (int i = 0; i < 5_000; i += 2) {
+            doomed.add("word" + i);
+        }
+        doomed.addAll(Arrays.asList("word0", "missing", "", "  word1 "));
+        Path delete = writeWords("delete.txt", doomed);
+
+        for (String type : new String[]{"linear", "quadratic", "minimal", "offheap"}) {
+            EnglishDictionary dictionary = new EnglishDictionary(type);
+            dictionary.build();
+            dictionary.batchInsert(words.toString());
+
+            assertArrayEquals(new int[]{2_501, 2}, dictionary.batchDelete(delete.toString()), type);
+            assertEquals(2_499, dictionary.size(), type);
+            for (int i = 0; i < 5_000; i++) {
+                assertEquals(i % 2 == 1 && i != 1, dictionary.search("word" + i), type + ": word" + i);
+            }
+        }
+    }
+
+    @Test
+    public void testSmallBatchDeleteDoesNotRebuild() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            lines.add("word" + i);
+        }
+        EnglishDictionary dictionary = new EnglishDictionary("linear");
+        dictionary.setMetricsEnabled(true);
+        dictionary.build();
+        dictionary.batchInsert(writeWords("words.txt", lines).toString());
+        long builds = dictionary.getMetrics().getBuilds();
+
+        Path delete = writeWords("delete.txt", Arrays.asList("word7", "word8", "missing"));
+        assertArrayEquals(new int[]{2, 1}, dictionary.batchDelete(delete.toString()));
+        assertEquals(builds, dictionary.getMetrics().getBuilds());
+        assertEquals(4_998, dictionary.size());
+        assertFalse(dictionary.search("word7"));
+        assertTrue(dictionary.search("word9"));
+    }
+
+    @Test
+    public void testBatchDeleteOfMissingWordsKeepsTable() throws IOException {
+        EnglishDictionary dictionary = new EnglishDictionary("linear");
+        dictionary.build();
+        dictionary.insert("apple");
+        int space = dictionary.getSpace();
+
+        int[] result = dictionary.batchDelete(writeWords("missing.txt", Arrays.asList("pear", "plum")).toString());
+        assertArrayEquals(new int[]{0, 2}, result);
+        assertEquals(space, dictionary.getSpace());
+        assertTrue(dictionary.search("apple"));
+    }
+
+    @Test
+    public void testContainsDoesNotAllocate() throws IOException {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        long threadId = Thread.currentThread().threadId();
+
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 500; i++)
+            words.add("word" + i);
+        Path file = writeWords("words.txt", words);
+
+        // hits and misses as Strings, builders and slices of a larger buffer
+        String text = "xx word7 word499 wordy word12345 yy";
+        CharSequence[] probes = {
+                "word1", "word250", "missing", new StringBuilder("word42"), new StringBuilder("word500"),
+                CharBuffer.wrap(text, 3, 8), CharBuffer.wrap(text, 9, 16), CharBuffer.wrap(text, 17, 22),
+                CharBuffer.wrap(text, 23, 32)
+        };
+        boolean[] expected = {true, true, false, true, false, true, true, false, false};
+
+        for (String type : new String[]{"linear", "quadratic", "minimal", "arena", "offheap", "dynamic"}) {
+            IDictionary dictionary = new EnglishDictionary(type, IHashFunctionFactory.PACKED_MATRIX);
+            dictionary.build();
+            dictionary.batchInsert(file.toString());
+
+            for (int round = 0; round < 20_000; round++) {
+                for (int i = 0; i < probes.length; i++)
+                    assertEquals(expected[i], dictionary.contains(probes[i]), type + ": " + probes[i]);
+            }
+
+            // the measurement itself may cost a few bytes, lookups must not add to that. A recompilation
+            // in the middle of a run can allocate once while deoptimizing, so the best of three runs counts
+            long overhead = -threads.getThreadAllocatedBytes(threadId) + threads.getThreadAllocatedBytes(threadId);
+            long allocated = Long.MAX_VALUE;
+            for (int run = 0; run < 3 && allocated > 0; run++) {
+                long before = threads.getThreadAllocatedBytes(threadId);
+                int found = 0;
+                for (int round = 0; round < 1_000; round++) {
+                    for (CharSequence probe : probes) {
+                        if (dictionary.contains(probe))
+                            found++;
+                    }
+                }
+                allocated = threads.getThreadAllocatedBytes(threadId) - before - overhead;
+                assertEquals(5_000, found, type);
+            }
+
+            assertEquals(0, allocated, type + " allocated " + allocated + " bytes in " + 9_000 + " lookups");
+        }
+    }
+
+    @Test
+    public void testSearchAllMatchesContains() throws IOException {
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++)
+            words.add("word" + i);
+        Path file = writeWords("words.txt", words);
+
+        // more probes than one lookup group, and a ragged last group
+        List<CharSequence> probes = new ArrayList<>();
+        for (int i = 0; i < 3_000; i += 7)
+            probes.add(i % 2 == 0 ? "word" + i : new StringBuilder("word").append(i));
+        probes.add("");
+        probes.add("missing");
+
+        for (String type : new String[]{"linear", "quadratic", "minimal", "arena", "offheap", "dynamic"}) {
+            IDictionary dictionary = new EnglishDictionary(type, IHashFunctionFactory.PACKED_MATRIX);
+            dictionary.build();
+            dictionary.batchInsert(file.toString());
+
+            boolean[] found = dictionary.searchAll(probes);
+            assertEquals(probes.size(), found.length, type);
+            for (int i = 0; i < found.length; i++)
+                assertEquals(dictionary.contains(probes.get(i)), found[i], type + ": " + probes.get(i));
+            assertEquals(0, dictionary.searchAll(new ArrayList<>()).length, type);
+        }
+    }
+
+    @Test
+    public void testMetricsCanBeSwitchedOff() throws IOException {
+        Path file = writeWords("words.txt", Arrays.asList("apple", "banana", "cherry"));
+        EnglishDictionary dictionary = new EnglishDictionary("linear");
+        dictionary.setMetricsEnabled(true);
+        dictionary.build();
+        dictionary.batchInsert(file.toString());
+
+        assertTrue(dictionary.search("apple"));
+        assertFalse(dictionary.contains("grape"));
+        assertEquals(2, dictionary.getMetrics().getLookups());
+        assertEquals(0.5, dictionary.getMetrics().getHitRatio(), 1e-9);
+        assertEquals(2, dictionary.getMetrics().getBuilds());
+
+        // the snapshot holds the table itself, and a loaded table is measured again
+        Path snapshot = tempDir.resolve("words.snapshot");
+        dictionary.save(snapshot.toString());
+        dictionary.load(snapshot.toString());
+        assertTrue(dictionary.isMetricsEnabled());
+        assertTrue(dictionary.search("cherry"));
+        assertEquals(3, dictionary.getMetrics().getLookups());
+
+        dictionary.setMetricsEnabled(false);
+        assertFalse(dictionary.isMetricsEnabled());
+        assertTrue(dictionary.search("banana"));
+        assertEquals(3, dictionary.getMetrics().getLookups());
+        assertEquals(3, dictionary.size());
+    }
+
+    @Test
+    public void testCorruptSnapshotIsRejected() throws IOException {
+        EnglishDictionary dictionary = new EnglishDictionary("linear");
+        dictionary.build();
+        dictionary.batchInsert(writeWords("words.txt", Arrays.asList("apple", "banana", "cherry")).toString());
+        Path snapshot = tempDir.resolve("words.snapshot");
+        dictionary.save(snapshot.toString());
+
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length - 2] ^= 0x40;
+        Files.write(snapshot, bytes);
+        assertThrows(RuntimeException.class, () -> dictionary.load(snapshot.toString()));
+        assertTrue(dictionary.search("apple"));
+    }
+
+    @Test
+    public void testLookupFilterKeepsAnswers() throws IOException {
+        Path file = writeWords("words.txt", Arrays.asList("apple", "banana", "cherry"));
+        EnglishDictionary dictionary = new EnglishDictionary("linear");
+        dictionary.build();
+        dictionary.batchInsert(file.toString());
+        dictionary.setMetricsEnabled(true);
+        dictionary.setLookupFilter(0.01);
+        dictionary.getMetrics().setSampleInterval(1);
+
+        assertTrue(dictionary.search("apple"));
+        assertTrue(dictionary.insert("durian"));
+        assertTrue(dictionary.contains("durian"));
+        assertTrue(dictionary.delete("banana"));
+        assertFalse(dictionary.search("banana"));
+        for (int i = 0; i < 100; i++)
+            assertFalse(dictionary.search("missing" + i));
+        // nearly every miss is rejected without touching the table
+        assertTrue(dictionary.getMetrics().getMeanProbes() < 1, "probes " + dictionary.getMetrics().getMeanProbes());
+
+        Path snapshot = tempDir.resolve("words.snapshot");
+        dictionary.save(snapshot.toString());
+        dictionary.load(snapshot.toString());
+        assertTrue(dictionary.search("cherry"));
+        assertFalse(dictionary.search("banana"));
+
+        dictionary.setLookupFilter(0);
+        assertTrue(dictionary.search("durian"));
+        assertThrows(IllegalArgumentException.class, () -> dictionary.setLookupFilter(1));
+    }
+}
@@ -0,0 +1,75 @@
+package dictionary;
+
+import hashing.functions.IHashFunctionFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeyNormalizerTest {
+
+    private static final String COMPOSED = "café";
+    private static final String DECOMPOSED = "café";
+
+    @Test
+    public void testNfcMergesCanonicalSpellings() {
+        assertEquals(COMPOSED, KeyNormalizer.NFC.normalize(DECOMPOSED));
+        assertEquals(COMPOSED, KeyNormalizer.NFC.normalize(COMPOSED));
+        assertEquals("Apple", KeyNormalizer.NFC.normalize("Apple"));
+        assertEquals(DECOMPOSED, KeyNormalizer.NONE.normalize(DECOMPOSED));
+    }
+
+    @Test
+    public void testCaseFold() {
+        assertEquals("apple", KeyNormalizer.CASE_FOLD.normalize("APPLE"));
+        assertEquals("strasse", KeyNormalizer.CASE_FOLD.normalize("Straße"));
+        assertEquals(KeyNormalizer.CASE_FOLD.normalize("STRASSE"), KeyNormalizer.CASE_FOLD.normalize("straße"));
+        assertEquals(COMPOSED, KeyNormalizer.CASE_FOLD.normalize("CAFÉ"));
+    }
+
+    @Test
+    public void testQuickCheckNeverAcceptsUnnormalizedKeys() {
+        for (KeyNormalizer normalizer : new KeyNormalizer[]{KeyNormalizer.NONE, KeyNormalizer.NFC, KeyNormalizer.CASE_FOLD}) {
+            for (String key : new String[]{"apple", "Apple", COMPOSED, DECOMPOSED, "日本", "Å", "Å"}) {
+                if (normalizer.isNormalized(key))
+                    assertEquals(key, normalizer.normalize(key), normalizer + ": " + key);
+            }
+        }
+        assertTrue(KeyNormalizer.CASE_FOLD.isNormalized("apple"));
+        assertTrue(KeyNormalizer.NFC.isNormalized("Apple"));
+    }
+
+    @Test
+    public void testNormalizeAllCopiesOnlyWhenNeeded() {
+        List<String> clean = Arrays.asList("apple", null, "pear");
+        assertSame(clean, KeyNormalizer.CASE_FOLD.normalizeAll(clean));
+        List<? extends CharSequence> normalized = KeyNormalizer.CASE_FOLD.normalizeAll(Arrays.asList("apple", null, "PEAR"));
+        assertEquals(Arrays.asList("apple", null, "pear"), normalized);
+    }
+
+    @Test
+    public void testDictionaryAppliesNormalizer() {
+        for (String type : new String[]{"linear", "arena", "minimal"}) {
+            EnglishDictionary dictionary = new EnglishDictionary(type, IHashFunctionFactory.PACKED_MATRIX, KeyNormalizer.CASE_FOLD);
+            dictionary.build();
+            assertTrue(dictionary.insert("Apple"));
+            assertFalse(dictionary.insert("APPLE"));
+            assertTrue(dictionary.insert(DECOMPOSED));
+            assertTrue(dictionary.search("apple"));
+            assertTrue(dictionary.contains(new StringBuilder("aPPle")));
+            assertTrue(dictionary.search("CAFÉ"));
+            assertArrayEquals(new boolean[]{true, true, false}, dictionary.searchAll(Arrays.asList("APPLE", COMPOSED, "pear")));
+            assertTrue(dictionary.delete("apple"));
+            assertEquals(1, dictionary.size(), type);
+
+            EnglishDictionary caseSensitive = new EnglishDictionary(type);
+            caseSensitive.build();
+            caseSensitive.insert("Apple");
+            caseSensitive.insert(DECOMPOSED);
+            assertFalse(caseSensitive.search("apple"));
+            assertTrue(caseSensitive.search(COMPOSED));
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package dictionary;
+
+import hashing.tables.LinearSpaceHashTable;
+import hashing.tables.OffHeapHashTable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardedDictionaryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static List<String> words(String prefix, int count) {
+        List<String> words = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            words.add(prefix + i);
+        }
+        return words;
+    }
+
+    @Test
+    public void testSingleWordOperations() {
+        ShardedDictionary dictionary = new ShardedDictionary("linear", 4);
+        assertTrue(dictionary.insert("apple"));
+        assertTrue(dictionary.insert("banana"));
+        assertFalse(dictionary.insert("apple"));
+        assertTrue(dictionary.search("apple"));
+        assertTrue(dictionary.contains(new StringBuilder("banana")));
+        assertFalse(dictionary.search("cherry"));
+        assertFalse(dictionary.search(""));
+        assertFalse(dictionary.insert(null));
+
+        assertTrue(dictionary.delete("apple"));
+        assertFalse(dictionary.delete("apple"));
+        assertFalse(dictionary.search("apple"));
+        assertEquals(1, dictionary.size());
+        assertEquals(1, dictionary.getShardSizes()[dictionary.shardOf("banana")]);
+
+        assertThrows(IllegalArgumentException.class, () -> new ShardedDictionary("linear", 0));
+        assertThrows(IllegalArgumentException.class, () -> dictionary.rebuildShard(4));
+    }
+
+    @Test
+    public void testBatchOperationsAcrossShards() throws IOException {
+        ShardedDictionary dictionary = new ShardedDictionary(LinearSpaceHashTable::new, 8, KeyNormalizer.NFC);
+        dictionary.insert("word0");
+        List<String> lines = words("word", 5_000);
+        lines.add("word1");
+        Path file = tempDir.resolve("words.txt");
+        Files.write(file, lines);
+
+        assertArrayEquals(new int[]{4_999, 2}, dictionary.batchInsert(file.toString()));
+        assertEquals(5_000, dictionary.size());
+        int smallest = Integer.MAX_VALUE;
+        for (int size : dictionary.getShardSizes()) {
+            smallest = Math.min(smallest, size);
+        }
+        assertTrue(smallest > 5_000 / 8 / 2, "shards are roughly balanced");
+
+        List<CharSequence> probes = new ArrayList<>(Arrays.asList("word7", "", "missing", "word4999"));
+        probes.add(new StringBuilder("word123"));
+        assertArrayEquals(new boolean[]{true, false, false, true, true}, dictionary.searchAll(probes));
+
+        Files.write(file, Arrays.asList("word7", "word8", "missing"));
+        assertArrayEquals(new int[]{2, 1}, dictionary.batchDelete(file.toString()));
+        assertFalse(dictionary.search("word7"));
+
+        int shard = dictionary.shardOf("word9");
+        int shardSize = dictionary.getShardSizes()[shard];
+        dictionary.rebuildShard(shard);
+        assertTrue(dictionary.search("word9"));
+        assertEquals(shardSize, dictionary.getShardSizes()[shard]);
+        assertEquals(4_998, dictionary.size());
+    }
+
+    @Test
+    public void testBatchDeleteFromMinimalShards() throws IOException {
+        ShardedDictionary dictionary = new ShardedDictionary("minimal", 4);
+        Path file = tempDir.resolve("words.txt");
+        Files.write(file, words("word", 1_000));
+        dictionary.batchInsert(file.toString());
+
+        Files.write(file, Arrays.asList("word7", "word8", "missing"));
+        assertArrayEquals(new int[]{2, 1}, dictionary.batchDelete(file.toString()));
+        assertEquals(998, dictionary.size());
+        assertFalse(dictionary.search("word8"));
+        assertTrue(dictionary.search("word9"));
+    }
+
+    @Test
+    public void testParallelAndSerialBuildsAgree() throws IOException {
+        Path file = tempDir.resolve("words.txt");
+        Files.write(file, words("w", 3_000));
+
+        ShardedDictionary serial = new ShardedDictionary("linear", 6);
+        serial.setParallelism(1);
+        ShardedDictionary parallel = new ShardedDictionary("linear", 6);
+        parallel.setParallelism(4);
+        assertArrayEquals(serial.batchInsert(file.toString()), parallel.batchInsert(file.toString()));
+        assertArrayEquals(serial.getShardSizes(), parallel.getShardSizes());
+        for (String word : words("w", 3_000)) {
+            assertTrue(parallel.search(word), word);
+        }
+    }
+
+    @Test
+    public void testRebuildShardDoesNotBlockTheShard() throws InterruptedException {
+        AtomicBoolean blockNextBuild = new AtomicBoolean();
+        CountDownLatch building = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ShardedDictionary dictionary = new ShardedDictionary(() -> new LinearSpaceHashTable() {
+            @Override
+            public int build(List<String> keys) {
+                if (blockNextBuild.getAndSet(false)) {
+                    building.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                return super.build(keys);
+            }
+        }, 2, KeyNormalizer.NFC);
+        for (String word : words("w", 100)) {
+            dictionary.insert(word);
+        }
+        int shard = dictionary.shardOf("w0");
+        String late = words("late", 100).stream().filter(word -> dictionary.shardOf(word) == shard).findFirst().get();
+
+        blockNextBuild.set(true);
+        Thread rebuild = new Thread(() -> dictionary.rebuildShard(shard));
+        rebuild.start();
+        building.await();
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            assertTrue(dictionary.search("w0"));
+            assertTrue(dictionary.insert(late)); // lands in the old table, so the rebuild goes again
+        });
+        release.countDown();
+        rebuild.join();
+
+        assertTrue(dictionary.search(late));
+        assertTrue(dictionary.search("w0"));
+        assertEquals(101, dictionary.size());
+    }
+
+    @Test
+    public void testBatchInsertDoesNotBlockTheShard() throws IOException, InterruptedException {
+        AtomicBoolean blockNextBuild = new AtomicBoolean();
+        CountDownLatch building = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ShardedDictionary dictionary = new ShardedDictionary(() -> new LinearSpaceHashTable() {
+            @Override
+            public int build(List<String> keys) {
+                if (blockNextBuild.getAndSet(false)) {
+                    building.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                return super.build(keys);
+            }
+        }, 1, KeyNormalizer.NFC);
+        dictionary.setParallelism(1);
+        for (String word : words("w", 100)) {
+            dictionary.insert(word);
+        }
+        Path file = tempDir.resolve("words.txt");
+        Files.write(file, words("new", 50));
+
+        blockNextBuild.set(true);
+        AtomicReference<int[]> result = new AtomicReference<>();
+        Thread batch = new Thread(() -> result.set(dictionary.batchInsert(file.toString())));
+        batch.start();
+        building.await();
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            assertTrue(dictionary.search("w0"));
+            assertTrue(dictionary.insert("late")); // lands in the old table, so the build goes again
+        });
+        release.countDown();
+        batch.join();
+
+        assertArrayEquals(new int[]{50, 0}, result.get());
+        assertTrue(dictionary.search("late"));
+        assertTrue(dictionary.search("new49"));
+        assertEquals(151, dictionary.size());
+    }
+
+    @Test
+    public void testCloseReleasesThreadsAndTables() throws IOException {
+        List<OffHeapHashTable> tables = new ArrayList<>();
+        ShardedDictionary dictionary = new ShardedDictionary(() -> {
+            OffHeapHashTable table = new OffHeapHashTable();
+            synchronized (tables) {
+                tables.add(table);
+            }
+            return table;
+        }, 4, KeyNormalizer.NFC);
+        dictionary.setParallelism(2);
+        Path file = tempDir.resolve("words.txt");
+        Files.write(file, words("w", 1_000));
+        dictionary.batchInsert(file.toString());
+        ForkJoinPool pool = dictionary.getPool();
+        assertNotNull(pool);
+
+        dictionary.rebuildShard(0);
+        synchronized (tables) {
+            // 4 from the constructor, 4 from the batch, 1 from the rebuild, each replacing one before it
+            assertEquals(9, tables.size());
+            assertEquals(5, tables.stream().filter(table -> table.getOffHeapBytes() == 0).count());
+        }
+
+        dictionary.close();
+        assertTrue(pool.isShutdown());
+        assertNull(dictionary.getPool());
+        for (OffHeapHashTable table : tables) {
+            assertEquals(0, table.getOffHeapBytes());
+        }
+    }
+
+    @Test
+    public void testConcurrentReadersAndWriters() throws InterruptedException {
+        ShardedDictionary dictionary = new ShardedDictionary("linear", 4);
+        for (String word : words("base", 1_000)) {
+            dictionary.insert(word);
+        }
+
+        AtomicReference<String> violation = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            String prefix = "t" + t + "-";
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    String word = prefix + i;
+                    if (!dictionary.insert(word) || !dictionary.search(word))
+                        violation.compareAndSet(null, "lost " + word);
+                    if (!dictionary.search("base" + i % 1_000))
+                        violation.compareAndSet(null, "lost base" + i % 1_000);
+                    if (i % 2 == 0 && !dictionary.delete(word))
+                        violation.compareAndSet(null, "could not delete " + word);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(violation.get());
+        assertEquals(1_000 + 4 * 1_000, dictionary.size());
+    }
+}
@@ -0,0 +1,105 @@
+package dictionary;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WordFileLoaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    // What batchInsert used to do: readLine, trim, skip blank lines
+    private static List<String> readLines(Path file) throws IOException {
+        List<String> words = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty())
+                    words.add(line);
+            }
+        }
+        return words;
+    }
+
+    @Test
+    public void testMatchesLineReaderAcrossChunkBoundaries() throws IOException {
+        String text = "apple\n  banana \r\n\r\n\tcherry\rcafé\n日本語\n   \nemoji😀\n"
+                + "a-much-longer-line-than-any-chunk-in-this-test\nlast";
+        Path file = tempDir.resolve("words.txt");
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        List<String> expected = readLines(file);
+
+        for (int chunkBytes : new int[]{1, 3, 7, 16, WordFileLoader.DEFAULT_CHUNK_BYTES}) {
+            for (int parallelism : new int[]{1, 4}) {
+                WordFileLoader loader = new WordFileLoader();
+                loader.setChunkBytes(chunkBytes);
+                loader.setParallelism(parallelism);
+                assertEquals(expected, loader.readAll(file), chunkBytes + " bytes, " + parallelism + " threads");
+            }
+        }
+    }
+
+    @Test
+    public void testLargeFileInOrderWithProgress() throws IOException {
+        Random random = new Random(3);
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            lines.add((random.nextBoolean() ? " " : "") + "word" + random.nextInt(50_000));
+        }
+        Path file = tempDir.resolve("large.txt");
+        Files.write(file, lines);
+
+        WordFileLoader loader = new WordFileLoader();
+        loader.setChunkBytes(4096);
+        loader.setParallelism(4);
+        List<LoadProgress> reports = new ArrayList<>();
+        loader.setProgressListener(reports::add);
+        List<String> words = new ArrayList<>();
+        LoadProgress last = loader.forEachChunk(file, words::addAll);
+
+        assertEquals(readLines(file), words);
+        assertTrue(reports.size() > 100);
+        for (int i = 1; i < reports.size(); i++) {
+            assertTrue(reports.get(i).getBytesRead() > reports.get(i - 1).getBytesRead());
+        }
+        assertEquals(Files.size(file), last.getBytesRead());
+        assertEquals(Files.size(file), last.getTotalBytes());
+        assertEquals(100_000, last.getWords());
+        assertEquals(1.0, last.getFraction());
+        assertSame(last, reports.get(reports.size() - 1));
+    }
+
+    @Test
+    public void testNormalizerAndEmptyFile() throws IOException {
+        Path file = tempDir.resolve("mixed.txt");
+        Files.write(file, Arrays.asList("Apple", "SKIP", "banana"));
+        WordFileLoader loader = new WordFileLoader();
+        loader.setNormalizer(word -> word.equals("SKIP") ? null : word.toLowerCase(Locale.ROOT));
+        assertEquals(Arrays.asList("apple", "banana"), loader.readAll(file));
+
+        Path empty = Files.createFile(tempDir.resolve("empty.txt"));
+        assertEquals(new ArrayList<>(), loader.readAll(empty));
+    }
+
+    @Test
+    public void testRejectsBadSettings() {
+        WordFileLoader loader = new WordFileLoader();
+        assertThrows(IllegalArgumentException.class, () -> loader.setParallelism(0));
+        assertThrows(IllegalArgumentException.class, () -> loader.setChunkBytes(0));
+        assertThrows(IllegalArgumentException.class, () -> loader.setNormalizer(null));
+    }
+}
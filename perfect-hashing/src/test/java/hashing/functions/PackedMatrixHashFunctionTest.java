@@ -0,0 +1,122 @@
+package hashing.functions;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PackedMatrixHashFunctionTest {
+
+    @Test
+    public void testHashInRange() {
+        int tableSize = 16;
+        IHashFunction hashFunction = new PackedMatrixHashFunction(tableSize, 64);
+
+        String[] testStrings = {"apple", "banana", "cherry", "pizza", "grape", "honey", "lemon", "black", "white"};
+
+        for (String testString : testStrings) {
+            int hash = hashFunction.hash(testString);
+            assertTrue(hash >= 0 && hash < tableSize);
+        }
+    }
+
+    @Test
+    public void testSameStringHashesSame() {
+        IHashFunction hashFunction = new PackedMatrixHashFunction(64, 300);
+        String testString = "testString";
+        assertEquals(hashFunction.hash(testString), hashFunction.hash(testString));
+    }
+
+    @Test
+    public void testMatchesUnpackedMatrix() {
+        int[] keyBits = {1, 7, 63, 64, 65, 128, 300};
+        String[] testStrings = {"", "a", "apple", "testString", "abcdefghijklmnopqrstuvwxyz", "naïve", "日本語", "😀",
+                "1234567", "12345678", "colour", "colour\u0000", "lone\uD800", "日本語日本語日本語日本語日本語",
+                "a much longer key that runs well past the three hundred bits the matrix covers",
+                "exactly thirty-seven bytes long here.", "exactly thirty-eight bytes long here.."};
+
+        for (int bits : keyBits) {
+            MatrixHashFunction matrix = new MatrixHashFunction(1000, bits);
+            IHashFunction packed = new PackedMatrixHashFunction(matrix);
+            for (String testString : testStrings)
+                assertEquals("keyBits=" + bits + ", key=" + testString,
+                        matrix.hash(testString), packed.hash(testString));
+        }
+    }
+
+    @Test
+    public void testTrailingZeroByteCounts() {
+        String longKey = "a much longer key that runs well past the three hundred bits the matrix covers";
+        for (int bits : new int[]{64, 128, 300}) {
+            IHashFunction hashFunction = new PackedMatrixHashFunction(1 << 16, bits);
+            int same = 0;
+            for (int i = 0; i < 20; i++) {
+                IHashFunction fresh = hashFunction.generateNew();
+                if (fresh.hash("colour") == fresh.hash("colour\u0000"))
+                    same++;
+                if (fresh.hash(longKey) == fresh.hash(longKey + "\u0000"))
+                    same++;
+            }
+            assertTrue("keyBits=" + bits, same < 5);
+        }
+    }
+
+    @Test
+    public void testSwappedBlocksOfALongKeyCount() {
+        // two 75-byte blocks are 600 bits, twice u, so a plain wrap-around XOR maps both orders to one vector
+        Random random = new Random(3);
+        StringBuilder x = new StringBuilder();
+        StringBuilder y = new StringBuilder();
+        for (int i = 0; i < 75; i++) {
+            x.append((char) ('a' + random.nextInt(26)));
+            y.append((char) ('a' + random.nextInt(26)));
+        }
+        String xy = x.toString() + y;
+        String yx = y.toString() + x;
+
+        IHashFunction hashFunction = new PackedMatrixHashFunction(1 << 16, 300);
+        int same = 0;
+        for (int i = 0; i < 20; i++) {
+            IHashFunction fresh = hashFunction.generateNew();
+            if (fresh.hash(xy) == fresh.hash(yx))
+                same++;
+        }
+        assertTrue(same < 3);
+    }
+
+    @Test
+    public void testEveryByteOfLongKeysCounts() {
+        String prefix = "a key prefix that is longer than the sixty four bits we give the matrix: ";
+        IHashFunction hashFunction = new PackedMatrixHashFunction(1 << 16, 64);
+        Set<Integer> hashes = new HashSet<>();
+        for (int i = 0; i < 100; i++)
+            hashes.add(hashFunction.hash(prefix + i));
+        assertTrue(hashes.size() > 50);
+
+        // the high bit of a character matters too
+        int same = 0;
+        for (int i = 0; i < 20; i++) {
+            IHashFunction fresh = hashFunction.generateNew();
+            if (fresh.hash("a") == fresh.hash("\u00E1"))
+                same++;
+        }
+        assertTrue(same < 10);
+    }
+
+    @Test
+    public void testGenerateNewCreatesDistinctFunction() {
+        IHashFunction hashFunction1 = new PackedMatrixHashFunction(64, 64);
+        IHashFunction hashFunction2 = hashFunction1.generateNew();
+
+        int differentHashCount = 0;
+        int testCount = 20;
+        for (int i = 0; i < testCount; i++) {
+            String testString = "testString" + i;
+            if (hashFunction1.hash(testString) != hashFunction2.hash(testString)) differentHashCount++;
+        }
+
+        assertTrue(differentHashCount > testCount / 2);
+    }
+}
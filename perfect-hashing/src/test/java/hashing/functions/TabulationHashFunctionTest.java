@@ -0,0 +1,70 @@
+package hashing.functions;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TabulationHashFunctionTest {
+
+    @Test
+    public void testHashInRange() {
+        int[] tableSizes = {1, 16, 1000, 1 << 30};
+        String[] testStrings = {"", "apple", "banana", "naïve", "日本語", "😀", "a very long key that wraps the tables"};
+
+        for (int tableSize : tableSizes) {
+            IHashFunction hashFunction = new TabulationHashFunction(tableSize);
+            for (String testString : testStrings) {
+                int hash = hashFunction.hash(testString);
+                assertTrue(hash >= 0 && hash < tableSize);
+            }
+        }
+    }
+
+    @Test
+    public void testSameStringHashesSame() {
+        IHashFunction hashFunction = new TabulationHashFunction(64);
+        assertEquals(hashFunction.hash("testString"), hashFunction.hash("testString"));
+    }
+
+    @Test
+    public void testDistribution() {
+        int tableSize = 1024;
+        IHashFunction hashFunction = new TabulationHashFunction(tableSize);
+        Set<Integer> hashes = new HashSet<>();
+        for (int i = 0; i < 256; i++)
+            hashes.add(hashFunction.hash("key" + i));
+
+        // 256 keys into 1024 slots should collide only a handful of times
+        assertTrue(hashes.size() > 200);
+    }
+
+    @Test
+    public void testDistributionOfLongKeysWithACommonPrefix() {
+        int tableSize = 1024;
+        IHashFunction hashFunction = new TabulationHashFunction(tableSize);
+        Set<Integer> hashes = new HashSet<>();
+        for (int i = 0; i < 256; i++)
+            hashes.add(hashFunction.hash("internationalization-" + i + "-counterrevolutionaries"));
+
+        // every byte past the eighth still counts
+        assertTrue(hashes.size() > 200);
+    }
+
+    @Test
+    public void testGenerateNewCreatesDistinctFunction() {
+        IHashFunction hashFunction1 = new TabulationHashFunction(64);
+        IHashFunction hashFunction2 = hashFunction1.generateNew();
+
+        int differentHashCount = 0;
+        int testCount = 20;
+        for (int i = 0; i < testCount; i++) {
+            String testString = "testString" + i;
+            if (hashFunction1.hash(testString) != hashFunction2.hash(testString)) differentHashCount++;
+        }
+
+        assertTrue(differentHashCount > testCount / 2);
+    }
+}
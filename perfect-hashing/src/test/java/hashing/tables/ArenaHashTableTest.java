@@ -0,0 +1,160 @@
+package hashing.tables;
+
+import hashing.functions.KeyFingerprint;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArenaHashTableTest {
+
+    private ArenaHashTable hashTable;
+
+    @BeforeEach
+    public void setUp() {
+        hashTable = new ArenaHashTable();
+    }
+
+    @Test
+    public void testBuildWithEmptyList() {
+        hashTable.build(new ArrayList<>());
+        assertEquals(0, hashTable.size());
+        assertFalse(hashTable.search("apple"));
+        assertFalse(hashTable.delete("apple"));
+    }
+
+    @Test
+    public void testBuildCorrectness() {
+        List<String> input = Arrays.asList("apple", "banana", "cherry", "pizza", "grape", "honey", "lemon", "black", "white");
+        hashTable.build(input);
+
+        for (String s : input) {
+            assertTrue(hashTable.search(s), "Failed to find: " + s);
+        }
+        assertFalse(hashTable.search("orange"));
+        assertFalse(hashTable.search("appl"));
+        assertFalse(hashTable.search("apples"));
+        assertEquals(input.size(), hashTable.size());
+        assertTrue(hashTable.getSpace() <= 5 * input.size());
+    }
+
+    @Test
+    public void testDuplicatesAreStoredOnce() {
+        hashTable.build(Arrays.asList("x", "y", "x", "z", "y"));
+        assertEquals(3, hashTable.size());
+        assertEquals(new HashSet<>(Arrays.asList("x", "y", "z")), new HashSet<>(hashTable.toList()));
+    }
+
+    @Test
+    public void testNonAsciiKeysRoundTrip() {
+        List<String> input = Arrays.asList("café", "naïve", "日本語", "emoji😀", "lone\uD800", "lone?", "");
+        hashTable.build(input);
+        for (String s : input) {
+            assertTrue(hashTable.search(s), "Failed to find: " + s);
+        }
+        assertFalse(hashTable.search("cafe"));
+        assertEquals(new HashSet<>(input), new HashSet<>(hashTable.toList()));
+    }
+
+    @Test
+    public void testStringAndByteFingerprintsAgree() {
+        for (String s : Arrays.asList("", "a", "12345678", "123456789", "café au lait", "😀 smile")) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            assertEquals(KeyFingerprint.ofUtf8(bytes, 0, bytes.length, 7), KeyFingerprint.ofUtf8(s, 7), s);
+        }
+    }
+
+    @Test
+    public void testInsertDeleteChurn() {
+        Random random = new Random(1);
+        Set<String> expected = new HashSet<>();
+        hashTable.build(new ArrayList<>());
+        for (int i = 0; i < 20000; i++) {
+            String key = "k" + random.nextInt(3000);
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(key), hashTable.insert(key), key);
+            } else {
+                assertEquals(expected.remove(key), hashTable.delete(key), key);
+            }
+        }
+        assertEquals(expected.size(), hashTable.size());
+        assertEquals(expected, new HashSet<>(hashTable.toList()));
+        for (int i = 0; i < 3000; i++) {
+            assertEquals(expected.contains("k" + i), hashTable.search("k" + i));
+        }
+    }
+
+    @Test
+    public void testSearchAllMatchesSearch() {
+        List<String> input = new ArrayList<>();
+        for (int i = 0; i < 50000; i++) {
+            input.add("word" + i);
+        }
+        hashTable.build(input);
+        assertArrayEquals(new boolean[]{false}, new ArenaHashTable().searchAll(Arrays.asList("word1")));
+
+        List<CharSequence> probes = new ArrayList<>();
+        for (int i = 0; i < 100001; i += 3) {
+            probes.add(i % 2 == 0 ? "word" + i : new StringBuilder("word").append(i));
+        }
+        probes.add(null);
+
+        boolean[] found = hashTable.searchAll(probes);
+        for (int i = 0; i < probes.size() - 1; i++) {
+            assertEquals(hashTable.contains(probes.get(i)), found[i], probes.get(i).toString());
+            assertEquals(i * 3 < 50000, found[i], probes.get(i).toString());
+        }
+        assertFalse(found[probes.size() - 1]);
+    }
+
+    @Test
+    public void testSearchAllAfterUpdates() {
+        List<String> input = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            input.add("word" + i);
+        }
+        hashTable.build(input);
+        // enough inserts to reseed and move buckets, too few to double the table
+        for (int i = 10000; i < 14000; i++) {
+            assertTrue(hashTable.insert("word" + i));
+        }
+        for (int i = 0; i < 14000; i += 5) {
+            assertTrue(hashTable.delete("word" + i));
+        }
+
+        List<CharSequence> probes = new ArrayList<>();
+        for (int i = 0; i < 16000; i++) {
+            probes.add("word" + i);
+        }
+        boolean[] found = hashTable.searchAll(probes);
+        for (int i = 0; i < 16000; i++) {
+            assertEquals(i < 14000 && i % 5 != 0, found[i], "word" + i);
+            assertEquals(found[i], hashTable.search("word" + i), "word" + i);
+        }
+    }
+
+    @Test
+    public void testMemoryReport() {
+        List<String> input = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            input.add("word" + i);
+        }
+        hashTable.build(input);
+
+        MemoryReport report = hashTable.getMemoryReport();
+        assertEquals(input.size(), report.getKeys());
+        long keyBytes = input.stream().mapToLong(String::length).sum();
+        assertEquals(keyBytes, report.getKeyBytes());
+        assertEquals(report.getArenaBytes() + report.getSlotBytes() + report.getDirectoryBytes(), report.getTotalBytes());
+        assertTrue(report.getTotalBytes() < report.getStringEquivalentBytes() + 5L * 8 * input.size(),
+                report.toString());
+    }
+}
@@ -0,0 +1,119 @@
+package hashing.tables;
+
+import hashing.functions.IHashFunctionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DynamicPerfectHashTableTest {
+
+    private DynamicPerfectHashTable hashTable;
+
+    @BeforeEach
+    public void setUp() {
+        hashTable = new DynamicPerfectHashTable();
+    }
+
+    @Test
+    public void testKeysAPlainWrapAroundCannotSeparate() {
+        String x = "the first seventy-five byte block of a key that is longer than the matrix..";
+        String y = "and a second seventy-five byte block, which is swapped with the first one..";
+        List<String> input = new ArrayList<>(Arrays.asList("colour", "colour\u0000", x + y, y + x));
+        for (int i = 0; i < 200; i++) {
+            input.add("w" + i);
+        }
+        hashTable.build(input);
+        for (String s : input) {
+            assertTrue(hashTable.search(s), "Failed to find: " + s);
+        }
+        assertEquals(input.size(), hashTable.size());
+    }
+
+    @Test
+    public void testEmptyTable() {
+        assertEquals(0, hashTable.size());
+        assertFalse(hashTable.search("apple"));
+        assertFalse(hashTable.delete("apple"));
+    }
+
+    @Test
+    public void testBuildCorrectness() {
+        List<String> input = Arrays.asList("apple", "banana", "cherry", "pizza", "grape", "honey", "lemon", "black", "white");
+        hashTable.build(input);
+
+        for (String s : input) {
+            assertTrue(hashTable.search(s), "Failed to find: " + s);
+        }
+        assertFalse(hashTable.search("orange"));
+        assertEquals(input.size(), hashTable.size());
+        assertEquals(new HashSet<>(input), new HashSet<>(hashTable.toList()));
+    }
+
+    @Test
+    public void testInsertsMostlyAvoidGlobalRebuilds() {
+        List<String> input = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            input.add("word" + i);
+        }
+        hashTable.build(input);
+        for (int i = 5_000; i < 10_000; i++) {
+            assertTrue(hashTable.insert("word" + i));
+        }
+
+        // the table was built with room to double, so collisions are handled bucket by bucket
+        assertEquals(0, hashTable.getGlobalRebuilds());
+        assertTrue(hashTable.getLocalRebuilds() > 0);
+        assertEquals(10_000, hashTable.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(hashTable.search("word" + i));
+        }
+        // 2n buckets with at most 32 slots each on average
+        assertTrue(hashTable.getSpace() <= 33 * 2 * 5_000);
+    }
+
+    @Test
+    public void testChurnMatchesHashSet() {
+        DynamicPerfectHashTable table = new DynamicPerfectHashTable(IHashFunctionFactory.TABULATION);
+        Random random = new Random(3);
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < 20_000; i++) {
+            String key = "k" + random.nextInt(2_000);
+            if (random.nextInt(3) > 0) {
+                assertEquals(expected.add(key), table.insert(key), key);
+            } else {
+                assertEquals(expected.remove(key), table.delete(key), key);
+            }
+        }
+        assertEquals(expected.size(), table.size());
+        assertEquals(expected, new HashSet<>(table.toList()));
+        for (int i = 0; i < 2_000; i++) {
+            assertEquals(expected.contains("k" + i), table.search("k" + i));
+        }
+    }
+
+    @Test
+    public void testShrinksAfterMassDelete() {
+        List<String> input = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            input.add("word" + i);
+        }
+        hashTable.build(input);
+        int fullSpace = hashTable.getSpace();
+        for (int i = 0; i < 900; i++) {
+            assertTrue(hashTable.delete("word" + i));
+        }
+        assertTrue(hashTable.getGlobalRebuilds() > 0);
+        assertTrue(hashTable.getSpace() < fullSpace);
+        for (int i = 900; i < 1_000; i++) {
+            assertTrue(hashTable.search("word" + i));
+        }
+    }
+}
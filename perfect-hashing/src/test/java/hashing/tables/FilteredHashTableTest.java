@@ -0,0 +1,99 @@
+package hashing.tables;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilteredHashTableTest {
+
+    private static List<String> words(String prefix, int count) {
+        List<String> words = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            words.add(prefix + i);
+        }
+        return words;
+    }
+
+    @Test
+    public void testFalsePositiveRateIsNearTarget() {
+        for (double rate : new double[]{0.01, 0.001}) {
+            BlockedBloomFilter filter = new BlockedBloomFilter(100_000, rate);
+            for (String word : words("key", 100_000)) {
+                filter.add(word);
+            }
+            for (String word : words("key", 100_000)) {
+                assertTrue(filter.mightContain(word), word);
+            }
+            int falsePositives = 0;
+            for (String word : words("absent", 200_000)) {
+                if (filter.mightContain(word))
+                    falsePositives++;
+            }
+            double measured = falsePositives / 200_000.0;
+            assertTrue(measured < rate * 1.5, "rate " + rate + " measured " + measured);
+            // about 1.44 * log2(1 / rate) bits per key plus the blocking overhead
+            assertTrue(filter.getBytes() * 8.0 / 100_000 < 1.44 * Math.log(1 / rate) / Math.log(2) * 1.25);
+        }
+        assertThrows(IllegalArgumentException.class, () -> new BlockedBloomFilter(10, 0));
+        assertThrows(IllegalArgumentException.class, () -> new BlockedBloomFilter(10, 1));
+    }
+
+    @Test
+    public void testNoFalseNegativesThroughUpdates() {
+        FilteredHashTable table = new FilteredHashTable(new LinearSpaceHashTable(), 0.01);
+        List<String> keys = words("word", 1_000);
+        table.build(keys);
+        int initialCapacity = table.getFilter().getCapacity();
+
+        // more inserts than the filter was sized for
+        for (String key : words("new", 2_000)) {
+            assertTrue(table.insert(key));
+            assertTrue(table.contains(key), key);
+        }
+        assertTrue(table.getFilter().getCapacity() > initialCapacity);
+        assertFalse(table.insert("word1"));
+
+        for (String key : words("word", 1_000)) {
+            assertTrue(table.delete(key));
+            assertFalse(table.search(key), key);
+        }
+        for (String key : words("new", 2_000)) {
+            assertTrue(table.search(key), key);
+        }
+        assertEquals(2_000, table.size());
+        assertFalse(table.contains(null));
+    }
+
+    @Test
+    public void testSearchAllMatchesContains() {
+        FilteredHashTable table = new FilteredHashTable(new ArenaHashTable(), 0.05);
+        table.build(words("word", 500));
+
+        List<CharSequence> probes = new ArrayList<>(Arrays.asList("word3", null, "missing", "word499"));
+        probes.add(new StringBuilder("word42"));
+        probes.addAll(words("absent", 100));
+        boolean[] found = table.searchAll(probes);
+        for (int i = 0; i < found.length; i++) {
+            assertEquals(table.contains(probes.get(i)), found[i], String.valueOf(probes.get(i)));
+        }
+        assertTrue(found[0] && found[3] && found[4]);
+    }
+
+    @Test
+    public void testWrapsAlreadyBuiltTable() {
+        QuadraticSpaceHashTable quadratic = new QuadraticSpaceHashTable();
+        quadratic.build(Arrays.asList("apple", "banana"));
+        FilteredHashTable table = new FilteredHashTable(quadratic, 0.01);
+        assertTrue(table.search("apple"));
+        assertTrue(table.search("banana"));
+        assertFalse(table.search("cherry"));
+        assertEquals(quadratic.getSpace(), table.getSpace());
+
+        FilteredHashTable empty = new FilteredHashTable(new QuadraticSpaceHashTable(), 0.01);
+        assertFalse(empty.search("apple"));
+    }
+}
@@ -0,0 +1,136 @@
+package hashing.tables;
+
+import hashing.functions.IHashFunctionFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HashTableSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    private List<String> words(int count) {
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            words.add("word" + i);
+        }
+        words.add("naïve");
+        words.add("日本語");
+        words.add("lone\uD800surrogate");
+        return words;
+    }
+
+    @Test
+    public void testLinearRoundTrip() throws IOException {
+        IHashFunctionFactory[] factories = {IHashFunctionFactory.MATRIX, IHashFunctionFactory.PACKED_MATRIX,
+                IHashFunctionFactory.TABULATION, IHashFunctionFactory.FINGERPRINT};
+        List<String> input = words(2000);
+
+        for (IHashFunctionFactory factory : factories) {
+            LinearSpaceHashTable table = new LinearSpaceHashTable(factory);
+            table.build(input);
+            Path file = tempDir.resolve("linear.snapshot");
+            HashTableSnapshot.save(table, file);
+
+            IPerfectHashTable loaded = HashTableSnapshot.load(file);
+            assertInstanceOf(MappedSnapshotTable.class, loaded);
+            assertEquals(table.size(), loaded.size());
+            assertEquals(table.getSpace(), loaded.getSpace());
+            for (String word : input) {
+                assertTrue(loaded.search(word), "Failed to find: " + word);
+            }
+            assertFalse(loaded.search("missing"));
+            assertEquals(new HashSet<>(input), new HashSet<>(loaded.toList()));
+            // lookups are served from the mapping
+            assertFalse(((MappedSnapshotTable) loaded).isOnHeap());
+
+            // the loaded table stays fully mutable
+            assertTrue(loaded.insert("inserted"));
+            assertTrue(((MappedSnapshotTable) loaded).isOnHeap());
+            assertTrue(loaded.delete("word7"));
+            assertTrue(loaded.search("inserted"));
+            assertFalse(loaded.search("word7"));
+        }
+    }
+
+    @Test
+    public void testQuadraticRoundTripKeepsTombstones() throws IOException {
+        QuadraticSpaceHashTable table = new QuadraticSpaceHashTable();
+        table.build(Arrays.asList("apple", "banana", "cherry", "date"));
+        assertTrue(table.delete("banana"));
+        Path file = tempDir.resolve("quadratic.snapshot");
+        HashTableSnapshot.save(table, file);
+
+        IPerfectHashTable loaded = HashTableSnapshot.load(file);
+        assertEquals(3, loaded.size());
+        assertEquals(table.getSpace(), loaded.getSpace());
+        assertTrue(loaded.search("apple"));
+        assertTrue(loaded.search("date"));
+        assertFalse(loaded.search("banana"));
+    }
+
+    @Test
+    public void testSaveAfterLoad() throws IOException {
+        LinearSpaceHashTable table = new LinearSpaceHashTable();
+        table.build(words(500));
+        Path file = tempDir.resolve("first.snapshot");
+        HashTableSnapshot.save(table, file);
+
+        Path copy = tempDir.resolve("second.snapshot");
+        HashTableSnapshot.save(HashTableSnapshot.load(file), copy);
+        IPerfectHashTable loaded = HashTableSnapshot.load(copy, true);
+        assertEquals(table.size(), loaded.size());
+        assertTrue(loaded.search("word42"));
+        assertTrue(loaded.contains(new StringBuilder("naïve")));
+    }
+
+    @Test
+    public void testEmptyTableRoundTrip() throws IOException {
+        LinearSpaceHashTable table = new LinearSpaceHashTable();
+        table.build(new ArrayList<>());
+        Path file = tempDir.resolve("empty.snapshot");
+        HashTableSnapshot.save(table, file);
+
+        IPerfectHashTable loaded = HashTableSnapshot.load(file);
+        assertEquals(0, loaded.size());
+        assertFalse(loaded.search("anything"));
+        assertTrue(loaded.insert("anything"));
+        assertTrue(loaded.search("anything"));
+    }
+
+    @Test
+    public void testCorruptFileIsRejected() throws IOException {
+        LinearSpaceHashTable table = new LinearSpaceHashTable();
+        table.build(words(100));
+        Path file = tempDir.resolve("corrupt.snapshot");
+        HashTableSnapshot.save(table, file);
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x40;
+        Files.write(file, bytes);
+        IOException e = assertThrows(IOException.class, () -> HashTableSnapshot.load(file));
+        assertTrue(e.getMessage().contains("checksum"));
+        assertNotNull(HashTableSnapshot.load(file, false)); // skipping the check is the caller's choice
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 10));
+        assertThrows(IOException.class, () -> HashTableSnapshot.load(file));
+    }
+
+    @Test
+    public void testUnsupportedTableType() {
+        MinimalPerfectHashTable table = new MinimalPerfectHashTable();
+        table.build(words(10));
+        assertThrows(IllegalArgumentException.class,
+                () -> HashTableSnapshot.save(table, tempDir.resolve("minimal.snapshot")));
+    }
+}
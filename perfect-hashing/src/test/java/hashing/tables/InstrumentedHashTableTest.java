@@ -0,0 +1,118 @@
+package hashing.tables;
+
+import hashing.functions.IHashFunctionFactory;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InstrumentedHashTableTest {
+
+    private static List<String> words(int count) {
+        List<String> words = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            words.add("word" + i);
+        }
+        return words;
+    }
+
+    @Test
+    public void testLookupsProbesAndLayout() {
+        TableMetrics metrics = new TableMetrics();
+        metrics.setSampleInterval(1);
+        InstrumentedHashTable table = new InstrumentedHashTable(
+                new LinearSpaceHashTable(metrics.countingFactory(IHashFunctionFactory.PACKED_MATRIX)), metrics);
+        List<String> keys = words(500);
+        table.build(keys);
+
+        for (String key : keys) {
+            assertTrue(table.search(key));
+        }
+        assertFalse(table.contains("missing"));
+        assertArrayEquals(new boolean[]{true, false}, table.searchAll(Arrays.asList("word1", "nope")));
+
+        assertEquals(503, metrics.getLookups());
+        assertEquals(501, metrics.getHits());
+        assertEquals(501.0 / 503, metrics.getHitRatio(), 1e-9);
+        // the primary bucket plus at least one slot
+        assertTrue(metrics.getMeanProbes() >= 2, "probes " + metrics.getMeanProbes());
+        assertTrue(metrics.getLookupP99Nanos() >= metrics.getLookupP50Nanos());
+
+        assertEquals(1, metrics.getBuilds());
+        assertTrue(metrics.getHashFunctionsDrawn() > 500, "a primary function plus one per bucket");
+        assertEquals(table.getSpace() / 500.0, metrics.getSlotsPerKey(), 1e-9);
+        long buckets = 0;
+        long keysInBuckets = 0;
+        long[] sizes = metrics.getBucketSizeCounts();
+        for (int size = 0; size < sizes.length; size++) {
+            buckets += sizes[size];
+            keysInBuckets += size * sizes[size];
+        }
+        assertEquals(500, buckets);
+        assertTrue(keysInBuckets <= 500);
+    }
+
+    @Test
+    public void testUpdateRebuildsAreCounted() {
+        TableMetrics metrics = new TableMetrics();
+        InstrumentedHashTable table = new InstrumentedHashTable(new QuadraticSpaceHashTable(), metrics);
+        table.build(new ArrayList<>());
+        for (String key : words(20)) {
+            assertTrue(table.insert(key));
+        }
+
+        assertEquals(1, metrics.getBuilds());
+        assertTrue(metrics.getUpdateRebuilds() > 0);
+        assertEquals(20, table.size());
+        assertEquals(0, metrics.getBucketSizeCounts().length, "one-level table");
+
+        metrics.reset();
+        assertEquals(0, metrics.getUpdateRebuilds());
+        assertEquals(0, metrics.getLookups());
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        LogHistogram histogram = new LogHistogram();
+        for (int value = 1; value <= 10_000; value++) {
+            histogram.record(value);
+        }
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(5_000, histogram.percentile(0.5), 5_000 / 16.0);
+        assertEquals(9_900, histogram.percentile(0.99), 9_900 / 16.0);
+        assertEquals(10_000, histogram.percentile(1), 10_000 / 16.0);
+
+        LogHistogram small = new LogHistogram();
+        for (long value : new long[]{0, 1, 1, 3, 40}) {
+            small.record(value);
+        }
+        assertArrayEquals(new long[]{1, 2, 0, 1, 1}, small.counts(4));
+        assertEquals(1, small.percentile(0.5));
+    }
+
+    @Test
+    public void testRegisteredAsMBean() throws Exception {
+        TableMetrics metrics = new TableMetrics();
+        InstrumentedHashTable table = new InstrumentedHashTable(new ArenaHashTable(), metrics);
+        table.build(words(100));
+        table.search("word7");
+
+        ObjectName name = metrics.register("instrumented-test");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(1L, server.getAttribute(name, "Lookups"));
+            assertEquals(1.0, server.getAttribute(name, "HitRatio"));
+            server.invoke(name, "reset", null, null);
+            assertEquals(0L, server.getAttribute(name, "Lookups"));
+        } finally {
+            TableMetrics.unregister("instrumented-test");
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+}
@@ -1,10 +1,14 @@
 package hashing.tables;
 
+import hashing.functions.FingerprintHashFunction;
+import hashing.functions.IHashFunctionFactory;
+import hashing.functions.TabulationHashFunction;
 import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.Assert.*;
 
@@ -58,4 +62,202 @@ public class LinearSpaceHashTableTest {
         assertEquals(1, table.size());
         assertFalse(table.delete("apple"));
     }
+
+    @Test
+    public void testPluggableHashFamilies() {
+        List<String> words = Arrays.asList("apple", "banana", "cherry", "pizza", "grape", "honey", "lemon", "black", "white");
+        IHashFunctionFactory[] factories = {IHashFunctionFactory.MATRIX, IHashFunctionFactory.PACKED_MATRIX,
+                IHashFunctionFactory.TABULATION, IHashFunctionFactory.FINGERPRINT};
+
+        for (IHashFunctionFactory factory : factories) {
+            IPerfectHashTable table = new LinearSpaceHashTable(factory);
+            table.build(words);
+            assertEquals(9, table.size());
+            for (String word : words)
+                assertTrue(table.search(word));
+            assertFalse(table.search("orange"));
+        }
+    }
+
+    @Test
+    public void testParallelBuild() {
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++)
+            words.add("word" + i);
+
+        LinearSpaceHashTable table = new LinearSpaceHashTable();
+        table.setParallelism(4);
+        table.build(words);
+
+        assertEquals(words.size(), table.size());
+        for (String word : words)
+            assertTrue(table.search(word));
+        assertFalse(table.search("missing"));
+
+        BuildReport report = table.getBuildReport();
+        assertEquals(4, report.getParallelism());
+        assertTrue(report.getTotalNanos() >= report.getSplitNanos() + report.getSubTableNanos());
+    }
+
+    @Test
+    public void testCloseStopsTheBuildThreads() {
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++)
+            words.add("word" + i);
+
+        LinearSpaceHashTable table = new LinearSpaceHashTable();
+        table.setParallelism(2);
+        table.build(words);
+        ForkJoinPool pool = table.getBuildPool();
+        assertNotNull(pool);
+
+        table.close();
+        assertTrue(pool.isShutdown());
+        assertNull(table.getBuildPool());
+        assertTrue(table.search("word7"));
+
+        // a later build starts a new pool
+        table.build(words);
+        assertNotNull(table.getBuildPool());
+        table.close();
+    }
+
+    @Test
+    public void testBuildReportRespectsSumOfSquaresBound() {
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++)
+            words.add("word" + i);
+
+        LinearSpaceHashTable table = new LinearSpaceHashTable();
+        int rebuilds = table.build(words);
+
+        BuildReport report = table.getBuildReport();
+        assertEquals(rebuilds, report.getPrimaryRetries());
+        assertEquals(rebuilds, table.getRebuildAttempts());
+        assertTrue(report.getSumOfSquares() <= 4L * words.size());
+        assertTrue(report.getSecondaryRetries() >= 0);
+        // n primary slots, at most 4n second-level slots and one slot per empty bucket
+        assertTrue(table.getSpace() <= 6 * words.size());
+    }
+
+    @Test
+    public void testBuildGivesUpWhenNoSplitMeetsTheBound() {
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            words.add("word" + i);
+
+        // every function sends all keys to bucket 0, so no split can pass the sum-of-squares check
+        LinearSpaceHashTable table = new LinearSpaceHashTable((tableSize, keyBits) -> new TabulationHashFunction(1));
+        assertThrows(RuntimeException.class, () -> table.build(words));
+    }
+
+    @Test
+    public void testIncrementalResize() {
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++)
+            words.add("word" + i);
+
+        LinearSpaceHashTable table = new LinearSpaceHashTable();
+        table.setIncrementalResize(true);
+        table.build(words);
+
+        // the first insert into the full table starts a resize instead of rebuilding
+        assertTrue(table.insert("extra0"));
+        assertTrue(table.isResizing());
+        for (String word : words)
+            assertTrue(table.search(word));
+        assertTrue(table.search("extra0"));
+
+        // keys on both sides of the migration cursor can be inserted, deleted and found
+        for (int i = 1; i < 200; i++)
+            assertTrue(table.insert("extra" + i));
+        for (int i = 0; i < 1_000; i += 3)
+            assertTrue(table.delete("word" + i));
+        assertFalse(table.isResizing());
+
+        int expected = 1_000 + 200 - 334;
+        assertEquals(expected, table.size());
+        assertEquals(expected, table.toList().size());
+        for (int i = 0; i < 1_000; i++)
+            assertEquals(i % 3 != 0, table.search("word" + i));
+        for (int i = 0; i < 200; i++)
+            assertTrue(table.search("extra" + i));
+        assertTrue(table.getMaxInsertNanos() > 0);
+    }
+
+    @Test
+    public void testFingerprintFamilyAcrossResizeAndBatch() {
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++)
+            words.add("wörd" + i);
+
+        LinearSpaceHashTable table = new LinearSpaceHashTable(IHashFunctionFactory.FINGERPRINT);
+        table.setIncrementalResize(true);
+        table.build(words);
+        assertTrue(table.insert("extra"));
+        assertTrue(table.isResizing());
+        for (String word : words)
+            assertTrue(table.contains(new StringBuilder(word)));
+        assertFalse(table.search("wörd5000"));
+
+        table.finishResize();
+        List<String> probes = new ArrayList<>(words.subList(0, 100));
+        probes.add("extra");
+        probes.add("missing");
+        boolean[] found = table.searchAll(probes);
+        for (int i = 0; i < probes.size(); i++)
+            assertEquals(i < probes.size() - 1, found[i]);
+    }
+
+    @Test
+    public void testKeysWithEqualFingerprintsGetANewSeed() {
+        // the two keys share their 64-bit fingerprint under this seed, so no multiplier parts them
+        FingerprintHashFunction collidingSeed = new FingerprintHashFunction(1).withFingerprintSeed(0x2545F4914F6CDD1DL);
+        assertEquals(collidingSeed.fingerprint("rbhjwttpwyamxmsa"), collidingSeed.fingerprint("wacyjnvfo)omLl;2"));
+        List<String> words = new ArrayList<>(Arrays.asList("rbhjwttpwyamxmsa", "wacyjnvfo)omLl;2"));
+        for (int i = 0; i < 100; i++)
+            words.add("word" + i);
+
+        LinearSpaceHashTable table = new LinearSpaceHashTable(IHashFunctionFactory.FINGERPRINT, collidingSeed,
+                new QuadraticSpaceHashTable[0], 0);
+        table.build(words);
+        assertNotEquals(0x2545F4914F6CDD1DL,
+                ((FingerprintHashFunction) table.getPrimaryHashFunction()).getFingerprintSeed());
+        for (String word : words)
+            assertTrue(table.search(word));
+        assertTrue(table.insert("extra"));
+        assertTrue(table.search("rbhjwttpwyamxmsa"));
+    }
+
+    @Test
+    public void testKeysAPlainWrapAroundCannotSeparate() {
+        String x = "the first seventy-five byte block of a key that is longer than the matrix..";
+        String y = "and a second seventy-five byte block, which is swapped with the first one..";
+        List<String> words = new ArrayList<>(Arrays.asList("colour", "colour\u0000", x + y, y + x));
+        for (int i = 0; i < 200; i++)
+            words.add("w" + i);
+
+        for (IHashFunctionFactory factory : new IHashFunctionFactory[]{IHashFunctionFactory.PACKED_MATRIX, IHashFunctionFactory.MATRIX}) {
+            LinearSpaceHashTable table = new LinearSpaceHashTable(factory);
+            table.build(words);
+            for (String word : words)
+                assertTrue(word, table.search(word));
+            assertEquals(words.size(), table.size());
+        }
+    }
+
+    @Test
+    public void testFinishResize() {
+        LinearSpaceHashTable table = new LinearSpaceHashTable();
+        table.setIncrementalResize(true);
+        table.build(Arrays.asList("a", "b", "c", "d"));
+        assertTrue(table.insert("e"));
+        assertTrue(table.isResizing());
+
+        table.finishResize();
+        assertFalse(table.isResizing());
+        for (String word : Arrays.asList("a", "b", "c", "d", "e"))
+            assertTrue(table.search(word));
+        assertEquals(5, table.size());
+    }
 }
@@ -0,0 +1,88 @@
+package hashing.tables;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MinimalPerfectHashTableTest {
+
+    private MinimalPerfectHashTable hashTable;
+
+    @BeforeEach
+    public void setUp() {
+        hashTable = new MinimalPerfectHashTable();
+    }
+
+    @Test
+    public void testBuildWithEmptyList() {
+        hashTable.build(new ArrayList<>());
+        assertEquals(0, hashTable.size());
+        assertEquals(0, hashTable.getSpace());
+        assertFalse(hashTable.search("apple"));
+    }
+
+    @Test
+    public void testBuildCorrectness() {
+        List<String> input = Arrays.asList("apple", "banana", "cherry", "pizza", "grape", "honey", "lemon", "black", "white");
+        hashTable.build(input);
+
+        for (String s : input) {
+            assertTrue(hashTable.search(s), "Failed to find: " + s);
+        }
+        assertFalse(hashTable.search("orange"));
+        assertEquals(input.size(), hashTable.size());
+        assertEquals(input.size(), hashTable.getSpace());
+    }
+
+    @Test
+    public void testDuplicatesAreStoredOnce() {
+        hashTable.build(Arrays.asList("x", "y", "x", "z", "y"));
+        assertEquals(3, hashTable.size());
+        assertEquals(new HashSet<>(Arrays.asList("x", "y", "z")), new HashSet<>(hashTable.toList()));
+    }
+
+    @Test
+    public void testInsertAndDeleteRebuild() {
+        hashTable.build(Arrays.asList("a", "b", "c"));
+        assertTrue(hashTable.insert("d"));
+        assertFalse(hashTable.insert("a"));
+        assertTrue(hashTable.search("d"));
+        assertEquals(4, hashTable.size());
+
+        assertTrue(hashTable.delete("b"));
+        assertFalse(hashTable.delete("b"));
+        assertFalse(hashTable.search("b"));
+        assertTrue(hashTable.search("a"));
+        assertEquals(3, hashTable.getSpace());
+    }
+
+    @Test
+    public void testLargeDatasetIsCompact() {
+        List<String> input = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            input.add("word" + i);
+        }
+
+        long startTime = System.nanoTime();
+        hashTable.build(input);
+        long endTime = System.nanoTime();
+
+        System.out.printf("Build time for 100000 entries: %.2f ms, %.2f bits/key%n",
+                (endTime - startTime) / 1e6, hashTable.getBitsPerKey());
+
+        for (String s : input) {
+            assertTrue(hashTable.search(s));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(hashTable.search("missing" + i));
+        }
+        assertEquals(input.size(), hashTable.getSpace());
+        assertTrue(hashTable.getBitsPerKey() < 3.0, "bits per key: " + hashTable.getBitsPerKey());
+    }
+}
@@ -0,0 +1,188 @@
+package hashing.tables;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class OffHeapHashTableTest {
+
+    private OffHeapHashTable hashTable;
+
+    @BeforeEach
+    public void setUp() {
+        hashTable = new OffHeapHashTable();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        hashTable.close();
+    }
+
+    @Test
+    public void testBuildWithEmptyList() {
+        hashTable.build(new ArrayList<>());
+        assertEquals(0, hashTable.size());
+        assertFalse(hashTable.search("apple"));
+    }
+
+    @Test
+    public void testBuildCorrectness() {
+        List<String> input = Arrays.asList("apple", "banana", "cherry", "café", "日本語", "emoji😀", "lone\uD800");
+        hashTable.build(input);
+
+        for (String s : input) {
+            assertTrue(hashTable.search(s), "Failed to find: " + s);
+        }
+        assertFalse(hashTable.search("orange"));
+        assertFalse(hashTable.search("appl"));
+        assertFalse(hashTable.search("lone?"));
+        assertEquals(input.size(), hashTable.size());
+        assertEquals(new HashSet<>(input), new HashSet<>(hashTable.toList()));
+        assertTrue(hashTable.getOffHeapBytes() > 0);
+    }
+
+    @Test
+    public void testInsertAndDeleteRebuild() {
+        hashTable.build(Arrays.asList("a", "b", "c"));
+        assertTrue(hashTable.insert("d"));
+        assertFalse(hashTable.insert("a"));
+        assertTrue(hashTable.search("d"));
+        assertTrue(hashTable.delete("b"));
+        assertFalse(hashTable.delete("b"));
+        assertFalse(hashTable.search("b"));
+        assertEquals(3, hashTable.size());
+    }
+
+    @Test
+    public void testUpdatesDoNotRebuildTheTable() {
+        List<String> input = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            input.add("word" + i);
+        }
+        long buildStart = allocatedBytes();
+        hashTable.build(input);
+        long heapBefore = allocatedBytes();
+        long buildUsed = heapBefore - buildStart;
+
+        for (int i = 0; i < 200; i++) {
+            assertTrue(hashTable.insert("extra" + i));
+            assertTrue(hashTable.delete("word" + i));
+        }
+
+        long heapUsed = allocatedBytes() - heapBefore;
+        assertEquals(0, hashTable.getUpdateRebuilds());
+        // all 400 updates together stage less than the one build did
+        if (heapBefore >= 0)
+            assertTrue(heapUsed < buildUsed, "updates allocated " + heapUsed + " bytes, the build " + buildUsed);
+        assertEquals(20_000, hashTable.size());
+        for (int i = 0; i < 20_000; i++) {
+            assertEquals(i >= 200, hashTable.search("word" + i));
+        }
+        for (int i = 0; i < 200; i++) {
+            assertTrue(hashTable.search("extra" + i));
+        }
+        assertEquals(20_000, new HashSet<>(hashTable.toList()).size());
+    }
+
+    @Test
+    public void testGrowsFromEmpty() {
+        hashTable.build(new ArrayList<>());
+        for (int i = 0; i < 5_000; i++) {
+            assertTrue(hashTable.insert("key" + i));
+        }
+        for (int i = 0; i < 5_000; i += 2) {
+            assertTrue(hashTable.delete("key" + i));
+        }
+        assertEquals(2_500, hashTable.size());
+        for (int i = 0; i < 5_000; i++) {
+            assertEquals(i % 2 == 1, hashTable.search("key" + i));
+        }
+        // the table doubles and compacts a logarithmic number of times, not once per update
+        assertTrue(hashTable.getUpdateRebuilds() < 40, "rebuilds: " + hashTable.getUpdateRebuilds());
+    }
+
+    @Test
+    public void testClosedTableRejectsCalls() {
+        hashTable.build(Arrays.asList("a", "b"));
+        hashTable.close();
+        assertEquals(0, hashTable.getOffHeapBytes());
+        assertThrows(IllegalStateException.class, () -> hashTable.search("a"));
+        assertThrows(IllegalStateException.class, () -> hashTable.insert("c"));
+        assertThrows(IllegalStateException.class, () -> hashTable.delete("a"));
+        assertThrows(IllegalStateException.class, () -> hashTable.toList());
+        assertThrows(IllegalStateException.class, () -> hashTable.build(new ArrayList<>()));
+        hashTable.close();
+    }
+
+    @Test
+    public void testCloseFreesTheBuffers() {
+        assumeTrue(DirectMemory.canFree());
+        BufferPoolMXBean direct = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> pool.getName().equals("direct")).findFirst().orElse(null);
+        assumeTrue(direct != null);
+
+        List<String> input = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            input.add("word" + i);
+        }
+        hashTable.build(input);
+        long tableBytes = hashTable.getOffHeapBytes();
+        long before = direct.getMemoryUsed();
+        hashTable.close();
+
+        // released on the spot, no garbage collection involved
+        assertTrue(before - direct.getMemoryUsed() >= tableBytes,
+                "freed " + (before - direct.getMemoryUsed()) + " of " + tableBytes + " bytes");
+    }
+
+    // Bytes this thread allocated on the heap so far, or -1 if the JVM does not say
+    private static long allocatedBytes() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean))
+            return -1;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported())
+            return -1;
+        return threads.getThreadAllocatedBytes(Thread.currentThread().threadId());
+    }
+
+    @Test
+    public void testLookupsDoNotAllocate() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+
+        List<String> input = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            input.add("word" + i);
+        }
+        hashTable.build(input);
+        String[] probes = input.toArray(new String[0]);
+        for (String probe : probes) {
+            hashTable.search(probe); // warm up
+        }
+
+        long threadId = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        int found = 0;
+        for (int round = 0; round < 10; round++) {
+            for (String probe : probes) {
+                if (hashTable.search(probe))
+                    found++;
+            }
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(10 * probes.length, found);
+        assertTrue(allocated < 64 * 1024, "lookups allocated " + allocated + " bytes");
+    }
+}
@@ -1,6 +1,8 @@
 package hashing.tables;
 
 
+import hashing.functions.FingerprintHashFunction;
+import hashing.functions.IHashFunctionFactory;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 
@@ -46,6 +48,76 @@ public class QuadraticSpaceHashTableTest {
         Assertions.assertTrue(hashTable.delete("y"));
         Assertions.assertFalse(hashTable.search("y"));
     }
+    @org.junit.jupiter.api.Test
+    public void testKeysAPlainWrapAroundCannotSeparate() {
+        // a trailing zero byte, and two 75-byte blocks swapped at u = 300 bits
+        String x = "the first seventy-five byte block of a key that is longer than the matrix..";
+        String y = "and a second seventy-five byte block, which is swapped with the first one..";
+        List<String> input = Arrays.asList("colour", "colour\u0000", x + y, y + x);
+        hashTable.build(input);
+        for (String s : input) {
+            Assertions.assertTrue(hashTable.search(s), "Failed to find: " + s);
+        }
+        Assertions.assertEquals(4, hashTable.size());
+    }
+
+    @org.junit.jupiter.api.Test
+    public void testKeysWithEqualFingerprintsGetANewSeed() {
+        // the two keys share their 64-bit fingerprint under this seed, so no multiplier parts them
+        FingerprintHashFunction collidingSeed = new FingerprintHashFunction(1).withFingerprintSeed(0x2545F4914F6CDD1DL);
+        List<String> input = new ArrayList<>(Arrays.asList("rbhjwttpwyamxmsa", "wacyjnvfo)omLl;2"));
+        for (int i = 0; i < 100; i++) {
+            input.add("word" + i);
+        }
+        hashTable = new QuadraticSpaceHashTable(IHashFunctionFactory.FINGERPRINT, collidingSeed,
+                new String[1], new int[1], 0, false);
+        hashTable.build(input);
+        for (String s : input) {
+            Assertions.assertTrue(hashTable.search(s), "Failed to find: " + s);
+        }
+        Assertions.assertNotEquals(0x2545F4914F6CDD1DL,
+                ((FingerprintHashFunction) hashTable.getHashFunction()).getFingerprintSeed());
+    }
+
+    @org.junit.jupiter.api.Test
+    public void testFormerTombstoneIsAnOrdinaryKey() {
+        List<String> input = Arrays.asList("MARK_DELETED", "alpha", "beta");
+        hashTable.build(input);
+        Assertions.assertTrue(hashTable.delete("alpha"));
+        Assertions.assertTrue(hashTable.search("MARK_DELETED"));
+        Assertions.assertFalse(hashTable.insert("MARK_DELETED"));
+        Assertions.assertTrue(hashTable.delete("MARK_DELETED"));
+        Assertions.assertFalse(hashTable.search("MARK_DELETED"));
+        Assertions.assertEquals(1, hashTable.size());
+    }
+
+    @org.junit.jupiter.api.Test
+    public void testReinsertAfterDelete() {
+        List<String> input = Arrays.asList("one", "two", "three", "four");
+        hashTable.build(input);
+        int space = hashTable.getSpace();
+        for (int round = 0; round < 10; round++) {
+            Assertions.assertTrue(hashTable.delete("two"));
+            Assertions.assertFalse(hashTable.search("two"));
+            Assertions.assertTrue(hashTable.insert("two"));
+        }
+        for (String s : input) {
+            Assertions.assertTrue(hashTable.search(s), "Failed to find: " + s);
+        }
+        Assertions.assertEquals(input.size(), hashTable.size());
+        Assertions.assertEquals(space, hashTable.getSpace());
+    }
+
+    @org.junit.jupiter.api.Test
+    public void testBuildWithEmptyList() {
+        hashTable.build(new ArrayList<>());
+        Assertions.assertEquals(0, hashTable.size());
+        Assertions.assertFalse(hashTable.search("missing"));
+        Assertions.assertTrue(hashTable.insert("first"));
+        Assertions.assertTrue(hashTable.search("first"));
+        Assertions.assertEquals(1, hashTable.size());
+    }
+
     @org.junit.jupiter.api.Test
     public void testRebuildAfterInsertOverLoadFactor() {
         List<String> input = Arrays.asList("key1", "key2", "key3");
@@ -59,6 +131,35 @@ public class QuadraticSpaceHashTableTest {
         }
     }
 
+    @org.junit.jupiter.api.Test
+    public void testTabulationHashFamily() {
+        hashTable = new QuadraticSpaceHashTable(IHashFunctionFactory.TABULATION);
+        List<String> input = Arrays.asList("apple", "banana", "cherry", "date");
+        hashTable.build(input);
+        for (String s : input) {
+            Assertions.assertTrue(hashTable.search(s), "Failed to find: " + s);
+        }
+        Assertions.assertTrue(hashTable.insert("elderberry"));
+        Assertions.assertTrue(hashTable.search("elderberry"));
+        Assertions.assertFalse(hashTable.search("fig"));
+    }
+
+    @org.junit.jupiter.api.Test
+    public void testMultilingualAndLongKeysBuildQuickly() {
+        // pairs that agree in the low 7 bits of every char, and keys that differ only past 300 key bits
+        String prefix = "pneumonoultramicroscopicsilicovolcanoconiosis-";
+        List<String> input = Arrays.asList("a", "\u00E1", "\u0161", "\u00F3", "o", "\u3042", "\u3002", "\u00E9t\u00E9",
+                prefix + "one", prefix + "two", prefix + "three", prefix + "\u00FCber");
+        for (int round = 0; round < 20; round++) {
+            int attempts = hashTable.build(input);
+            Assertions.assertTrue(attempts < 100, "build needed " + attempts + " attempts");
+        }
+        for (String s : input) {
+            Assertions.assertTrue(hashTable.search(s), "Failed to find: " + s);
+        }
+        Assertions.assertFalse(hashTable.search(prefix + "four"));
+    }
+
     @org.junit.jupiter.api.Test
     public void testToList() {
         List<String> input = Arrays.asList("lion", "tiger", "bear");